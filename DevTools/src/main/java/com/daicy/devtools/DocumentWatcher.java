@@ -0,0 +1,348 @@
+package com.daicy.devtools;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
+
+import org.reactfx.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 监视标签页打开的文件被其他程序修改
+ *
+ * <p>记录编辑器内容与磁盘文件最后一次一致时的文本作为基准。文件被修改后：
+ * 编辑器未修改时只替换发生变化的区域；编辑器已修改时询问用户，可以按行三方合并
+ * 双方的修改、使用磁盘上的版本或保留编辑器中的内容。
+ *
+ * <p>除文件读取在监视线程中进行外，其余方法都在 JavaFX 应用线程中调用。
+ *
+ * @author daicy
+ */
+class DocumentWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentWatcher.class);
+
+    private static final String CONFLICT_MINE = "<<<<<<< 本地修改\n";
+    private static final String CONFLICT_SEPARATOR = "=======\n";
+    private static final String CONFLICT_THEIRS = ">>>>>>> 磁盘文件\n";
+
+    private final TextPlugin plugin;
+    private Path file;
+    private Subscription subscription = Subscription.EMPTY;
+    // 编辑器内容与磁盘文件最后一次一致时的文本
+    private String baseline;
+    private boolean prompting;
+    // 询问期间文件再次被修改时的最新内容
+    private String pendingDisk;
+
+    DocumentWatcher(TextPlugin plugin, Path file) {
+        this.plugin = plugin;
+        watch(file);
+    }
+
+    /**
+     * 编辑器内容已保存到文件，以当前内容作为新的基准
+     *
+     * @param savedFile 保存的文件，另存为时与原来的文件不同
+     */
+    void markSaved(Path savedFile) {
+        if (!savedFile.equals(file)) {
+            subscription.unsubscribe();
+            watch(savedFile);
+        } else {
+            baseline = plugin.getContent();
+        }
+    }
+
+    void dispose() {
+        subscription.unsubscribe();
+    }
+
+    private void watch(Path watchedFile) {
+        file = watchedFile;
+        baseline = plugin.getContent();
+        try {
+            subscription = FileWatchService.getInstance().subscribe(watchedFile, this::fileChanged);
+        } catch (IOException e) {
+            subscription = Subscription.EMPTY;
+            logger.warn("无法监视文件 {}", watchedFile, e);
+        }
+    }
+
+    /**
+     * 在监视线程中读取文件，再回到 JavaFX 应用线程处理
+     */
+    private void fileChanged(Path changed) {
+        String disk;
+        try {
+            disk = Files.readString(changed);
+        } catch (IOException e) {
+            // 文件被删除、正在被替换或不是 UTF-8 文本
+            logger.debug("读取被修改的文件失败: {}", changed, e);
+            return;
+        }
+        Platform.runLater(() -> reconcile(disk));
+    }
+
+    private void reconcile(String disk) {
+        if (prompting) {
+            pendingDisk = disk;
+            return;
+        }
+        String current = plugin.getContent();
+        switch (reaction(current, disk)) {
+            case IN_SYNC:
+                baseline = disk;
+                break;
+            case IGNORE:
+                break;
+            case RELOAD:
+                replaceChangedRegion(current, disk);
+                baseline = disk;
+                break;
+            default:
+                askMerge(current, disk);
+                break;
+        }
+    }
+
+    /**
+     * 文件被修改后的处理方式
+     */
+    enum Reaction {
+        // 磁盘内容与编辑器相同，只更新基准
+        IN_SYNC,
+        // 磁盘内容与基准相同，不需要处理
+        IGNORE,
+        // 编辑器没有未保存的修改，直接替换变化的区域
+        RELOAD,
+        // 双方都有修改，询问用户
+        ASK
+    }
+
+    /**
+     * @param current 编辑器中的内容
+     * @param disk 磁盘上的新内容
+     * @return 对这次修改的处理方式
+     */
+    Reaction reaction(String current, String disk) {
+        if (disk.equals(current)) {
+            // 包括本程序自己写入的情况
+            return Reaction.IN_SYNC;
+        } else if (disk.equals(baseline)) {
+            // 只是修改时间变化，或编辑器有未保存的修改而磁盘没有变化
+            return Reaction.IGNORE;
+        } else if (current.equals(baseline)) {
+            return Reaction.RELOAD;
+        }
+        return Reaction.ASK;
+    }
+
+    private void askMerge(String current, String disk) {
+        ButtonType mergeButton = new ButtonType("合并", ButtonBar.ButtonData.YES);
+        ButtonType reloadButton = new ButtonType("使用磁盘版本", ButtonBar.ButtonData.NO);
+        ButtonType keepButton = new ButtonType("保留我的修改", ButtonBar.ButtonData.CANCEL_CLOSE);
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION, "", mergeButton, reloadButton, keepButton);
+        alert.setTitle("文件已被修改");
+        alert.setHeaderText(file + " 已被其他程序修改，编辑器中有未保存的修改");
+        alert.setContentText("合并会按行合并双方的修改，同一区域都被修改时用冲突标记标出。");
+        prompting = true;
+        Optional<ButtonType> choice;
+        try {
+            choice = alert.showAndWait();
+        } finally {
+            prompting = false;
+        }
+        // 询问期间编辑器内容可能变化，以关闭对话框时的内容为准
+        current = plugin.getContent();
+        if (choice.isPresent() && choice.get() == mergeButton) {
+            Merge merge = merge(baseline, current, disk);
+            replaceChangedRegion(current, merge.text);
+            if (merge.conflict) {
+                Alert warning = new Alert(Alert.AlertType.WARNING);
+                warning.setTitle("合并冲突");
+                warning.setHeaderText("双方修改了同一区域");
+                warning.setContentText("冲突部分已用 <<<<<<< 和 >>>>>>> 标出，请手动处理后保存。");
+                warning.show();
+            }
+        } else if (choice.isPresent() && choice.get() == reloadButton) {
+            replaceChangedRegion(current, disk);
+        }
+        // 保留编辑器内容时同样以新的磁盘内容为基准，之后只对新的外部修改提示
+        baseline = disk;
+        if (pendingDisk != null) {
+            String latest = pendingDisk;
+            pendingDisk = null;
+            reconcile(latest);
+        }
+    }
+
+    /**
+     * 只替换两段文本中间不同的部分，保留相同的开头和结尾
+     */
+    private void replaceChangedRegion(String current, String target) {
+        int prefix = commonPrefix(current, target);
+        int suffix = 0;
+        int maxSuffix = Math.min(current.length(), target.length()) - prefix;
+        while (suffix < maxSuffix
+                && current.charAt(current.length() - 1 - suffix) == target.charAt(target.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (prefix == current.length() && prefix == target.length()) {
+            return;
+        }
+        plugin.replaceContent(prefix, current.length() - suffix, target.substring(prefix, target.length() - suffix));
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 三方合并的结果
+     */
+    static final class Merge {
+        final String text;
+        final boolean conflict;
+
+        Merge(String text, boolean conflict) {
+            this.text = text;
+            this.conflict = conflict;
+        }
+    }
+
+    /**
+     * 按行三方合并
+     *
+     * <p>双方分别与基准按行比较得到各自的修改区域，按在基准中的位置从前到后处理。只有一方修改的区域
+     * 直接采用该方的版本；双方的修改区域重叠或相邻（之间没有隔着未修改的行）时合为一组，
+     * 双方改成相同内容的采用该内容，否则用冲突标记分别列出双方的版本。
+     *
+     * @param base 基准文本
+     * @param mine 编辑器中的文本
+     * @param theirs 磁盘上的文本
+     * @return 合并结果
+     */
+    static Merge merge(String base, String mine, String theirs) {
+        List<String> baseLines = lines(base);
+        List<String> mineLines = lines(mine);
+        List<String> theirLines = lines(theirs);
+        List<LineDiff.Hunk> mineHunks = LineDiff.diff(baseLines, mineLines);
+        List<LineDiff.Hunk> theirHunks = LineDiff.diff(baseLines, theirLines);
+        if (mineHunks.isEmpty()) {
+            return new Merge(theirs, false);
+        }
+        if (theirHunks.isEmpty()) {
+            return new Merge(mine, false);
+        }
+        StringBuilder text = new StringBuilder(Math.max(mine.length(), theirs.length()));
+        boolean conflict = false;
+        // 基准中已处理到的行，以及双方对应的位置
+        int baseIndex = 0;
+        int mineIndex = 0;
+        int theirIndex = 0;
+        int m = 0;
+        int t = 0;
+        while (m < mineHunks.size() || t < theirHunks.size()) {
+            int start = Math.min(m < mineHunks.size() ? mineHunks.get(m).aStart : Integer.MAX_VALUE,
+                    t < theirHunks.size() ? theirHunks.get(t).aStart : Integer.MAX_VALUE);
+            append(text, baseLines, baseIndex, start);
+            mineIndex += start - baseIndex;
+            theirIndex += start - baseIndex;
+            // 把与当前组重叠或相邻的修改区域都并入，直到两侧都没有可并入的区域
+            int end = start;
+            int mineEnd = m;
+            int theirEnd = t;
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                if (mineEnd < mineHunks.size() && mineHunks.get(mineEnd).aStart <= end) {
+                    end = Math.max(end, mineHunks.get(mineEnd++).aEnd);
+                    grown = true;
+                }
+                if (theirEnd < theirHunks.size() && theirHunks.get(theirEnd).aStart <= end) {
+                    end = Math.max(end, theirHunks.get(theirEnd++).aEnd);
+                    grown = true;
+                }
+            }
+            int mineTo = mineIndex + end - start + growth(mineHunks, m, mineEnd);
+            int theirTo = theirIndex + end - start + growth(theirHunks, t, theirEnd);
+            if (theirEnd == t) {
+                append(text, mineLines, mineIndex, mineTo);
+            } else if (mineEnd == m || mineLines.subList(mineIndex, mineTo).equals(theirLines.subList(theirIndex, theirTo))) {
+                append(text, theirLines, theirIndex, theirTo);
+            } else {
+                conflict = true;
+                text.append(CONFLICT_MINE);
+                appendBlock(text, mineLines, mineIndex, mineTo);
+                text.append(CONFLICT_SEPARATOR);
+                appendBlock(text, theirLines, theirIndex, theirTo);
+                text.append(CONFLICT_THEIRS);
+            }
+            baseIndex = end;
+            mineIndex = mineTo;
+            theirIndex = theirTo;
+            m = mineEnd;
+            t = theirEnd;
+        }
+        append(text, baseLines, baseIndex, baseLines.size());
+        return new Merge(text.toString(), conflict);
+    }
+
+    /**
+     * @return hunks[from, to) 使行数增加的总数
+     */
+    private static int growth(List<LineDiff.Hunk> hunks, int from, int to) {
+        int growth = 0;
+        for (int i = from; i < to; i++) {
+            LineDiff.Hunk hunk = hunks.get(i);
+            growth += (hunk.bEnd - hunk.bStart) - (hunk.aEnd - hunk.aStart);
+        }
+        return growth;
+    }
+
+    /**
+     * 拆分为行，每行保留末尾的换行符
+     */
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            lines.add(text.substring(start, end));
+            start = end;
+        }
+        return lines;
+    }
+
+    private static void append(StringBuilder text, List<String> lines, int from, int to) {
+        for (int i = from; i < to; i++) {
+            text.append(lines.get(i));
+        }
+    }
+
+    /**
+     * 冲突标记必须独占一行，最后一行没有换行符时补上
+     */
+    private static void appendBlock(StringBuilder text, List<String> lines, int from, int to) {
+        append(text, lines, from, to);
+        if (text.length() > 0 && text.charAt(text.length() - 1) != '\n') {
+            text.append('\n');
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.daicy.devtools;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.reactfx.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 文件修改监视服务
+ *
+ * <p>所有订阅共用一个 {@link WatchService} 和一个后台线程，按文件所在的目录注册，
+ * 同一目录只注册一次，最后一个订阅取消时注销。监视目录而不是文件本身，
+ * 通过临时文件 + 重命名替换的写入方式同样能被发现。
+ *
+ * <p>编辑器保存或其他程序写入时通常会在短时间内产生多个事件，同一文件的事件在
+ * {@link #QUIET_MILLIS} 毫秒内没有新事件后才合并为一次通知。回调在监视线程中调用，
+ * 更新界面前需要切换到 JavaFX 应用线程。
+ *
+ * @author daicy
+ */
+public final class FileWatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileWatchService.class);
+
+    // 同一文件最后一个事件之后等待的时间
+    private static final long QUIET_MILLIS = 200;
+
+    private static FileWatchService instance;
+
+    private final WatchService watchService;
+    // 以下两个映射由 this 保护
+    private final Map<Path, WatchKey> directoryKeys = new HashMap<>();
+    private final Map<Path, List<Consumer<Path>>> listeners = new HashMap<>();
+    // 文件 → 最后一个事件的时间，只在监视线程中访问
+    private final Map<Path, Long> pending = new LinkedHashMap<>();
+
+    private FileWatchService() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        Thread thread = new Thread(this::run, "file-watch-service");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return 全局唯一的监视服务，第一次调用时启动监视线程
+     * @throws IOException 当前文件系统不支持监视
+     */
+    public static synchronized FileWatchService getInstance() throws IOException {
+        if (instance == null) {
+            instance = new FileWatchService();
+        }
+        return instance;
+    }
+
+    /**
+     * 订阅文件的修改、创建和删除
+     *
+     * @param file 文件
+     * @param listener 回调，参数为规范化后的绝对路径，在监视线程中调用
+     * @return 取消订阅
+     * @throws IOException 无法监视文件所在的目录
+     */
+    public synchronized Subscription subscribe(Path file, Consumer<Path> listener) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        Path directory = path.getParent();
+        if (!directoryKeys.containsKey(directory)) {
+            directoryKeys.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+        }
+        listeners.computeIfAbsent(path, key -> new ArrayList<>()).add(listener);
+        return () -> unsubscribe(path, listener);
+    }
+
+    private synchronized void unsubscribe(Path path, Consumer<Path> listener) {
+        List<Consumer<Path>> fileListeners = listeners.get(path);
+        if (fileListeners == null || !fileListeners.remove(listener) || !fileListeners.isEmpty()) {
+            return;
+        }
+        listeners.remove(path);
+        Path directory = path.getParent();
+        for (Path watched : listeners.keySet()) {
+            if (watched.getParent().equals(directory)) {
+                return;
+            }
+        }
+        WatchKey key = directoryKeys.remove(directory);
+        if (key != null) {
+            key.cancel();
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty() ? watchService.take()
+                        : watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collect(key);
+                }
+                dispatch();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 服务已关闭
+        }
+    }
+
+    /**
+     * 记录目录中被订阅文件的事件时间
+     */
+    private void collect(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    // 事件丢失时通知该目录下的全部订阅者
+                    for (Path watched : listeners.keySet()) {
+                        if (watched.getParent().equals(directory)) {
+                            pending.put(watched, now);
+                        }
+                    }
+                    continue;
+                }
+                Path path = directory.resolve((Path) event.context());
+                if (listeners.containsKey(path)) {
+                    pending.put(path, now);
+                }
+            }
+            if (!key.reset()) {
+                // 目录被删除或无法访问
+                directoryKeys.values().remove(key);
+            }
+        }
+    }
+
+    /**
+     * 通知已经安静了 {@link #QUIET_MILLIS} 毫秒的文件
+     */
+    private void dispatch() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (now - entry.getValue() < QUIET_MILLIS) {
+                continue;
+            }
+            iterator.remove();
+            List<Consumer<Path>> fileListeners;
+            synchronized (this) {
+                List<Consumer<Path>> registered = listeners.get(entry.getKey());
+                fileListeners = registered == null ? List.of() : new ArrayList<>(registered);
+            }
+            for (Consumer<Path> listener : fileListeners) {
+                try {
+                    listener.accept(entry.getKey());
+                } catch (RuntimeException e) {
+                    logger.error("文件修改通知处理失败: {}", entry.getKey(), e);
+                }
+            }
+        }
+    }
+}
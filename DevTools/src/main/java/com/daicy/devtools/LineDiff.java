@@ -0,0 +1,201 @@
+package com.daicy.devtools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按行比较两段文本，得到修改区域的列表
+ *
+ * <p>对齐方式与 {@code JsonDiff} 对数组的处理相同：先去掉首尾相同的行；剩余部分足够小时用 LCS 对齐，
+ * 否则以两侧都只出现一次的行为锚点（patience diff），取锚点的最长递增子序列后对锚点之间的各段递归对齐。
+ * 比较前把每一行换成编号，相同内容的行编号相同，之后只比较整数。
+ *
+ * @author daicy
+ */
+final class LineDiff {
+
+    /**
+     * LCS 动态规划允许的最大单元数，超过时改用锚点对齐
+     */
+    private static final long LCS_LIMIT = 4_000_000L;
+
+    /**
+     * 一个修改区域：a 中的 [aStart, aEnd) 被替换为 b 中的 [bStart, bEnd)
+     */
+    static final class Hunk {
+        final int aStart;
+        final int aEnd;
+        final int bStart;
+        final int bEnd;
+
+        Hunk(int aStart, int aEnd, int bStart, int bEnd) {
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+    }
+
+    private final int[] a;
+    private final int[] b;
+    private final List<Hunk> hunks = new ArrayList<>();
+
+    private LineDiff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * @param a 原来的行
+     * @param b 修改后的行
+     * @return 按位置排列、互不相邻的修改区域，两段文本相同时为空列表
+     */
+    static List<Hunk> diff(List<String> a, List<String> b) {
+        Map<String, Integer> ids = new HashMap<>();
+        LineDiff diff = new LineDiff(toIds(a, ids), toIds(b, ids));
+        diff.align(0, a.size(), 0, b.size());
+        return diff.hunks;
+    }
+
+    private static int[] toIds(List<String> lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.computeIfAbsent(lines.get(i), line -> ids.size());
+        }
+        return result;
+    }
+
+    /**
+     * 对齐 a[aFrom, aTo) 与 b[bFrom, bTo)，修改区域按从前到后的顺序加入列表
+     */
+    private void align(int aFrom, int aTo, int bFrom, int bTo) {
+        while (aFrom < aTo && bFrom < bTo && a[aFrom] == b[bFrom]) {
+            aFrom++;
+            bFrom++;
+        }
+        while (aFrom < aTo && bFrom < bTo && a[aTo - 1] == b[bTo - 1]) {
+            aTo--;
+            bTo--;
+        }
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        if (n == 0 || m == 0) {
+            addHunk(aFrom, aTo, bFrom, bTo);
+        } else if ((long) n * m <= LCS_LIMIT) {
+            alignLcs(aFrom, aTo, bFrom, bTo);
+        } else {
+            alignAnchors(aFrom, aTo, bFrom, bTo);
+        }
+    }
+
+    private void alignLcs(int aFrom, int aTo, int bFrom, int bTo) {
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        // LCS 长度表，lcs[i][j] 为 a[aFrom+i..] 与 b[bFrom+j..] 的 LCS 长度
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            int line = a[aFrom + i];
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = line == b[bFrom + j] ? lcs[i + 1][j + 1] + 1 : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        int gapI = 0;
+        int gapJ = 0;
+        while (i < n && j < m) {
+            if (a[aFrom + i] == b[bFrom + j]) {
+                addHunk(aFrom + gapI, aFrom + i, bFrom + gapJ, bFrom + j);
+                i++;
+                j++;
+                gapI = i;
+                gapJ = j;
+            } else if (lcs[i + 1][j] >= lcs[i][j + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        addHunk(aFrom + gapI, aTo, bFrom + gapJ, bTo);
+    }
+
+    private void alignAnchors(int aFrom, int aTo, int bFrom, int bTo) {
+        // 行 → 在 b 中的位置，出现多次的记为 -1
+        Map<Integer, Integer> bPositions = new HashMap<>((bTo - bFrom) * 2);
+        for (int j = bFrom; j < bTo; j++) {
+            bPositions.merge(b[j], j, (first, second) -> -1);
+        }
+        Map<Integer, Integer> aCounts = new HashMap<>((aTo - aFrom) * 2);
+        for (int i = aFrom; i < aTo; i++) {
+            aCounts.merge(a[i], 1, Integer::sum);
+        }
+        // 两侧都唯一的行作为候选锚点，按 a 中的顺序排列
+        int[] anchorA = new int[aTo - aFrom];
+        int[] anchorB = new int[aTo - aFrom];
+        int count = 0;
+        for (int i = aFrom; i < aTo; i++) {
+            Integer j = bPositions.get(a[i]);
+            if (j != null && j >= 0 && aCounts.get(a[i]) == 1) {
+                anchorA[count] = i;
+                anchorB[count] = j;
+                count++;
+            }
+        }
+        if (count == 0) {
+            addHunk(aFrom, aTo, bFrom, bTo);
+            return;
+        }
+        // 锚点在 b 中位置的最长递增子序列（耐心排序）
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+        for (int k = 0; k < count; k++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (anchorB[tails[mid]] < anchorB[k]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[k] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = k;
+            if (low == length) {
+                length++;
+            }
+        }
+        int[] chain = new int[length];
+        for (int k = tails[length - 1], c = length - 1; k >= 0; k = previous[k], c--) {
+            chain[c] = k;
+        }
+        int i = aFrom;
+        int j = bFrom;
+        for (int k : chain) {
+            align(i, anchorA[k], j, anchorB[k]);
+            i = anchorA[k] + 1;
+            j = anchorB[k] + 1;
+        }
+        align(i, aTo, j, bTo);
+    }
+
+    /**
+     * 记录一段未对齐的行，与紧挨着的上一个区域合并
+     */
+    private void addHunk(int aFrom, int aTo, int bFrom, int bTo) {
+        if (aFrom == aTo && bFrom == bTo) {
+            return;
+        }
+        if (!hunks.isEmpty()) {
+            Hunk last = hunks.get(hunks.size() - 1);
+            if (last.aEnd == aFrom && last.bEnd == bFrom) {
+                hunks.set(hunks.size() - 1, new Hunk(last.aStart, aTo, last.bStart, bTo));
+                return;
+            }
+        }
+        hunks.add(new Hunk(aFrom, aTo, bFrom, bTo));
+    }
+}
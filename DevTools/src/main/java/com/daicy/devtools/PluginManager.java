@@ -11,7 +11,7 @@ import javafx.collections.ObservableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.daicy.core.JsonEngine;
 
 /**
  * 插件管理器，负责插件的加载、安装和卸载
@@ -43,9 +43,7 @@ class PluginManager {
                 return;
             }
             
-            ObjectMapper objectMapper = new ObjectMapper();
-            String json = new String(inputStream.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
-            List<PluginInfo> pluginInfos = objectMapper.readValue(json, objectMapper.getTypeFactory().constructCollectionType(List.class, PluginInfo.class));
+            List<PluginInfo> pluginInfos = JsonEngine.readList(inputStream, PluginInfo.class);
             
             // 更新可用插件类名列表
             availablePluginClassNames.clear();
@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.daicy.core.ExceptionHandler;
+import com.daicy.core.JsonDiffPane;
 
 import javafx.application.Application;
 import javafx.collections.FXCollections;
@@ -39,10 +40,7 @@ import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.FlowPane;
-import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
-import javafx.scene.web.WebEngine;
-import javafx.scene.web.WebView;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
@@ -67,6 +65,8 @@ public class TextEditor extends Application {
     private PluginManager pluginManager = new PluginManager();
     // 存储标签页与插件实例的映射关系，确保每个标签页有独立的插件实例
     private final Map<Tab, TextPlugin> tabPluginMap = new HashMap<>();
+    // 监视外部修改的标签页
+    private final Map<Tab, DocumentWatcher> tabWatcherMap = new HashMap<>();
 
     public static void main(String[] args) {
         launch(args);
@@ -252,36 +252,21 @@ public class TextEditor extends Application {
         Tab tab = new Tab();
         tab.setId("untitled.tab");
         tab.setText(bundle.getString("untitled.tab"));
-        tab.setContent(createEmptyTabContent());
+        JsonDiffPane diffPane = createEmptyTabContent();
+        tab.setContent(diffPane);
         tab.setOnClosed(event -> {
+            diffPane.dispose();
             recentFilesMap.remove(tab.getText());
         });
         tabPane.getTabs().add(tab);
     }
 
-    private Pane createEmptyTabContent() {
-    // 创建一个WebView，用于展示网页
-    WebView webView = new WebView();
-    webView.setPrefSize(800, 600); // 设置默认大小
-    // 或者根据父容器设置宽高，确保它随着父容器大小变化
-    webView.setMaxWidth(Double.MAX_VALUE);
-    webView.setMaxHeight(Double.MAX_VALUE);
-    // 获取WebView对应的WebEngine，用于加载网页等操作
-    WebEngine webEngine = webView.getEngine();
-    // 设置 User-Agent，模拟平板浏览器
-    webEngine.setUserAgent("Mozilla/5.0 (iPad; CPU OS 14_0 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/14.0 Mobile/15E148 Safari/604.1");
-    // 设置 User-Agent，模拟 iPhone 浏览器
-//    String iphoneUserAgent = "Mozilla/5.0 (iPhone; CPU iPhone OS 16_0 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/16.0 Mobile/15E148 Safari/604.1";
-//    webEngine.setUserAgent(iphoneUserAgent);
-    // 启用 JavaScript 支持
-    webEngine.setJavaScriptEnabled(true);
-
-        // 使用WebEngine加载百度首页
-    webEngine.load("https://jsdiff.com");
-    // 创建一个垂直布局容器VBox，将WebView添加进去
-    VBox vbox = new VBox(webView);
-    return vbox;
-}
+    /**
+     * 新建标签页默认显示进程内的 JSON 比较面板
+     */
+    private JsonDiffPane createEmptyTabContent() {
+        return new JsonDiffPane();
+    }
 
 
     private TextPlugin selectedPlugin;
@@ -324,11 +309,18 @@ public class TextEditor extends Application {
                     if (plugin != null) {
                         plugin.destroy();
                     }
+                    DocumentWatcher watcher = tabWatcherMap.remove(tab);
+                    if (watcher != null) {
+                        watcher.dispose();
+                    }
                     recentFilesMap.remove(tab.getText());
                 });
                 tabPane.getTabs().add(tab);
                 tabPane.getSelectionModel().select(tab);
                 recentFilesMap.put(tab.getText(), selectedFile.getAbsolutePath());
+                if (newPluginInstance.isFileWatchEnabled()) {
+                    tabWatcherMap.put(tab, new DocumentWatcher(newPluginInstance, selectedFile.toPath()));
+                }
             } else {
                 ExceptionHandler.handleException(
                     new RuntimeException("无法创建插件实例"),
@@ -351,7 +343,10 @@ public class TextEditor extends Application {
             TextPlugin plugin = tabPluginMap.get(selectedTab);
             if (filePath != null && plugin != null) {
                 try {
-                    plugin.save(filePath);
+                    // 保存失败时插件已提示错误，不能把未写入的内容当作磁盘上的版本
+                    if (plugin.save(filePath)) {
+                        markSaved(selectedTab, plugin, new File(filePath));
+                    }
                 } catch (Exception e) {
                     ExceptionHandler.handleException(e, "文件保存失败", "无法保存文件", 
                             "无法保存文件: " + filePath + "\n错误: " + e.getMessage());
@@ -383,15 +378,30 @@ public class TextEditor extends Application {
             return;
         }
         try {
-            plugin.save(selectedFile.getAbsolutePath());
+            if (!plugin.save(selectedFile.getAbsolutePath())) {
+                return;
+            }
             recentFilesMap.put(selectedTab.getText(), selectedFile.getAbsolutePath());
             selectedTab.setText(selectedFile.getName());
+            markSaved(selectedTab, plugin, selectedFile);
         } catch (Exception e) {
             ExceptionHandler.handleException(e, "文件保存失败", "无法保存文件", 
                     "无法保存文件: " + selectedFile.getAbsolutePath() + "\n错误: " + e.getMessage());
         }
     }
 
+    /**
+     * 保存后更新外部修改监视的基准，另存为时改为监视新文件
+     */
+    private void markSaved(Tab tab, TextPlugin plugin, File file) {
+        DocumentWatcher watcher = tabWatcherMap.get(tab);
+        if (watcher != null) {
+            watcher.markSaved(file.toPath());
+        } else if (plugin.isFileWatchEnabled()) {
+            tabWatcherMap.put(tab, new DocumentWatcher(plugin, file.toPath()));
+        }
+    }
+
     private void saveTextToFile(File file, String text) {
         try {
             java.nio.file.Files.write(java.nio.file.Paths.get(file.getAbsolutePath()), 
@@ -37,9 +37,13 @@ public interface TextPlugin {
     /**
      * 保存文件
      * 
+     * <p>保存失败时由插件自行提示错误。只有返回 true 时编辑器才把当前内容记为已保存，
+     * 之后外部程序对文件的修改才会直接重新加载。
+     * 
      * @param filePath 要保存的文件路径
+     * @return 文件是否已写入
      */
-    void save(String filePath);
+    boolean save(String filePath);
     
     /**
      * 获取当前编辑的内容
@@ -55,6 +59,34 @@ public interface TextPlugin {
      */
     void setContent(String content);
     
+    /**
+     * 是否监视打开的文件被其他程序修改
+     * 
+     * <p>返回 true 时，通过文件打开的标签页会订阅 {@link FileWatchService}：
+     * 编辑器未修改时自动重新加载变化的区域，有未保存的修改时询问是否合并。
+     * 要求 {@link #getContent()} 与保存到文件的内容一致。默认不监视。
+     * 
+     * @return 是否监视
+     */
+    default boolean isFileWatchEnabled() {
+        return false;
+    }
+    
+    /**
+     * 用新文本替换 [start, end) 范围内的内容
+     * 
+     * <p>默认实现通过 {@link #getContent()} 和 {@link #setContent(String)} 替换全文，
+     * 支持局部修改的编辑器应重写此方法，以保留光标、滚动位置和增量高亮。
+     * 
+     * @param start 起始偏移
+     * @param end 结束偏移（不含）
+     * @param text 新文本
+     */
+    default void replaceContent(int start, int end, String text) {
+        String content = getContent();
+        setContent(content.substring(0, start) + text + content.substring(end));
+    }
+    
     /**
      * 初始化插件
      * 
@@ -5,38 +5,52 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputDialog;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
-import javafx.scene.layout.StackPane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
 
 import org.apache.commons.lang3.StringUtils;
 import org.fxmisc.flowless.VirtualizedScrollPane;
 import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.LineNumberFactory;
-import org.fxmisc.richtext.model.StyleSpans;
-import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.daicy.core.ExceptionHandler;
 import com.daicy.devtools.TextPlugin;
+import com.daicy.devtools.plugin.util.HostsModel;
+import com.daicy.devtools.plugin.util.HostsProfiles;
 import com.daicy.devtools.plugin.util.HostsUtil;
+import com.daicy.devtools.plugin.util.IncrementalHostsHighlighter;
 
 /**
  * Hosts 文件管理插件
  * 
- * <p>提供 hosts 文件的编辑和管理功能，支持语法高亮。
+ * <p>提供 hosts 文件的编辑和管理功能，支持语法高亮。编辑时同步更新 {@link HostsModel}，
+ * 实时列出重复和冲突的映射，并支持按主机名查找所在的行。可以在多个 {@link HostsProfiles 配置方案}
+ * 之间切换，应用方案时只在内容改变时写入 hosts 文件。文件被其他程序修改时自动重新加载。
  * 
  * @author daicy
  */
@@ -44,97 +58,283 @@ public class HostsManagerPlugin implements TextPlugin {
     
     private static final Logger logger = LoggerFactory.getLogger(HostsManagerPlugin.class);
 
-    private static final String KEYWORD_PATTERN = "([1-9]|[1-9]\\d|1\\d{2}|2[0-4]\\d|25[0-5])(\\.(\\d|[1-9]\\d|1\\d{2}|2[0-4]\\d|25[0-5])){3}\\b";
-    private static final String COMMENT_PATTERN = "#[^\n]*";
-
     final KeyCombination keyCombinationCtrlS = new KeyCodeCombination(KeyCode.S, KeyCombination.CONTROL_DOWN);
 
     private CodeArea codeArea;
-    private ExecutorService executor;
 
-    private final StackPane contentPane;
+    private final BorderPane contentPane;
+
+    // 一次插入超过这么多行（打开文件、粘贴大段内容）时在后台重建模型，不逐行更新
+    private static final int REBUILD_THRESHOLD = 10_000;
+    // 问题列表最多显示的条数
+    private static final int ISSUE_LIMIT = 1000;
+
+    private final TextField lookupField = new TextField();
+    private final Label statusLabel = new Label();
+    private final ListView<HostsModel.Issue> issueList = new ListView<>();
+    private final ComboBox<HostsProfiles.Profile> profileComboBox = new ComboBox<>();
+    private final MenuButton blockButton = new MenuButton("区块");
 
-    private static final Pattern PATTERN = Pattern.compile(
-            "(?<KEYWORD>" + KEYWORD_PATTERN + ")"
-                    + "|(?<COMMENT>" + COMMENT_PATTERN + ")"
-    );
+    // 模型只在 JavaFX 应用线程中访问；后台重建期间为 null
+    private HostsModel model;
+    // 每次文本修改时递增，重建完成时据此判断文本是否已经改变
+    private long changeCount;
+    private Task<HostsModel> rebuildTask;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hosts-model-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public HostsManagerPlugin() {
-        executor = Executors.newSingleThreadExecutor();
         codeArea = new CodeArea();
         codeArea.setParagraphGraphicFactory(LineNumberFactory.get(codeArea));
-        codeArea.richChanges()
-                .filter(ch -> !ch.getInserted().equals(ch.getRemoved())) // XXX
-                .successionEnds(Duration.ofMillis(500))
-                .supplyTask(this::computeHighlightingAsync)
-                .awaitLatest(codeArea.richChanges())
-                .filterMap(t -> {
-                    if(t.isSuccess()) {
-                        return Optional.of(t.get());
-                    } else {
-                        logger.error("语法高亮计算失败", t.getFailure());
-                        return Optional.empty();
-                    }
-                })
-                .subscribe(this::applyHighlighting);
+        // 只重新着色被修改的段落，视口内优先
+        new IncrementalHostsHighlighter(codeArea);
+        codeArea.plainTextChanges().subscribe(this::updateModel);
+        // 停止输入后再刷新问题列表，逐键输入时只更新模型
+        codeArea.plainTextChanges()
+                .successionEnds(Duration.ofMillis(300))
+                .subscribe(change -> refreshIssues());
         codeArea.replaceText(0, 0, HostsUtil.getHostsContent());
 
-        contentPane = new StackPane(new VirtualizedScrollPane<>(codeArea));
-        contentPane.getStylesheets().add(getResource("css/hosts-keywords.css").toExternalForm());
-    }
+        lookupField.setPromptText("查找主机名，回车跳到下一处");
+        lookupField.setOnAction(event -> lookup());
+        issueList.setPrefHeight(120);
+        issueList.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, issue) -> {
+            if (issue != null) {
+                moveToLine(issue.getLines()[0]);
+            }
+        });
+        HBox.setHgrow(statusLabel, Priority.ALWAYS);
+        HBox searchBox = new HBox(10, lookupField, statusLabel);
+        VBox bottomBox = new VBox(5, searchBox, issueList);
+        bottomBox.setPadding(new Insets(5));
 
-    private URL getResource(String image) {
-        return getClass().getClassLoader().getResource(image);
+        profileComboBox.setPromptText("配置方案");
+        profileComboBox.valueProperty().addListener((observable, oldValue, profile) -> refreshBlocks());
+        Button applyButton = new Button("应用方案");
+        applyButton.setOnAction(event -> applyProfile());
+        Button saveProfileButton = new Button("保存为方案");
+        saveProfileButton.setOnAction(event -> saveAsProfile());
+        HBox profileBox = new HBox(10, profileComboBox, blockButton, applyButton, saveProfileButton);
+        profileBox.setPadding(new Insets(5));
+        loadProfiles();
+
+        contentPane = new BorderPane(new VirtualizedScrollPane<>(codeArea));
+        contentPane.setTop(profileBox);
+        contentPane.setBottom(bottomBox);
+        contentPane.getStylesheets().add(getResource("css/hosts-keywords.css").toExternalForm());
     }
 
-    @Override
-    public void destroy() {
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
-            try {
-                // 等待任务完成，最多等待5秒
-                if (!executor.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
+    /**
+     * 把文本修改应用到模型：只重新解析被修改的行
+     */
+    private void updateModel(PlainTextChange change) {
+        changeCount++;
+        int insertedLines = countLines(change.getInserted());
+        if (insertedLines > REBUILD_THRESHOLD) {
+            rebuildModel();
+            return;
+        }
+        if (model == null) {
+            // 正在重建的任务完成时会发现文本已改变并重新开始
+            if (rebuildTask == null) {
+                rebuildModel();
             }
+            return;
         }
+        int startParagraph = codeArea.offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+        List<String> lines = new ArrayList<>(insertedLines + 1);
+        for (int i = startParagraph; i <= startParagraph + insertedLines; i++) {
+            lines.add(codeArea.getParagraph(i).getText());
+        }
+        model.replaceLines(startParagraph, countLines(change.getRemoved()) + 1, lines);
     }
 
-    private Task<StyleSpans<Collection<String>>> computeHighlightingAsync() {
+    /**
+     * 在后台从全文重建模型，重建期间文本又被修改时重新开始
+     */
+    private void rebuildModel() {
+        model = null;
+        if (rebuildTask != null) {
+            rebuildTask.cancel();
+        }
         String text = codeArea.getText();
-        Task<StyleSpans<Collection<String>>> task = new Task<StyleSpans<Collection<String>>>() {
+        long startCount = changeCount;
+        Task<HostsModel> task = new Task<HostsModel>() {
             @Override
-            protected StyleSpans<Collection<String>> call() throws Exception {
-                return computeHighlighting(text);
+            protected HostsModel call() {
+                return HostsModel.parse(text, this::isCancelled);
             }
         };
+        rebuildTask = task;
+        statusLabel.setText("正在分析...");
+        task.setOnSucceeded(event -> {
+            if (rebuildTask != task) {
+                return;
+            }
+            rebuildTask = null;
+            if (changeCount != startCount) {
+                rebuildModel();
+            } else {
+                model = task.getValue();
+                refreshIssues();
+            }
+        });
+        task.setOnFailed(event -> {
+            if (rebuildTask == task) {
+                rebuildTask = null;
+                logger.error("hosts 分析失败", task.getException());
+                statusLabel.setText("分析失败: " + task.getException().getMessage());
+            }
+        });
         executor.execute(task);
-        return task;
     }
 
-    private void applyHighlighting(StyleSpans<Collection<String>> highlighting) {
-        codeArea.setStyleSpans(0, highlighting);
+    private void refreshIssues() {
+        if (model == null) {
+            return;
+        }
+        statusLabel.setText(model.getEntryCount() + " 条映射，" + model.getIssueCount() + " 个主机名存在重复或冲突");
+        issueList.getItems().setAll(model.getIssues(ISSUE_LIMIT));
+    }
+
+    /**
+     * 跳到光标之后下一处包含该主机名的行，到末尾后从头开始
+     */
+    private void lookup() {
+        String hostname = lookupField.getText().trim();
+        if (model == null || hostname.isEmpty()) {
+            return;
+        }
+        int[] lines = model.findLines(hostname);
+        if (lines.length == 0) {
+            statusLabel.setText("未找到 " + hostname);
+            return;
+        }
+        int current = codeArea.getCurrentParagraph();
+        int target = lines[0];
+        for (int line : lines) {
+            if (line > current) {
+                target = line;
+                break;
+            }
+        }
+        statusLabel.setText(hostname + " 出现在 " + lines.length + " 行");
+        moveToLine(target);
+    }
+
+    private void loadProfiles() {
+        try {
+            profileComboBox.getItems().setAll(HostsProfiles.load());
+        } catch (IOException e) {
+            logger.error("读取 hosts 配置方案失败", e);
+            statusLabel.setText("读取配置方案失败: " + e.getMessage());
+        }
+        refreshBlocks();
     }
 
-    private static StyleSpans<Collection<String>> computeHighlighting(String text) {
-        Matcher matcher = PATTERN.matcher(text);
-        int lastKwEnd = 0;
-        StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
-        while (matcher.find()) {
-            String styleClass =
-                    matcher.group("KEYWORD") != null ? "keyword" :
-                            matcher.group("COMMENT") != null ? "comment" :
-                                    null; /* never happens */
-            assert styleClass != null;
-            spansBuilder.add(Collections.emptyList(), matcher.start() - lastKwEnd);
-            spansBuilder.add(Collections.singleton(styleClass), matcher.end() - matcher.start());
-            lastKwEnd = matcher.end();
+    /**
+     * 列出当前方案的区块，勾选状态即是否启用
+     */
+    private void refreshBlocks() {
+        blockButton.getItems().clear();
+        HostsProfiles.Profile profile = profileComboBox.getValue();
+        blockButton.setDisable(profile == null);
+        if (profile == null) {
+            return;
+        }
+        for (HostsProfiles.Block block : profile.getBlocks()) {
+            CheckMenuItem item = new CheckMenuItem(block.getName());
+            item.setSelected(block.isEnabled());
+            item.setOnAction(event -> {
+                block.setEnabled(item.isSelected());
+                saveProfiles();
+            });
+            blockButton.getItems().add(item);
         }
-        spansBuilder.add(Collections.emptyList(), text.length() - lastKwEnd);
-        return spansBuilder.create();
+    }
+
+    /**
+     * 拼接当前方案启用的区块写入 hosts 文件，内容未改变时不写入
+     */
+    private void applyProfile() {
+        HostsProfiles.Profile profile = profileComboBox.getValue();
+        if (profile == null) {
+            return;
+        }
+        String content = HostsProfiles.compose(profile);
+        if (HostsUtil.saveHostsContent(content)) {
+            if (!content.equals(codeArea.getText())) {
+                setContent(content);
+            }
+            statusLabel.setText("已应用方案 " + profile.getName());
+        }
+    }
+
+    /**
+     * 把编辑区的内容按区块标题拆分后保存到方案中，方案不存在时新建
+     */
+    private void saveAsProfile() {
+        HostsProfiles.Profile selected = profileComboBox.getValue();
+        TextInputDialog dialog = new TextInputDialog(selected == null ? "" : selected.getName());
+        dialog.setTitle("保存为方案");
+        dialog.setHeaderText("以 \"#### 区块名\" 开头的行把内容分为多个区块");
+        dialog.setContentText("方案名称:");
+        dialog.showAndWait().map(String::trim).filter(name -> !name.isEmpty()).ifPresent(name -> {
+            HostsProfiles.Profile profile = profileComboBox.getItems().stream()
+                    .filter(candidate -> candidate.getName().equals(name))
+                    .findFirst()
+                    .orElseGet(() -> {
+                        HostsProfiles.Profile created = new HostsProfiles.Profile();
+                        created.setName(name);
+                        profileComboBox.getItems().add(created);
+                        return created;
+                    });
+            HostsProfiles.update(profile, codeArea.getText());
+            saveProfiles();
+            profileComboBox.setValue(profile);
+            refreshBlocks();
+        });
+    }
+
+    private void saveProfiles() {
+        try {
+            HostsProfiles.save(new ArrayList<>(profileComboBox.getItems()));
+        } catch (IOException e) {
+            ExceptionHandler.handleException(e, "保存失败", "无法保存配置方案",
+                    "无法写入文件: " + HostsProfiles.getStoreFile() + "\n错误: " + e.getMessage());
+        }
+    }
+
+    private void moveToLine(int line) {
+        if (line < codeArea.getParagraphs().size()) {
+            codeArea.moveTo(line, 0);
+            codeArea.requestFollowCaret();
+        }
+    }
+
+    private static int countLines(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private URL getResource(String image) {
+        return getClass().getClassLoader().getResource(image);
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuildTask != null) {
+            rebuildTask.cancel();
+        }
+        executor.shutdownNow();
     }
 
     @Override
@@ -159,20 +359,35 @@ public class HostsManagerPlugin implements TextPlugin {
     }
 
     @Override
-    public void save(String filePath) {
+    public boolean save(String filePath) {
         try {
             if(StringUtils.isEmpty(filePath)){
-                HostsUtil.saveHostsContent(codeArea.getText());
+                return HostsUtil.saveHostsContent(codeArea.getText());
             }else{
-                Files.write(java.nio.file.Paths.get(filePath), 
-                        codeArea.getText().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                // 与应用方案相同：内容未改变时不写入，通过临时文件原子替换，目录不可写时使用 sudo
+                HostsUtil.writeHosts(java.nio.file.Paths.get(filePath), codeArea.getText());
+                return true;
             }
         } catch (IOException e) {
+            // 包括取消输入 sudo 密码和密码错误
             ExceptionHandler.handleException(e, "文件保存失败", "无法保存文件", 
                     "无法保存文件: " + filePath + "\n错误: " + e.getMessage());
+            return false;
         }
     }
 
+    @Override
+    public boolean isFileWatchEnabled() {
+        // VPN 客户端等程序会修改 hosts 文件
+        return true;
+    }
+
+    @Override
+    public void replaceContent(int start, int end, String text) {
+        // 局部替换，高亮和模型都只更新被修改的行
+        codeArea.replaceText(start, end, text);
+    }
+
     @Override
     public String getContent() {
         return codeArea.getText();
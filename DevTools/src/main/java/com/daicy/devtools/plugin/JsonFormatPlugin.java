@@ -1,31 +1,97 @@
 package com.daicy.devtools.plugin;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.SeparatorMenuItem;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 
+import org.apache.commons.io.input.CharSequenceInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.LineNumberFactory;
-import org.fxmisc.richtext.model.StyleSpans;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.daicy.core.ExceptionHandler;
+import com.daicy.core.JsonEngine;
 import com.daicy.devtools.TextPlugin;
-import com.daicy.devtools.plugin.util.JsonHighlighting;
+import com.daicy.devtools.plugin.util.AtomicFiles;
+import com.daicy.devtools.plugin.util.ByteSizes;
+import com.daicy.devtools.plugin.util.IncrementalJsonHighlighter;
+import com.daicy.devtools.plugin.util.JsonBinaryFormat;
+import com.daicy.devtools.plugin.util.JsonBracketIndex;
+import com.daicy.devtools.plugin.util.JsonConverter;
+import com.daicy.devtools.plugin.util.JsonFormatMode;
+import com.daicy.devtools.plugin.util.JsonPath;
+import com.daicy.devtools.plugin.util.JsonSchemaValidator;
+import com.daicy.devtools.plugin.util.JsonSizeAnalyzer;
+import com.daicy.devtools.plugin.util.JsonStreamFormatter;
+import com.daicy.devtools.plugin.util.JsonStructureIndex;
+import com.daicy.devtools.plugin.util.JsonSyntaxChecker;
+import com.daicy.devtools.plugin.util.JsonTable;
 import com.daicy.devtools.plugin.util.JsonToBean;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.daicy.devtools.plugin.util.JsonTypeInference;
+import com.daicy.devtools.plugin.util.JsonUnescapingReader;
+import com.daicy.devtools.plugin.util.LazyJsonTreeItem;
+import com.daicy.devtools.plugin.util.LineOffsetIndex;
+import com.daicy.devtools.plugin.util.NdjsonProcessor;
+import com.daicy.devtools.plugin.util.ProgressReader;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 /**
  * JSON 格式化插件
@@ -35,10 +101,92 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
  * @author daicy
  */
 public class JsonFormatPlugin implements TextPlugin {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonFormatPlugin.class);
+
     private final CodeArea inputTextArea = new CodeArea();
     private final CodeArea outputTextArea = new CodeArea();
     private final VBox contentPane;
     private final CheckBox checkBox = new CheckBox("关键字转义");
+    private final ComboBox<JsonFormatMode> modeComboBox = new ComboBox<>();
+    private final CheckBox ndjsonCheckBox = new CheckBox("NDJSON");
+    private final Label statsLabel = new Label();
+    private final TextField queryField = new TextField();
+    private final TreeView<LazyJsonTreeItem.Entry> treeView = new TreeView<>();
+    private final TabPane outputTabPane = new TabPane();
+    private final Tab treeTab = new Tab("树");
+    private final Tab schemaTab = new Tab("Schema");
+    private final Tab summaryTab = new Tab("统计");
+    private final TextArea summaryArea = new TextArea();
+    private final CodeArea schemaArea = new CodeArea();
+    private final ListView<JsonSchemaValidator.Violation> violationList = new ListView<>();
+    // 输入在建树之后是否被修改过，修改后节点的偏移不再对应输入区
+    private boolean treeStale;
+    // 输入在建表之后是否被修改过，修改后行的偏移不再对应输入区
+    private boolean tableStale;
+    private final TableView<Integer> tableView = new TableView<>();
+    private final Tab tableTab = new Tab("表格");
+    private final TextField tableFilterField = new TextField();
+    private JsonTable table;
+    // 当前数据源对应的筛选和排序条件，与请求的条件相同时不重复计算
+    private String appliedFilter = "";
+    private List<JsonTable.SortKey> appliedSortKeys = List.of();
+    private final ProgressBar progressBar = new ProgressBar();
+    private final HBox progressBox = new HBox(5);
+    private final ProgressBar exportProgressBar = new ProgressBar();
+    private final HBox exportProgressBox = new HBox(5);
+    private final IncrementalJsonHighlighter inputHighlighter;
+    private final LineOffsetIndex inputLineIndex;
+    // 定位错误单词时在错误位置前后读取的最大字符数
+    private static final int ERROR_CONTEXT = 256;
+    // JSONPath 结果累计到该字符数后推送到输出区
+    private static final int STREAM_CHUNK = 64 * 1024;
+    // 重新定位语法错误时每解析这么多个 token 检查一次取消状态
+    private static final int CHECK_INTERVAL = 4096;
+
+    // 所有解析任务在单独的线程中执行，避免阻塞 JavaFX 应用线程
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "json-format-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 当前正在执行的任务，新任务提交时取消旧任务（latest-wins）
+    private Task<?> currentTask;
+    // 打开的 CBOR/Smile/MessagePack 文件及其格式，保存到该文件时重新编码为同一格式
+    private Path binaryFile;
+    private JsonBinaryFormat binaryFormat;
+
+    // 表格的排序和筛选在独立的线程中执行，新的请求只取消上一次排序/筛选，不与格式化等任务互相取消
+    private final ExecutorService tableExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "json-table-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 当前的排序/筛选任务，只在 JavaFX 应用线程访问
+    private Task<int[]> tableViewTask;
+
+    // 写入文件的导出任务在独立的线程中依次执行，不会被之后的格式化、查询等操作取消
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "json-export-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 正在执行和等待执行的导出任务，只在 JavaFX 应用线程访问
+    private final List<Task<?>> exportTasks = new ArrayList<>();
+
+    // 实时语法校验在独立的线程中执行，不与格式化等任务互相取消
+    private final ExecutorService validationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "json-validate-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 只在校验线程中使用
+    private final JsonSyntaxChecker syntaxChecker = new JsonSyntaxChecker();
+    // 上次提交校验之后最靠前的修改位置，只在 JavaFX 应用线程访问
+    private int dirtyFrom = 0;
+    // 每次提交校验时递增，旧的校验发现自己已过期时提前结束
+    private final AtomicInteger validationGeneration = new AtomicInteger();
+    private final Label validationLabel = new Label();
 
     public JsonFormatPlugin() {
         contentPane = new VBox(10);
@@ -48,30 +196,186 @@ public class JsonFormatPlugin implements TextPlugin {
         // 创建单选按钮用于控制是否关键字转义 Keyword escaping
         // 设置初始状态为选中
         checkBox.setSelected(true);
-        HBox hBox = new HBox(10, inputLabel,checkBox);
+        // 输出模式：美化 / 压缩 / 规范化
+        modeComboBox.getItems().addAll(JsonFormatMode.values());
+        modeComboBox.setValue(JsonFormatMode.PRETTY);
+        modeComboBox.setTooltip(new Tooltip("美化和压缩逐个 token 输出；规范化要读完对象的全部成员后才能按键排序，"
+                + "内存占用取决于最大的对象"));
+        // NDJSON：按行切分，每行单独格式化/校验
+        ndjsonCheckBox.setTooltip(new Tooltip("每行一个 JSON 值（JSON Lines），按行并行处理"));
+        HBox hBox = new HBox(10, inputLabel, checkBox, modeComboBox, ndjsonCheckBox, validationLabel);
+
+        // JSONPath 查询
+        queryField.setPromptText("$.items[*].id");
+        queryField.setOnAction(event -> queryJsonPath());
+        HBox.setHgrow(queryField, Priority.ALWAYS);
+        Button queryButton = new Button("查询");
+        queryButton.setOnAction(event -> queryJsonPath());
+        HBox queryBox = new HBox(10, new Label("JSONPath："), queryField, queryButton);
 
         inputTextArea.setPrefHeight(300);
         inputTextArea.setWrapText(true);
-        inputTextArea.setParagraphGraphicFactory(LineNumberFactory.get(inputTextArea));
+        // 行号、折叠标记和光标处的括号配对高亮
+        JsonBracketIndex.attach(inputTextArea);
 
         Label outputLabel = new Label("格式化后：");
         outputTextArea.setPrefHeight(300);
         outputTextArea.setWrapText(true);
         outputTextArea.setEditable(false);
 
+        // 树视图：节点只保存偏移，展开时才分页创建子节点
+        treeView.setPrefHeight(300);
+        treeView.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                onTreeItemActivated(treeView.getSelectionModel().getSelectedItem());
+            }
+        });
+        Tab textTab = new Tab("文本", outputTextArea);
+        treeTab.setContent(treeView);
+
+        // 表格视图：数据源是行号排列，固定行高让虚拟化的表格不必逐行测量
+        tableView.setPrefHeight(300);
+        tableView.setFixedCellSize(24);
+        tableView.setPlaceholder(new Label("顶层为对象数组时可用"));
+        // 排序由后台计算出新的行号排列，不在 JavaFX 应用线程中排序
+        tableView.setSortPolicy(view -> {
+            refreshTableRows();
+            return true;
+        });
+        tableView.setRowFactory(view -> {
+            TableRow<Integer> row = new TableRow<>();
+            row.setOnMouseClicked(event -> {
+                if (event.getClickCount() == 2 && !row.isEmpty() && table != null && !tableStale) {
+                    int start = table.getRowStart(row.getItem());
+                    inputTextArea.moveTo(start);
+                    inputTextArea.requestFollowCaret();
+                }
+            });
+            return row;
+        });
+        tableFilterField.setPromptText("筛选：任一列包含该文本的行，回车执行");
+        tableFilterField.setOnAction(event -> refreshTableRows());
+        VBox.setVgrow(tableView, Priority.ALWAYS);
+        tableTab.setContent(new VBox(5, tableFilterField, tableView));
+
+        // Schema 校验：Schema 编译后按内容缓存，违规列表点击后跳转到输入区对应位置
+        schemaArea.setPrefHeight(150);
+        schemaArea.setParagraphGraphicFactory(LineNumberFactory.get(schemaArea));
+        new IncrementalJsonHighlighter(schemaArea);
+        Button validateButton = new Button("校验");
+        validateButton.setOnAction(event -> validateSchema());
+        violationList.setPrefHeight(150);
+        violationList.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, violation) -> {
+            if (violation != null) {
+                revealOffset(violation.getOffset());
+            }
+        });
+        schemaTab.setContent(new VBox(5, schemaArea, validateButton, violationList));
+        summaryArea.setEditable(false);
+        summaryArea.setStyle("-fx-font-family: monospace;");
+        summaryTab.setContent(summaryArea);
+        outputTabPane.getTabs().addAll(textTab, treeTab, tableTab, schemaTab, summaryTab);
+        outputTabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        // 增量语法高亮，只重新分析被修改的段落，视口内优先着色
+        inputHighlighter = new IncrementalJsonHighlighter(inputTextArea);
+        inputLineIndex = LineOffsetIndex.attach(inputTextArea);
+        inputTextArea.plainTextChanges().subscribe(change -> {
+            treeStale = true;
+            tableStale = true;
+        });
+
+        // 实时语法校验：停止输入后在后台校验，从修改位置之前最近的检查点继续扫描
+        inputTextArea.plainTextChanges().subscribe(change -> dirtyFrom = Math.min(dirtyFrom, change.getPosition()));
+        inputTextArea.plainTextChanges()
+                .successionEnds(Duration.ofMillis(300))
+                .supplyTask(this::validateAsync)
+                .awaitLatest(inputTextArea.plainTextChanges())
+                .filterMap(t -> {
+                    if (t.isSuccess()) {
+                        return Optional.of(t.get());
+                    } else {
+                        if (!(t.getFailure() instanceof CancellationException)) {
+                            logger.error("语法校验失败", t.getFailure());
+                        }
+                        return Optional.empty();
+                    }
+                })
+                .subscribe(this::applyValidation);
+        new IncrementalJsonHighlighter(outputTextArea);
+        JsonBracketIndex.attach(outputTextArea);
+
         Button formatButton = new Button("格式化");
         formatButton.setOnAction(event -> formatContent());
 
+        Button treeButton = new Button("树视图");
+        treeButton.setOnAction(event -> showTree());
+
+        Button tableButton = new Button("表格视图");
+        tableButton.setOnAction(event -> showTable());
+
         Button generateJavaBeanButton = new Button("生成JavaBean");
         generateJavaBeanButton.setOnAction(event -> generateJavaBean());
+
+        Button ndjsonFileButton = new Button("处理NDJSON文件");
+        ndjsonFileButton.setOnAction(event -> formatNdjsonFile());
+
+        Button sizeButton = new Button("体积分析");
+        sizeButton.setOnAction(event -> analyzeSize());
+
+        Button sampleFileButton = new Button("从样本文件生成");
+        sampleFileButton.setOnAction(event -> generateJavaBeanFromFile());
+
+        MenuButton convertButton = new MenuButton("转换");
+        for (JsonConverter.Target target : JsonConverter.Target.values()) {
+            MenuItem contentItem = new MenuItem("输入内容转为 " + target);
+            contentItem.setOnAction(event -> convertContent(target));
+            convertButton.getItems().add(contentItem);
+        }
+        convertButton.getItems().add(new SeparatorMenuItem());
+        for (JsonConverter.Target target : JsonConverter.Target.values()) {
+            MenuItem fileItem = new MenuItem("JSON 文件转为 " + target);
+            fileItem.setOnAction(event -> convertFile(target));
+            convertButton.getItems().add(fileItem);
+        }
+
+        // 后台任务进度和取消按钮，仅在任务运行时显示
+        Button cancelButton = new Button("取消");
+        cancelButton.setOnAction(event -> cancelCurrentTask());
+        progressBox.getChildren().addAll(progressBar, cancelButton);
+        progressBox.setVisible(false);
+        // 导出任务单独显示进度，只能通过自己的取消按钮取消
+        Button cancelExportButton = new Button("取消导出");
+        cancelExportButton.setOnAction(event -> cancelExports());
+        exportProgressBox.getChildren().addAll(new Label("导出"), exportProgressBar, cancelExportButton);
+        exportProgressBox.setVisible(false);
+        MenuButton binaryButton = new MenuButton("导出二进制");
+        for (JsonBinaryFormat format : JsonBinaryFormat.values()) {
+            MenuItem item = new MenuItem("输入内容保存为 " + format);
+            item.setOnAction(event -> saveAsBinary(format));
+            binaryButton.getItems().add(item);
+        }
+
+        HBox buttonBox = new HBox(10, formatButton, treeButton, tableButton, sizeButton, convertButton, binaryButton, ndjsonFileButton, generateJavaBeanButton, sampleFileButton, progressBox, exportProgressBox, statsLabel);
+
         contentPane.getStylesheets().add(getResource("css/json-keywords.css").toExternalForm());
-        contentPane.getChildren().addAll(hBox, inputTextArea, outputLabel, outputTextArea, formatButton, generateJavaBeanButton);
+        contentPane.getChildren().addAll(hBox, queryBox, inputTextArea, outputLabel, outputTabPane, buttonBox);
     }
 
     private URL getResource(String image) {
         return getClass().getClassLoader().getResource(image);
     }
 
+    @Override
+    public void destroy() {
+        cancelCurrentTask();
+        cancelExports();
+        executor.shutdownNow();
+        validationExecutor.shutdownNow();
+        tableExecutor.shutdownNow();
+        exportExecutor.shutdownNow();
+    }
+
     @Override
     public Pane getContentPane() {
         return contentPane;
@@ -85,7 +389,13 @@ public class JsonFormatPlugin implements TextPlugin {
     @Override
     public void open(String filePath) {
         try {
-            String content = Files.readString(java.nio.file.Paths.get(filePath));
+            Path path = java.nio.file.Paths.get(filePath);
+            List<JsonBinaryFormat> binaryFormats = JsonBinaryFormat.detect(path);
+            if (!binaryFormats.isEmpty()) {
+                openBinary(path, binaryFormats);
+                return;
+            }
+            String content = Files.readString(path);
             setContent(content);
         } catch (IOException e) {
             ExceptionHandler.handleException(e, "文件打开失败", "无法打开文件", 
@@ -94,13 +404,22 @@ public class JsonFormatPlugin implements TextPlugin {
     }
 
     @Override
-    public void save(String filePath) {
+    public boolean save(String filePath) {
         try {
-            java.nio.file.Files.write(java.nio.file.Paths.get(filePath), 
+            Path path = java.nio.file.Paths.get(filePath);
+            if (binaryFormat != null && path.equals(binaryFile)) {
+                // 不能把 JSON 文本写入二进制文件，在导出线程编码输入区的内容后替换原文件，
+                // 结果显示在状态栏；返回时还没有写入
+                encodeInBackground(binaryFormat, path);
+                return false;
+            }
+            java.nio.file.Files.write(path, 
                     outputTextArea.getText().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            return true;
         } catch (IOException e) {
             ExceptionHandler.handleException(e, "文件保存失败", "无法保存文件", 
                     "无法保存文件: " + filePath + "\n错误: " + e.getMessage());
+            return false;
         }
     }
 
@@ -117,92 +436,906 @@ public class JsonFormatPlugin implements TextPlugin {
 
 
     private void formatContent() {
+        if (ndjsonCheckBox.isSelected()) {
+            formatNdjson();
+            return;
+        }
         String jsonText = inputTextArea.getText();
-        try {
-            String tempJson = jsonText.replaceAll("\",","\",\n");
-            tempJson = tempJson.replaceAll("\",\n\n","\",\n");
-            setContent(tempJson);
-            if(checkBox.isSelected()){
-                tempJson = jsonText.replace("\\\"", "\"");
-                tempJson = tempJson.replace("\\n", "");
-            }
-//            JsonElement jsonElement = gson.fromJson(tempJson, JsonElement.class);
-//            String formattedJson = gson.toJson(jsonElement);
-            String formattedJson = validateJson(tempJson);
-            outputTextArea.clear();
-            outputTextArea.replaceText(0,0,formattedJson);
-            // 设置样式高亮
-            StyleSpans<Collection<String>> styleSpans = JsonHighlighting.highlight(formattedJson);
-            outputTextArea.setStyleSpans(0, styleSpans);
-        } catch (Exception e) {
-            Alert alert = new Alert(Alert.AlertType.ERROR);
-            alert.setTitle("错误");
-            alert.setHeaderText("JSON格式化出错");
-            alert.setContentText(e.getMessage());
-            alert.showAndWait();
+        boolean keywordEscaping = checkBox.isSelected();
+        JsonFormatMode mode = modeComboBox.getValue();
+        // 输入经过去转义处理后，Jackson 报告的字符偏移与输入区不再对应，只能按行列定位
+        AtomicBoolean offsetsExact = new AtomicBoolean(true);
+        Task<FormatResult> task = new Task<FormatResult>() {
+            @Override
+            protected FormatResult call() throws Exception {
+                long total = jsonText.length();
+                StringWriter writer = new StringWriter(jsonText.length());
+                JsonUnescapingReader.Form form = keywordEscaping
+                        ? JsonUnescapingReader.detect(jsonText) : JsonUnescapingReader.Form.PLAIN;
+                if (form == JsonUnescapingReader.Form.PLAIN) {
+                    // 流式格式化，不构建 JsonNode 树；大的顶层数组按元素分块并行格式化
+                    JsonStreamFormatter.formatText(jsonText, writer, mode, keywordEscaping,
+                            read -> updateProgress(read, total), this::isCancelled);
+                } else {
+                    // 整段被转义过的 JSON 先去掉一层转义，内部字符串化的 JSON 在格式化时逐层展开
+                    Reader reader = new ProgressReader(new StringReader(jsonText), read -> {
+                        if (isCancelled()) {
+                            throw new CancellationException();
+                        }
+                        updateProgress(read, total);
+                    });
+                    offsetsExact.set(false);
+                    JsonStreamFormatter.format(new JsonUnescapingReader(reader, form), writer, mode, true);
+                }
+                String formattedJson = writer.toString();
+                return new FormatResult(formattedJson, ByteSizes.utf8Length(jsonText), ByteSizes.utf8Length(formattedJson));
+            }
+        };
+        statsLabel.setText("");
+        runInBackground(task, result -> {
+            outputTextArea.replaceText(result.text);
+            outputTabPane.getSelectionModel().selectFirst();
+            statsLabel.setText(result.describeSizes());
+        }, exception -> {
+            if (exception instanceof JsonParseException) {
+                JsonParseException e = (JsonParseException) exception;
+                int lineNumber = e.getLocation().getLineNr();
+                int columnNumber = e.getLocation().getColumnNr();
+                String errorMessage = e.getOriginalMessage();
+                markParseError(e.getLocation(), offsetsExact.get());
+                outputTextArea.replaceText(String.format("JSON格式错误，在第 %d 行，第 %d 列：%s", lineNumber, columnNumber, errorMessage));
+            } else {
+                outputTextArea.replaceText("其他错误：" + exception.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 按 NDJSON 逐行处理输入，格式错误的行原样保留，并在统计页显示错误和行大小分布
+     */
+    private void formatNdjson() {
+        String jsonText = inputTextArea.getText();
+        JsonFormatMode mode = modeComboBox.getValue();
+        Task<NdjsonResult> task = new Task<NdjsonResult>() {
+            @Override
+            protected NdjsonResult call() throws Exception {
+                long total = jsonText.length();
+                StringWriter writer = new StringWriter(jsonText.length());
+                NdjsonProcessor.Summary summary = NdjsonProcessor.process(new BufferedReader(new StringReader(jsonText)),
+                        writer, mode, read -> updateProgress(read, total), this::isCancelled);
+                return new NdjsonResult(writer.toString(), summary);
+            }
+        };
+        statsLabel.setText("");
+        inputHighlighter.clearError();
+        runInBackground(task, result -> {
+            outputTextArea.replaceText(result.text);
+            showNdjsonSummary(result.summary);
+        }, exception -> outputTextArea.replaceText("其他错误：" + exception.getMessage()));
+    }
+
+    /**
+     * 逐行处理 NDJSON 文件并写入另一个文件，文件内容不加载到编辑区
+     */
+    private void formatNdjsonFile() {
+        FileChooser openChooser = new FileChooser();
+        openChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("NDJSON / JSON Lines", "*.ndjson", "*.jsonl", "*.log", "*.json"),
+                new FileChooser.ExtensionFilter("所有文件", "*.*"));
+        File inputFile = openChooser.showOpenDialog(contentPane.getScene().getWindow());
+        if (inputFile == null) {
+            return;
+        }
+        FileChooser saveChooser = new FileChooser();
+        saveChooser.setInitialDirectory(inputFile.getParentFile());
+        saveChooser.setInitialFileName(inputFile.getName().replaceFirst("(\\.[^.]*)?$", ".formatted$1"));
+        File outputFile = saveChooser.showSaveDialog(contentPane.getScene().getWindow());
+        if (outputFile == null) {
+            return;
         }
+        JsonFormatMode mode = modeComboBox.getValue();
+        Task<NdjsonProcessor.Summary> task = new Task<NdjsonProcessor.Summary>() {
+            @Override
+            protected NdjsonProcessor.Summary call() throws Exception {
+                // 按字符估算进度，对于以 ASCII 为主的日志足够准确
+                long total = Math.max(1, inputFile.length());
+                try (BufferedReader reader = Files.newBufferedReader(inputFile.toPath(), StandardCharsets.UTF_8)) {
+                    return AtomicFiles.write(outputFile.toPath(), out -> {
+                        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                        NdjsonProcessor.Summary summary = NdjsonProcessor.process(reader, writer, mode,
+                                read -> updateProgress(Math.min(read, total), total), this::isCancelled);
+                        writer.flush();
+                        return summary;
+                    });
+                }
+            }
+        };
+        statsLabel.setText("");
+        runExport(task, this::showNdjsonSummary,
+                exception -> statsLabel.setText("处理失败：" + exception.getMessage()));
     }
 
-    private String validateJson(String jsonString) {
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(jsonString);
-            return jsonNode.toPrettyString();
-        } catch (com.fasterxml.jackson.core.JsonParseException e) {
-            int lineNumber = e.getLocation().getLineNr();
-            int columnNumber = e.getLocation().getColumnNr();
-            String errorMessage = e.getOriginalMessage();
-            computeHighlighting(inputTextArea,lineNumber,columnNumber);
-            return String.format("JSON格式错误，在第 %d 行，第 %d 列：%s", lineNumber, columnNumber, errorMessage);
-        } catch (Exception e) {
-            return "其他错误：" + e.getMessage();
-        }
-    }
-
-    private void computeHighlighting(CodeArea inputTextArea, int targetLine, int columnNumber) {
-        // 计算要突出显示的行和字符范围的样式
-        String inputText = inputTextArea.getText();
-        // 按行分割文本
-        String[] lines = inputText.split("\n");
-        String searchLine = lines[targetLine-1];
-        Integer addStringSize = 5;
-        String searchText = StringUtils.substring(searchLine,Math.max(columnNumber-addStringSize,0), columnNumber+addStringSize);
-        inputTextArea.clearStyle(0, inputTextArea.getLength());
-        int startPos = 0;
+    private void showNdjsonSummary(NdjsonProcessor.Summary summary) {
+        summaryArea.setText(summary.describe());
+        statsLabel.setText(String.format("共 %,d 行，错误 %,d 行", summary.getLineCount(), summary.getErrorCount()));
+        if (summary.getErrorCount() > 0) {
+            outputTabPane.getSelectionModel().select(summaryTab);
+        } else {
+            outputTabPane.getSelectionModel().selectFirst();
+        }
+    }
+
+    /**
+     * 统计输入中每个路径占用的字节数，在统计页显示最重的路径、属性名出现次数和最大深度
+     */
+    private void analyzeSize() {
+        String jsonText = inputTextArea.getText();
+        Task<JsonSizeAnalyzer.Report> task = new Task<JsonSizeAnalyzer.Report>() {
+            @Override
+            protected JsonSizeAnalyzer.Report call() throws Exception {
+                long total = ByteSizes.utf8Length(jsonText);
+                try {
+                    // 边读边编码为 UTF-8，不复制整段文本
+                    return JsonSizeAnalyzer.analyze(new CharSequenceInputStream(jsonText, StandardCharsets.UTF_8),
+                            read -> updateProgress(read, total), this::isCancelled);
+                } catch (JsonParseException e) {
+                    // 字节流的列号按字节计算，含中文等非 ASCII 字符的行上与字符列不一致，
+                    // 对文本重新解析得到字符位置
+                    throw locateInText(jsonText, e, this::isCancelled);
+                }
+            }
+        };
+        statsLabel.setText("");
+        runInBackground(task, report -> {
+            summaryArea.setText(report.describe());
+            outputTabPane.getSelectionModel().select(summaryTab);
+            statsLabel.setText(String.format("总大小 %s，最大深度 %d", ByteSizes.format(report.getTotalBytes()), report.getMaxDepth()));
+        }, exception -> {
+            if (exception instanceof JsonParseException) {
+                JsonParseException e = (JsonParseException) exception;
+                markParseError(e.getLocation(), true);
+                statsLabel.setText(String.format("JSON格式错误，在第 %d 行，第 %d 列：%s",
+                        e.getLocation().getLineNr(), e.getLocation().getColumnNr(), e.getOriginalMessage()));
+            } else {
+                statsLabel.setText("分析失败：" + exception.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 把输入内容转换为 CSV/YAML/XML 并写入文件
+     */
+    private void convertContent(JsonConverter.Target target) {
+        File outputFile = chooseConvertOutput(null, "converted", target);
+        if (outputFile == null) {
+            return;
+        }
+        String jsonText = inputTextArea.getText();
+        Task<JsonConverter.Result> task = new Task<JsonConverter.Result>() {
+            @Override
+            protected JsonConverter.Result call() throws Exception {
+                long total = Math.max(1, jsonText.length());
+                return JsonConverter.convert(JsonEngine.createParser(jsonText), outputFile.toPath(), target,
+                        read -> updateProgress(read, total), this::isCancelled);
+            }
+        };
+        runConversion(task, true);
+    }
+
+    /**
+     * 把 JSON 文件转换为 CSV/YAML/XML，文件内容不加载到编辑区
+     */
+    private void convertFile(JsonConverter.Target target) {
+        FileChooser openChooser = new FileChooser();
+        openChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("JSON / NDJSON", "*.json", "*.ndjson", "*.jsonl"),
+                new FileChooser.ExtensionFilter("所有文件", "*.*"));
+        File inputFile = openChooser.showOpenDialog(contentPane.getScene().getWindow());
+        if (inputFile == null) {
+            return;
+        }
+        File outputFile = chooseConvertOutput(inputFile.getParentFile(),
+                inputFile.getName().replaceFirst("\\.[^.]*$", ""), target);
+        if (outputFile == null) {
+            return;
+        }
+        Task<JsonConverter.Result> task = new Task<JsonConverter.Result>() {
+            @Override
+            protected JsonConverter.Result call() throws Exception {
+                long total = Math.max(1, inputFile.length());
+                return JsonConverter.convert(JsonEngine.getFactory().createParser(inputFile), outputFile.toPath(),
+                        target, read -> updateProgress(Math.min(read, total), total), this::isCancelled);
+            }
+        };
+        runConversion(task, false);
+    }
+
+    private File chooseConvertOutput(File directory, String baseName, JsonConverter.Target target) {
+        FileChooser saveChooser = new FileChooser();
+        if (directory != null) {
+            saveChooser.setInitialDirectory(directory);
+        }
+        saveChooser.setInitialFileName(baseName + "." + target.getExtension());
+        saveChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(target.toString(), "*." + target.getExtension()));
+        return saveChooser.showSaveDialog(contentPane.getScene().getWindow());
+    }
+
+    private void runConversion(Task<JsonConverter.Result> task, boolean fromInput) {
+        statsLabel.setText("");
+        runExport(task, result -> statsLabel.setText(result.describe()), exception -> {
+            if (exception instanceof JsonParseException) {
+                JsonParseException e = (JsonParseException) exception;
+                if (fromInput) {
+                    markParseError(e.getLocation(), true);
+                }
+                statsLabel.setText(String.format("JSON格式错误，在第 %d 行，第 %d 列：%s",
+                        e.getLocation().getLineNr(), e.getLocation().getColumnNr(), e.getOriginalMessage()));
+            } else {
+                statsLabel.setText("转换失败：" + exception.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 把 CBOR/Smile/MessagePack 文件流式解码为美化的 JSON 放入输入区
+     *
+     * @param candidates 按可能性排列的候选格式，依次尝试直到解码成功
+     */
+    private void openBinary(Path path, List<JsonBinaryFormat> candidates) {
+        Task<BinaryDocument> task = new Task<BinaryDocument>() {
+            @Override
+            protected BinaryDocument call() throws Exception {
+                long total = Math.max(1, Files.size(path));
+                IOException firstFailure = null;
+                for (JsonBinaryFormat format : candidates) {
+                    StringWriter writer = new StringWriter();
+                    try {
+                        format.decode(path, writer, JsonFormatMode.PRETTY, read -> updateProgress(read, total),
+                                this::isCancelled);
+                    } catch (IOException e) {
+                        if (firstFailure == null) {
+                            firstFailure = e;
+                        }
+                        continue;
+                    }
+                    String text = writer.toString();
+                    return new BinaryDocument(format, text, Files.size(path), minifiedBytes(text));
+                }
+                throw firstFailure;
+            }
+        };
+        statsLabel.setText("");
+        runInBackground(task, document -> {
+            binaryFile = path;
+            binaryFormat = document.format;
+            setContent(document.text);
+            statsLabel.setText(String.format("%s 解码完成：%s，压缩的 JSON 文本 %s，二进制为文本的 %.0f%%",
+                    document.format, ByteSizes.format(document.binaryBytes), ByteSizes.format(document.textBytes),
+                    document.binaryBytes * 100.0 / Math.max(1, document.textBytes)));
+        }, exception -> statsLabel.setText("无法按 " + candidates + " 解码文件：" + exception.getMessage()));
+    }
+
+    /**
+     * 把输入区的 JSON 编码为二进制格式写入文件
+     */
+    private void saveAsBinary(JsonBinaryFormat format) {
+        FileChooser saveChooser = new FileChooser();
+        saveChooser.setInitialFileName("data." + format.getExtension());
+        saveChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(format.toString(), "*." + format.getExtension()));
+        File outputFile = saveChooser.showSaveDialog(contentPane.getScene().getWindow());
+        if (outputFile == null) {
+            return;
+        }
+        encodeInBackground(format, outputFile.toPath());
+    }
+
+    /**
+     * 在导出线程把输入区的 JSON 编码为二进制格式，完成后在状态栏显示与文本的体积对比
+     */
+    private void encodeInBackground(JsonBinaryFormat format, Path output) {
+        String jsonText = inputTextArea.getText();
+        Task<long[]> task = new Task<long[]>() {
+            @Override
+            protected long[] call() throws Exception {
+                long binaryBytes = format.encode(JsonEngine.createParser(jsonText), output, this::isCancelled);
+                return new long[]{binaryBytes, minifiedBytes(jsonText)};
+            }
+        };
+        statsLabel.setText("");
+        runExport(task, sizes -> statsLabel.setText(String.format("已保存为 %s：%s，压缩的 JSON 文本 %s，二进制为文本的 %.0f%%",
+                format, ByteSizes.format(sizes[0]), ByteSizes.format(sizes[1]), sizes[0] * 100.0 / Math.max(1, sizes[1]))),
+                exception -> {
+                    if (exception instanceof JsonParseException) {
+                        JsonParseException e = (JsonParseException) exception;
+                        markParseError(e.getLocation(), true);
+                        statsLabel.setText(String.format("JSON格式错误，在第 %d 行，第 %d 列：%s",
+                                e.getLocation().getLineNr(), e.getLocation().getColumnNr(), e.getOriginalMessage()));
+                    } else {
+                        statsLabel.setText("保存失败：" + exception.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 压缩输出后的 UTF-8 字节数，作为与二进制格式比较体积的基准
+     */
+    private static long minifiedBytes(String jsonText) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        JsonStreamFormatter.format(new StringReader(jsonText), new OutputStreamWriter(counter, StandardCharsets.UTF_8),
+                JsonFormatMode.MINIFY);
+        return counter.getByteCount();
+    }
+
+    /**
+     * 为输入建立结构索引并在树视图中展示
+     */
+    private void showTree() {
+        String jsonText = inputTextArea.getText();
+        Task<JsonStructureIndex> task = new Task<JsonStructureIndex>() {
+            @Override
+            protected JsonStructureIndex call() {
+                return JsonStructureIndex.build(jsonText);
+            }
+        };
+        statsLabel.setText("");
+        runInBackground(task, index -> {
+            treeView.setRoot(LazyJsonTreeItem.createRoot(index));
+            treeStale = false;
+            outputTabPane.getSelectionModel().select(treeTab);
+            statsLabel.setText(String.format("共 %,d 个对象/数组", index.size()));
+        }, exception -> {
+            treeView.setRoot(null);
+            outputTextArea.replaceText("其他错误：" + exception.getMessage());
+        });
+    }
+
+    /**
+     * 把顶层的对象数组显示为表格，行在滚动到时才解析
+     */
+    private void showTable() {
+        String jsonText = inputTextArea.getText();
+        Task<JsonTable> task = new Task<JsonTable>() {
+            @Override
+            protected JsonTable call() {
+                return JsonTable.build(JsonStructureIndex.build(jsonText), this::isCancelled);
+            }
+        };
+        statsLabel.setText("");
+        runInBackground(task, result -> {
+            table = result;
+            tableStale = false;
+            // 先重置筛选和排序条件，清空排序列时触发的排序请求与之相同，不会按旧的筛选文本计算
+            tableFilterField.clear();
+            appliedFilter = "";
+            appliedSortKeys = List.of();
+            tableView.getSortOrder().clear();
+            tableView.getColumns().clear();
+            List<String> names = result.getColumns();
+            for (int i = 0; i < names.size(); i++) {
+                int column = i;
+                TableColumn<Integer, String> tableColumn = new TableColumn<>(names.get(i));
+                tableColumn.setUserData(column);
+                tableColumn.setPrefWidth(120);
+                tableColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(result.getCell(cell.getValue(), column)));
+                tableView.getColumns().add(tableColumn);
+            }
+            showTableRows(result.allRows(), "", List.of());
+            outputTabPane.getSelectionModel().select(tableTab);
+        }, exception -> {
+            table = null;
+            tableView.getColumns().clear();
+            tableView.setItems(FXCollections.emptyObservableList());
+            statsLabel.setText("无法显示表格：" + exception.getMessage());
+        });
+    }
+
+    /**
+     * 按当前的筛选文本和排序列在后台重新计算行号排列
+     */
+    private void refreshTableRows() {
+        if (table == null) {
+            return;
+        }
+        String filter = tableFilterField.getText();
+        List<JsonTable.SortKey> sortKeys = new ArrayList<>();
+        for (TableColumn<Integer, ?> column : tableView.getSortOrder()) {
+            sortKeys.add(new JsonTable.SortKey((Integer) column.getUserData(),
+                    column.getSortType() == TableColumn.SortType.ASCENDING));
+        }
+        if (filter.equals(appliedFilter) && sortKeys.equals(appliedSortKeys)) {
+            return;
+        }
+        JsonTable current = table;
+        Task<int[]> task = new Task<int[]>() {
+            @Override
+            protected int[] call() {
+                return current.view(filter, sortKeys, this::isCancelled);
+            }
+        };
+        if (tableViewTask != null) {
+            tableViewTask.cancel();
+        }
+        tableViewTask = task;
+        task.setOnSucceeded(event -> {
+            if (tableViewTask == task) {
+                tableViewTask = null;
+                if (table == current) {
+                    showTableRows(task.getValue(), filter, sortKeys);
+                }
+            }
+        });
+        task.setOnFailed(event -> {
+            if (tableViewTask == task) {
+                tableViewTask = null;
+                restoreTableView();
+                statsLabel.setText("排序/筛选失败：" + task.getException().getMessage());
+            }
+        });
+        tableExecutor.execute(task);
+    }
+
+    /**
+     * 排序/筛选失败时把列头的排序标记和筛选文本恢复为当前显示的行对应的条件
+     */
+    private void restoreTableView() {
+        tableFilterField.setText(appliedFilter);
+        List<TableColumn<Integer, ?>> sortOrder = new ArrayList<>();
+        for (JsonTable.SortKey key : appliedSortKeys) {
+            for (TableColumn<Integer, ?> column : tableView.getColumns()) {
+                if (column.getUserData().equals(key.getColumn())) {
+                    column.setSortType(key.isAscending() ? TableColumn.SortType.ASCENDING : TableColumn.SortType.DESCENDING);
+                    sortOrder.add(column);
+                }
+            }
+        }
+        // 条件与已应用的相同，替换排序列时触发的排序请求不会再次计算
+        tableView.getSortOrder().setAll(sortOrder);
+    }
+
+    private void showTableRows(int[] rows, String filter, List<JsonTable.SortKey> sortKeys) {
+        // 先记录条件，替换数据源时触发的排序请求与之相同，不会再次计算
+        appliedFilter = filter;
+        appliedSortKeys = sortKeys;
+        tableView.setItems(JsonTable.asList(rows));
+        statsLabel.setText(String.format("显示 %,d / %,d 行，%d 列", rows.length, table.getRowCount(),
+                table.getColumns().size()));
+    }
+
+    /**
+     * 双击树节点：加载下一页，或在输入区选中对应的值
+     */
+    private void onTreeItemActivated(TreeItem<LazyJsonTreeItem.Entry> item) {
+        if (item == null || LazyJsonTreeItem.loadMore(item) || treeStale) {
+            return;
+        }
+        LazyJsonTreeItem.Entry entry = item.getValue();
+        inputTextArea.selectRange(entry.getValueStart(), entry.getValueEnd());
+        inputTextArea.requestFollowCaret();
+    }
+
+    /**
+     * 按 Schema 校验输入，Schema 内容未变时复用已编译的校验器
+     */
+    private void validateSchema() {
+        String schemaText = schemaArea.getText();
+        if (StringUtils.isBlank(schemaText)) {
+            statsLabel.setText("请先输入 JSON Schema");
+            return;
+        }
+        String jsonText = inputTextArea.getText();
+        Task<JsonSchemaValidator.Result> task = new Task<JsonSchemaValidator.Result>() {
+            @Override
+            protected JsonSchemaValidator.Result call() throws Exception {
+                JsonSchemaValidator validator;
+                try {
+                    validator = JsonSchemaValidator.compile(schemaText);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException("Schema 不是合法的 JSON：" + e.getOriginalMessage(), e);
+                }
+                return validator.validate(jsonText);
+            }
+        };
+        statsLabel.setText("");
+        inputHighlighter.clearError();
+        runInBackground(task, result -> {
+            violationList.getItems().setAll(result.getViolations());
+            statsLabel.setText(result.getTotalCount() == 0 ? "校验通过"
+                    : String.format("共 %,d 处违规", result.getTotalCount()));
+        }, exception -> {
+            violationList.getItems().clear();
+            if (exception instanceof JsonParseException) {
+                JsonParseException e = (JsonParseException) exception;
+                markParseError(e.getLocation(), true);
+                statsLabel.setText(String.format("JSON格式错误，在第 %d 行，第 %d 列：%s",
+                        e.getLocation().getLineNr(), e.getLocation().getColumnNr(), e.getOriginalMessage()));
+            } else {
+                statsLabel.setText("校验失败：" + exception.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 将输入区的光标移动到 offset 并标记从该处开始的值
+     */
+    private void revealOffset(int offset) {
+        int length = inputTextArea.getLength();
+        if (offset < 0 || offset > length) {
+            return;
+        }
+        String window = inputTextArea.getText(offset, Math.min(length, offset + ERROR_CONTEXT));
+        int end = 0;
+        if (!window.isEmpty() && window.charAt(0) == '"') {
+            end = 1;
+            while (end < window.length() && window.charAt(end) != '"') {
+                end += window.charAt(end) == '\\' ? 2 : 1;
+            }
+            end = Math.min(end + 1, window.length());
+        } else {
+            while (end < window.length() && ",}] \t\r\n".indexOf(window.charAt(end)) < 0) {
+                end++;
+            }
+        }
+        inputHighlighter.markError(offset, offset + Math.max(end, 1));
+        inputTextArea.moveTo(offset);
+        inputTextArea.requestFollowCaret();
+    }
+
+    /**
+     * 对输入执行 JSONPath 查询
+     *
+     * <p>先建立结构索引，求值时跳过不相关的子树，只对命中的值做格式化；
+     * 结果以 JSON 数组的形式分块追加到输出区。
+     */
+    private void queryJsonPath() {
+        String expression = queryField.getText();
+        if (StringUtils.isBlank(expression)) {
+            return;
+        }
+        String jsonText = inputTextArea.getText();
+        outputTextArea.clear();
+        outputTabPane.getSelectionModel().selectFirst();
+        statsLabel.setText("");
+        Task<Integer> task = new Task<Integer>() {
+            @Override
+            protected Integer call() throws Exception {
+                JsonPath path = JsonPath.compile(expression);
+                JsonStructureIndex index = JsonStructureIndex.build(jsonText);
+                StringBuilder pending = new StringBuilder("[\n");
+                int[] count = {0};
+                path.evaluate(index, (start, end) -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    if (count[0]++ > 0) {
+                        pending.append(",\n");
+                    }
+                    StringWriter writer = new StringWriter(end - start);
+                    try {
+                        JsonStreamFormatter.format(new StringReader(jsonText.substring(start, end)), writer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    pending.append(writer);
+                    updateProgress(start, jsonText.length());
+                    if (pending.length() >= STREAM_CHUNK) {
+                        publish(pending);
+                    }
+                });
+                pending.append("\n]");
+                publish(pending);
+                return count[0];
+            }
+
+            private void publish(StringBuilder pending) {
+                String chunk = pending.toString();
+                pending.setLength(0);
+                Platform.runLater(() -> {
+                    if (!isCancelled()) {
+                        outputTextArea.appendText(chunk);
+                    }
+                });
+            }
+        };
+        runInBackground(task, count -> statsLabel.setText("匹配 " + count + " 项"), exception -> {
+            Throwable cause = exception instanceof UncheckedIOException ? exception.getCause() : exception;
+            outputTextArea.replaceText("查询失败：" + cause.getMessage());
+        });
+    }
+
+    /**
+     * 在后台线程执行任务，结果在 JavaFX 应用线程上一次性应用
+     *
+     * <p>提交新任务时会取消尚未完成的旧任务，已过期任务的结果会被丢弃。
+     *
+     * @param task 要执行的任务
+     * @param onSuccess 任务成功后的回调
+     * @param onFailure 任务失败后的回调
+     */
+    private <T> void runInBackground(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        cancelCurrentTask();
+        currentTask = task;
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressBox.visibleProperty().bind(task.runningProperty());
+        task.setOnSucceeded(event -> {
+            if (currentTask == task) {
+                currentTask = null;
+                onSuccess.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(event -> {
+            if (currentTask == task) {
+                currentTask = null;
+                onFailure.accept(task.getException());
+            }
+        });
+        executor.execute(task);
+    }
+
+    /**
+     * 在导出线程执行写入文件的任务
+     *
+     * <p>导出任务按提交顺序依次执行，不受 {@link #runInBackground} 的 latest-wins 取消影响，
+     * 结果总会回调；只有“取消导出”按钮和插件销毁会取消导出。
+     *
+     * @param task 要执行的任务
+     * @param onSuccess 任务成功后的回调
+     * @param onFailure 任务失败后的回调
+     */
+    private <T> void runExport(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        exportTasks.add(task);
+        if (exportTasks.size() == 1) {
+            exportProgressBar.progressProperty().bind(task.progressProperty());
+            exportProgressBox.setVisible(true);
+        }
+        task.setOnSucceeded(event -> {
+            exportFinished(task);
+            onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(event -> {
+            exportFinished(task);
+            onFailure.accept(task.getException());
+        });
+        task.setOnCancelled(event -> {
+            exportFinished(task);
+            statsLabel.setText("导出已取消");
+        });
+        exportExecutor.execute(task);
+    }
+
+    private void exportFinished(Task<?> task) {
+        exportTasks.remove(task);
+        if (exportTasks.isEmpty()) {
+            exportProgressBar.progressProperty().unbind();
+            exportProgressBox.setVisible(false);
+        } else {
+            // 显示下一个导出任务的进度
+            exportProgressBar.progressProperty().bind(exportTasks.get(0).progressProperty());
+        }
+    }
+
+    private void cancelExports() {
+        for (Task<?> task : new ArrayList<>(exportTasks)) {
+            task.cancel();
+        }
+    }
+
+    private Task<ValidationResult> validateAsync() {
         String text = inputTextArea.getText();
-        int foundPos = text.indexOf(searchText, startPos);
-        if (foundPos == -1) {
+        int changedFrom = dirtyFrom;
+        dirtyFrom = Integer.MAX_VALUE;
+        int generation = validationGeneration.incrementAndGet();
+        // 被转义过的 JSON 要在格式化时才去转义，直接校验只会报错
+        boolean escaped = checkBox.isSelected() && JsonUnescapingReader.detect(text) != JsonUnescapingReader.Form.PLAIN;
+        // 失效的检查点由单独的任务丢弃：校验任务在开始前被取消时不会执行 call()，
+        // 这一步却不能跳过，否则后续校验会从过期的检查点续扫
+        validationExecutor.execute(() -> syntaxChecker.invalidateFrom(changedFrom));
+        Task<ValidationResult> task = new Task<ValidationResult>() {
+            @Override
+            protected ValidationResult call() throws Exception {
+                if (escaped) {
+                    return new ValidationResult(null, true);
+                }
+                JsonSyntaxChecker.SyntaxError error = syntaxChecker.check(text,
+                        () -> generation != validationGeneration.get());
+                return new ValidationResult(error, false);
+            }
+        };
+        validationExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * 显示实时校验结果，错误标记只重新着色涉及的段落
+     */
+    private void applyValidation(ValidationResult result) {
+        JsonSyntaxChecker.SyntaxError error = result.error;
+        if (error == null) {
+            inputHighlighter.clearError();
+            validationLabel.setText(result.escaped ? "转义的 JSON" : inputTextArea.getLength() == 0 ? "" : "语法正确");
             return;
         }
-        inputTextArea.setStyleClass(foundPos, foundPos + searchText.length(), "red");
-        startPos = foundPos + 1;
-        inputTextArea.moveTo(startPos);
-//        inputTextArea.requestFocus();
+        inputHighlighter.markError(error.getStart(), error.getEnd());
+        validationLabel.setText(String.format("第 %d 行：%s", inputLineIndex.lineOfOffset(error.getStart()) + 1, error.getMessage()));
+    }
+
+    private void cancelCurrentTask() {
+        if (currentTask != null) {
+            currentTask.cancel();
+            currentTask = null;
+        }
+    }
+
+    /**
+     * 对文本重新解析，返回带字符偏移的语法错误；文本解析没有出错时返回原来的异常
+     */
+    private static JsonParseException locateInText(String jsonText, JsonParseException byteError,
+                                                   BooleanSupplier cancelled) throws IOException {
+        try (JsonParser parser = JsonEngine.createParser(jsonText)) {
+            long tokens = 0;
+            while (parser.nextToken() != null) {
+                if (++tokens % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+            }
+        } catch (JsonParseException e) {
+            return e;
+        }
+        return byteError;
+    }
+
+    /**
+     * 在输入区标记解析错误并将光标移动到错误位置
+     *
+     * <p>通过行首偏移索引直接换算位置，不复制或切分全文。
+     *
+     * @param location Jackson 报告的错误位置，指向出错字符之后
+     * @param offsetsExact 字符偏移是否与输入区文本一一对应
+     */
+    private void markParseError(JsonLocation location, boolean offsetsExact) {
+        int length = inputTextArea.getLength();
+        int offset = offsetsExact && location.getCharOffset() >= 0
+                ? (int) Math.min(location.getCharOffset(), length)
+                : inputLineIndex.toOffset(location.getLineNr(), location.getColumnNr());
+        // Jackson 的位置指向出错字符之后，回退一个字符
+        int errorPos = Math.max(0, offset - 1);
+        int line = inputLineIndex.lineOfOffset(errorPos);
+        int windowStart = Math.max(inputLineIndex.getLineStart(line), errorPos - ERROR_CONTEXT);
+        int windowEnd = Math.min(inputLineIndex.getLineEnd(line), errorPos + ERROR_CONTEXT);
+        String window = inputTextArea.getText(windowStart, windowEnd);
+        // 扩展到出错的整个单词，例如 tru、x1
+        int start = errorPos - windowStart;
+        int end = start;
+        while (start > 0 && Character.isLetterOrDigit(window.charAt(start - 1))
+                && start < window.length() && Character.isLetterOrDigit(window.charAt(start))) {
+            start--;
+        }
+        while (end < window.length() && Character.isLetterOrDigit(window.charAt(end))) {
+            end++;
+        }
+        if (end == start && end < window.length()) {
+            end++;
+        }
+        if (end == start && start > 0) {
+            start--;
+        }
+        inputHighlighter.markError(windowStart + start, windowStart + end);
+        inputTextArea.moveTo(windowStart + start);
         // 使光标出现在指定位置
         inputTextArea.requestFollowCaret();
     }
 
     private void generateJavaBean() {
         String jsonText = inputTextArea.getText();
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(jsonText);
-            if (rootNode.isObject()) {
-                String javaBeanCode = JsonToBean.generateJavaBeanCode((ObjectNode) rootNode);
-                outputTextArea.replaceText(0,0,javaBeanCode);
-            } else {
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setTitle("错误");
-                alert.setHeaderText("生成JavaBean失败");
-                alert.setContentText("输入的JSON数据必须是一个对象。");
-                alert.showAndWait();
+        Task<String> task = new Task<String>() {
+            @Override
+            protected String call() throws Exception {
+                // 合并所有元素和样本（NDJSON 的每一行）推断类型
+                return JsonToBean.generateJavaBeanCode(JsonTypeInference.inferText(jsonText));
             }
-        } catch (IOException e) {
+        };
+        showGeneratedJavaBean(task);
+    }
+
+    /**
+     * 从样本文件（JSON 或 NDJSON）推断类型并生成 JavaBean，文件不会加载到编辑区
+     */
+    private void generateJavaBeanFromFile() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("JSON / NDJSON", "*.json", "*.ndjson", "*.jsonl"),
+                new FileChooser.ExtensionFilter("所有文件", "*.*"));
+        File sampleFile = fileChooser.showOpenDialog(contentPane.getScene().getWindow());
+        if (sampleFile == null) {
+            return;
+        }
+        Task<String> task = new Task<String>() {
+            @Override
+            protected String call() throws Exception {
+                JsonTypeInference.JsonType type = JsonTypeInference.inferFile(sampleFile.toPath(),
+                        fraction -> updateProgress(fraction, 1), this::isCancelled);
+                return JsonToBean.generateJavaBeanCode(type);
+            }
+        };
+        showGeneratedJavaBean(task);
+    }
+
+    private void showGeneratedJavaBean(Task<String> task) {
+        runInBackground(task, code -> {
+            outputTextArea.replaceText(code);
+            outputTabPane.getSelectionModel().selectFirst();
+        }, exception -> {
             Alert alert = new Alert(Alert.AlertType.ERROR);
             alert.setTitle("错误");
-            alert.setHeaderText("生成JavaBean出错");
-            alert.setContentText(e.getMessage());
+            alert.setHeaderText(exception instanceof IllegalArgumentException ? "生成JavaBean失败" : "生成JavaBean出错");
+            alert.setContentText(exception.getMessage());
             alert.showAndWait();
+        });
+    }
+
+    /**
+     * 实时语法校验结果
+     */
+    private static class ValidationResult {
+        private final JsonSyntaxChecker.SyntaxError error;
+        // 输入是被转义过的 JSON，未校验
+        private final boolean escaped;
+
+        ValidationResult(JsonSyntaxChecker.SyntaxError error, boolean escaped) {
+            this.error = error;
+            this.escaped = escaped;
+        }
+    }
+
+    /**
+     * NDJSON 处理结果
+     */
+    private static class NdjsonResult {
+        private final String text;
+        private final NdjsonProcessor.Summary summary;
+
+        NdjsonResult(String text, NdjsonProcessor.Summary summary) {
+            this.text = text;
+            this.summary = summary;
+        }
+    }
+
+    /**
+     * 二进制文件解码得到的文本及两种表示的字节数
+     */
+    private static class BinaryDocument {
+        private final JsonBinaryFormat format;
+        private final String text;
+        private final long binaryBytes;
+        private final long textBytes;
+
+        BinaryDocument(JsonBinaryFormat format, String text, long binaryBytes, long textBytes) {
+            this.format = format;
+            this.text = text;
+            this.binaryBytes = binaryBytes;
+            this.textBytes = textBytes;
+        }
+    }
+
+    /**
+     * 格式化结果及输入输出的字节数
+     */
+    private static class FormatResult {
+        private final String text;
+        private final long inputBytes;
+        private final long outputBytes;
+
+        FormatResult(String text, long inputBytes, long outputBytes) {
+            this.text = text;
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+        }
+
+        String describeSizes() {
+            double saved = inputBytes == 0 ? 0 : (inputBytes - outputBytes) * 100.0 / inputBytes;
+            return String.format("输入 %s → 输出 %s（%s %.1f%%）", ByteSizes.format(inputBytes), ByteSizes.format(outputBytes),
+                    saved >= 0 ? "减少" : "增加", Math.abs(saved));
         }
     }
-}
\ No newline at end of file
+}
@@ -93,8 +93,9 @@ public class MarkdownEditorPlugin implements TextPlugin {
     }
 
     @Override
-    public void save(String filePath) {
+    public boolean save(String filePath) {
         // 这里可以添加将输入框中的 Markdown 内容保存到文件的逻辑，暂未实现
+        return false;
     }
 
     @Override
@@ -0,0 +1,105 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 通过临时文件替换目标文件
+ *
+ * <p>内容先写入目标文件所在目录下的临时文件，全部写完后再重命名覆盖目标文件。
+ * 写入失败或被取消时删除临时文件，目标文件保持原样，不会留下只写了一半的文件。
+ *
+ * <p>目标文件已存在时，替换前把它的权限、所有者和所属组复制到临时文件上（POSIX 文件系统），
+ * 替换后的文件与原来的一样可以被其他用户读取；目标是符号链接时替换链接指向的文件。
+ *
+ * @author daicy
+ */
+public final class AtomicFiles {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 向输出流写入内容
+     *
+     * @param <T> 写入过程产生的结果
+     */
+    public interface Content<T> {
+        T writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * 写入字节数组
+     *
+     * @param target 目标文件
+     * @param bytes 文件内容
+     * @throws IOException 写入或重命名失败
+     */
+    public static void write(Path target, byte[] bytes) throws IOException {
+        write(target, out -> {
+            out.write(bytes);
+            return null;
+        });
+    }
+
+    /**
+     * 以流的方式写入
+     *
+     * @param target 目标文件
+     * @param content 写入内容，抛出的异常原样传出，此时目标文件不变
+     * @return 写入内容返回的结果
+     * @throws IOException 写入或重命名失败
+     */
+    public static <T> T write(Path target, Content<T> content) throws IOException {
+        Path file = Files.exists(target) ? target.toRealPath() : target.toAbsolutePath();
+        // 不用 createTempFile：它创建的文件权限固定为 600，新文件应按 umask 取默认权限
+        Path temp = file.resolveSibling("." + file.getFileName() + "."
+                + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+        try {
+            T result;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE), BUFFER_SIZE)) {
+                result = content.writeTo(out);
+            }
+            copyAttributes(file, temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return result;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 把已存在的目标文件的权限、所有者和所属组复制到临时文件上
+     */
+    private static void copyAttributes(Path target, Path temp) throws IOException {
+        PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (targetView == null || !Files.exists(target)) {
+            return;
+        }
+        PosixFileAttributes attributes = targetView.readAttributes();
+        PosixFileAttributeView tempView = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+        tempView.setPermissions(attributes.permissions());
+        try {
+            tempView.setGroup(attributes.group());
+            tempView.setOwner(attributes.owner());
+        } catch (IOException e) {
+            // 普通用户不能把文件交给其他用户或不属于自己的组，此时保留当前用户为所有者
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.daicy.devtools.plugin.util;
+
+/**
+ * 字节数计算与显示工具类
+ *
+ * @author daicy
+ */
+public class ByteSizes {
+
+    private static final String[] UNITS = {"B", "KB", "MB", "GB", "TB"};
+
+    /**
+     * 计算文本按 UTF-8 编码后的字节数，不实际编码
+     *
+     * @param text 文本
+     * @return UTF-8 字节数
+     */
+    public static long utf8Length(CharSequence text) {
+        long bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 格式化为便于阅读的大小，例如 1.5 MB
+     *
+     * @param bytes 字节数
+     * @return 格式化后的字符串
+     */
+    public static String format(long bytes) {
+        double value = bytes;
+        int unit = 0;
+        while (value >= 1024 && unit < UNITS.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return unit == 0 ? bytes + " " + UNITS[0] : String.format("%.1f %s", value, UNITS[unit]);
+    }
+}
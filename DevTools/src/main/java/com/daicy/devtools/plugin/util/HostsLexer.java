@@ -0,0 +1,215 @@
+package com.daicy.devtools.plugin.util;
+
+/**
+ * hosts 文件词法分析
+ *
+ * <p>单遍扫描一行文本，不使用正则表达式，也不为词法单元分配对象。一行的格式为
+ * <code>地址 主机名 [别名...] [# 注释]</code>：第一个字段必须是 IPv4 或 IPv6 地址，
+ * 之后的字段必须是合法的主机名，不符合的字段作为无效词法单元输出。
+ *
+ * @author daicy
+ */
+public final class HostsLexer {
+
+    public static final int ADDRESS = 0;
+    public static final int HOSTNAME = 1;
+    public static final int COMMENT = 2;
+    public static final int INVALID = 3;
+
+    /**
+     * 词法单元回调
+     */
+    public interface TokenSink {
+        /**
+         * @param start 起始偏移
+         * @param end 结束偏移（不含）
+         * @param type {@link #ADDRESS}、{@link #HOSTNAME}、{@link #COMMENT} 或 {@link #INVALID}
+         */
+        void token(int start, int end, int type);
+    }
+
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MAX_HOSTNAME_LENGTH = 253;
+
+    private HostsLexer() {
+    }
+
+    /**
+     * 对一行文本做词法分析
+     *
+     * @param line 一行文本，不含换行符
+     * @param sink 词法单元回调，按偏移升序调用
+     */
+    public static void lex(CharSequence line, TokenSink sink) {
+        int length = line.length();
+        int i = 0;
+        boolean first = true;
+        while (true) {
+            while (i < length && isBlank(line.charAt(i))) {
+                i++;
+            }
+            if (i >= length) {
+                return;
+            }
+            if (line.charAt(i) == '#') {
+                sink.token(i, length, COMMENT);
+                return;
+            }
+            int start = i;
+            while (i < length && !isBlank(line.charAt(i)) && line.charAt(i) != '#') {
+                i++;
+            }
+            boolean valid = first ? isAddress(line, start, i) : isHostname(line, start, i);
+            sink.token(start, i, valid ? (first ? ADDRESS : HOSTNAME) : INVALID);
+            first = false;
+        }
+    }
+
+    /**
+     * 判断 [start, end) 是否为 IPv4 或 IPv6 地址
+     */
+    public static boolean isAddress(CharSequence text, int start, int end) {
+        return isIpv4(text, start, end) || isIpv6(text, start, end);
+    }
+
+    /**
+     * 判断 [start, end) 是否为点分十进制的 IPv4 地址，每段 0-255 且没有前导零
+     */
+    public static boolean isIpv4(CharSequence text, int start, int end) {
+        int octets = 0;
+        int i = start;
+        while (true) {
+            int octetStart = i;
+            int value = 0;
+            while (i < end && i - octetStart < 3 && isDigit(text.charAt(i))) {
+                value = value * 10 + (text.charAt(i) - '0');
+                i++;
+            }
+            int digits = i - octetStart;
+            if (digits == 0 || value > 255 || (digits > 1 && text.charAt(octetStart) == '0')) {
+                return false;
+            }
+            octets++;
+            if (i == end) {
+                return octets == 4;
+            }
+            if (octets == 4 || text.charAt(i) != '.') {
+                return false;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * 判断 [start, end) 是否为 IPv6 地址
+     *
+     * <p>支持 <code>::</code> 缩写、末尾内嵌的 IPv4 地址（如 <code>::ffff:192.0.2.1</code>）
+     * 和 <code>%</code> 开头的区域标识（如 <code>fe80::1%lo0</code>）。
+     */
+    public static boolean isIpv6(CharSequence text, int start, int end) {
+        for (int k = start; k < end; k++) {
+            if (text.charAt(k) == '%') {
+                // 区域标识不能为空
+                if (k == end - 1) {
+                    return false;
+                }
+                end = k;
+                break;
+            }
+        }
+        if (end - start < 2) {
+            return false;
+        }
+        int groups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (text.charAt(i) == ':') {
+            // 只能以 :: 开头
+            if (text.charAt(i + 1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i += 2;
+            if (i == end) {
+                return true;
+            }
+        }
+        while (true) {
+            int groupStart = i;
+            while (i < end && i - groupStart < 4 && Character.digit(text.charAt(i), 16) >= 0) {
+                i++;
+            }
+            if (i < end && text.charAt(i) == '.') {
+                // 末尾内嵌的 IPv4 地址占两组
+                if (!isIpv4(text, groupStart, end)) {
+                    return false;
+                }
+                groups += 2;
+                break;
+            }
+            if (i == groupStart) {
+                return false;
+            }
+            groups++;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != ':' || groups >= 8) {
+                return false;
+            }
+            i++;
+            if (i < end && text.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+                if (i == end) {
+                    break;
+                }
+            } else if (i == end) {
+                // 不能以单个冒号结尾
+                return false;
+            }
+        }
+        return compressed ? groups < 8 : groups == 8;
+    }
+
+    /**
+     * 判断 [start, end) 是否为合法的主机名
+     *
+     * <p>以点分隔的标签由字母、数字、连字符和下划线组成，每个标签 1-63 个字符且不以连字符开头或结尾，
+     * 全长不超过 253 个字符，允许以点结尾表示完全限定域名。
+     */
+    public static boolean isHostname(CharSequence text, int start, int end) {
+        if (end > start && text.charAt(end - 1) == '.') {
+            end--;
+        }
+        if (end <= start || end - start > MAX_HOSTNAME_LENGTH) {
+            return false;
+        }
+        int labelStart = start;
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? text.charAt(i) : '.';
+            if (c == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH
+                        || text.charAt(labelStart) == '-' || text.charAt(i - 1) == '-') {
+                    return false;
+                }
+                labelStart = i + 1;
+            } else if (!isDigit(c) && !(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && c != '-' && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,461 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * hosts 文件的结构化模型
+ *
+ * <p>每行解析为一条映射（地址 + 主机名），以 <code>#</code> 注释掉的映射行记为已禁用。
+ * 主机名（不区分大小写）到所在行的哈希索引支持 O(1) 查找；同一主机名出现在多个启用的行上时，
+ * 地址相同记为重复，同一地址族中地址不同记为冲突（同时映射 IPv4 和 IPv6 地址是正常的）。
+ *
+ * <p>行通过 {@link #replaceLines(int, int, List)} 增量更新，只重新解析被修改的行，
+ * 并只重新检查涉及的主机名。索引中记录的是映射编号而不是行号，插入或删除行时
+ * 只需移动行号到映射编号的数组，无需更新索引。
+ *
+ * <p>实例不是线程安全的。
+ *
+ * @author daicy
+ */
+public class HostsModel {
+
+    /**
+     * 问题类型
+     */
+    public enum IssueType {
+        DUPLICATE("重复"),
+        CONFLICT("冲突");
+
+        private final String label;
+
+        IssueType(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * 一个主机名上的重复或冲突映射
+     */
+    public static final class Issue {
+        private final String hostname;
+        private final IssueType type;
+        private final int[] lines;
+        private final Set<String> addresses;
+
+        Issue(String hostname, IssueType type, int[] lines, Set<String> addresses) {
+            this.hostname = hostname;
+            this.type = type;
+            this.lines = lines;
+            this.addresses = addresses;
+        }
+
+        public String getHostname() {
+            return hostname;
+        }
+
+        public IssueType getType() {
+            return type;
+        }
+
+        /**
+         * @return 涉及的行号（从 0 开始），升序
+         */
+        public int[] getLines() {
+            return lines;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(type).append("：").append(hostname).append(" → ").append(String.join("、", addresses))
+                    .append("（第 ");
+            for (int i = 0; i < lines.length; i++) {
+                text.append(i == 0 ? "" : "、").append(lines[i] + 1);
+            }
+            return text.append(" 行）").toString();
+        }
+    }
+
+    /**
+     * 一行中的映射
+     */
+    private static final class Entry {
+        final String address;
+        final boolean ipv6;
+        final String[] hostnames;
+        final boolean disabled;
+
+        Entry(String address, boolean ipv6, String[] hostnames, boolean disabled) {
+            this.address = address;
+            this.ipv6 = ipv6;
+            this.hostnames = hostnames;
+            this.disabled = disabled;
+        }
+    }
+
+    /**
+     * 出现在多条映射中的主机名对应的映射编号
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    // 每解析这么多行检查一次取消状态
+    private static final int CHECK_INTERVAL = 4096;
+    private static final int NO_ENTRY = -1;
+
+    // lineEntries[i] 为第 i 行的映射编号，没有映射的行为 NO_ENTRY
+    private int[] lineEntries = new int[16];
+    private int lineCount;
+    private Entry[] entries = new Entry[16];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId;
+    private int entryCount;
+    // 主机名 → 映射编号，只出现一次时为 Integer，多次时为 Postings
+    private final Map<String, Object> index = new HashMap<>();
+    private final Map<String, IssueType> problems = new HashMap<>();
+
+    public HostsModel() {
+        lineCount = 1;
+        lineEntries[0] = NO_ENTRY;
+    }
+
+    /**
+     * 从完整文本建立模型
+     *
+     * @param text hosts 文件内容
+     * @param cancelled 返回 true 时中止并抛出 {@link CancellationException}
+     * @return 模型
+     */
+    public static HostsModel parse(CharSequence text, BooleanSupplier cancelled) {
+        HostsModel model = new HostsModel();
+        model.lineCount = 0;
+        int lineStart = 0;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            if (i == length || text.charAt(i) == '\n') {
+                if (model.lineCount % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                model.insertLine(model.lineCount, text.subSequence(lineStart, i), null);
+                lineStart = i + 1;
+            }
+        }
+        for (Map.Entry<String, Object> posting : model.index.entrySet()) {
+            if (posting.getValue() instanceof Postings) {
+                model.evaluate(posting.getKey());
+            }
+        }
+        return model;
+    }
+
+    /**
+     * 用新的行替换 [start, start + removedCount) 范围内的行
+     *
+     * @param start 起始行号
+     * @param removedCount 被替换的行数
+     * @param lines 新的行，不含换行符
+     */
+    public void replaceLines(int start, int removedCount, List<? extends CharSequence> lines) {
+        Set<String> touched = new LinkedHashSet<>();
+        for (int i = start; i < start + removedCount; i++) {
+            removeEntry(lineEntries[i], touched);
+        }
+        int delta = lines.size() - removedCount;
+        ensureLineCapacity(lineCount + delta);
+        System.arraycopy(lineEntries, start + removedCount, lineEntries, start + lines.size(),
+                lineCount - start - removedCount);
+        lineCount += delta;
+        for (int i = 0; i < lines.size(); i++) {
+            lineEntries[start + i] = NO_ENTRY;
+            insertLine(start + i, lines.get(i), touched);
+        }
+        for (String hostname : touched) {
+            evaluate(hostname);
+        }
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return 映射（含已禁用的映射）的条数
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return 存在重复或冲突映射的主机名个数
+     */
+    public int getIssueCount() {
+        return problems.size();
+    }
+
+    /**
+     * 查找主机名所在的行，包括已禁用的映射
+     *
+     * @param hostname 主机名，不区分大小写
+     * @return 行号（从 0 开始），升序
+     */
+    public int[] findLines(String hostname) {
+        Object posting = index.get(hostname.toLowerCase(Locale.ROOT));
+        if (posting == null) {
+            return new int[0];
+        }
+        int[] ids = posting instanceof Integer ? new int[]{(Integer) posting}
+                : Arrays.copyOf(((Postings) posting).ids, ((Postings) posting).size);
+        return toLines(ids);
+    }
+
+    /**
+     * 列出全部重复和冲突，按第一次出现的行排序
+     *
+     * @param limit 最多返回的条数
+     */
+    public List<Issue> getIssues(int limit) {
+        List<Issue> issues = new ArrayList<>();
+        if (problems.isEmpty()) {
+            return issues;
+        }
+        // 一次遍历得到所有映射编号对应的行号
+        int[] idLines = new int[nextId];
+        for (int line = 0; line < lineCount; line++) {
+            if (lineEntries[line] != NO_ENTRY) {
+                idLines[lineEntries[line]] = line;
+            }
+        }
+        for (Map.Entry<String, IssueType> problem : problems.entrySet()) {
+            Postings postings = (Postings) index.get(problem.getKey());
+            // 按行号排序后再收集地址，地址按首次出现的行排列
+            long[] lineIds = new long[postings.size];
+            int count = 0;
+            for (int k = 0; k < postings.size; k++) {
+                int id = postings.ids[k];
+                if (!entries[id].disabled) {
+                    lineIds[count++] = (long) idLines[id] << 32 | id;
+                }
+            }
+            Arrays.sort(lineIds, 0, count);
+            int[] lines = new int[count];
+            int distinct = 0;
+            Set<String> addresses = new LinkedHashSet<>();
+            for (int k = 0; k < count; k++) {
+                int line = (int) (lineIds[k] >>> 32);
+                if (distinct == 0 || lines[distinct - 1] != line) {
+                    lines[distinct++] = line;
+                }
+                addresses.add(entries[(int) lineIds[k]].address);
+            }
+            lines = Arrays.copyOf(lines, distinct);
+            issues.add(new Issue(problem.getKey(), problem.getValue(), lines, addresses));
+        }
+        issues.sort(Comparator.comparingInt(issue -> issue.lines[0]));
+        return issues.size() > limit ? new ArrayList<>(issues.subList(0, limit)) : issues;
+    }
+
+    private int[] toLines(int[] ids) {
+        int[] lines = new int[ids.length];
+        int found = 0;
+        for (int line = 0; line < lineCount && found < ids.length; line++) {
+            int id = lineEntries[line];
+            if (id == NO_ENTRY) {
+                continue;
+            }
+            for (int k = 0; k < ids.length; k++) {
+                if (ids[k] == id) {
+                    lines[found++] = line;
+                    break;
+                }
+            }
+        }
+        return Arrays.stream(lines, 0, found).distinct().toArray();
+    }
+
+    private void insertLine(int line, CharSequence text, Set<String> touched) {
+        ensureLineCapacity(Math.max(lineCount, line + 1));
+        if (line >= lineCount) {
+            lineCount = line + 1;
+        }
+        Entry entry = parseLine(text);
+        if (entry == null) {
+            lineEntries[line] = NO_ENTRY;
+            return;
+        }
+        int id = allocateId();
+        entries[id] = entry;
+        entryCount++;
+        lineEntries[line] = id;
+        for (String hostname : entry.hostnames) {
+            Object posting = index.get(hostname);
+            if (posting == null) {
+                index.put(hostname, id);
+            } else {
+                Postings postings;
+                if (posting instanceof Integer) {
+                    postings = new Postings();
+                    postings.add((Integer) posting);
+                    index.put(hostname, postings);
+                } else {
+                    postings = (Postings) posting;
+                }
+                postings.add(id);
+            }
+            if (touched != null) {
+                touched.add(hostname);
+            }
+        }
+    }
+
+    private void removeEntry(int id, Set<String> touched) {
+        if (id == NO_ENTRY) {
+            return;
+        }
+        for (String hostname : entries[id].hostnames) {
+            Object posting = index.get(hostname);
+            if (posting instanceof Postings) {
+                Postings postings = (Postings) posting;
+                postings.remove(id);
+                if (postings.size == 1) {
+                    index.put(hostname, postings.ids[0]);
+                }
+            } else {
+                index.remove(hostname);
+            }
+            touched.add(hostname);
+        }
+        entries[id] = null;
+        entryCount--;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * 重新判断主机名是否存在重复或冲突
+     */
+    private void evaluate(String hostname) {
+        Object posting = index.get(hostname);
+        if (!(posting instanceof Postings)) {
+            problems.remove(hostname);
+            return;
+        }
+        Postings postings = (Postings) posting;
+        String ipv4 = null;
+        String ipv6 = null;
+        int enabled = 0;
+        IssueType type = null;
+        for (int k = 0; k < postings.size; k++) {
+            Entry entry = entries[postings.ids[k]];
+            if (entry.disabled) {
+                continue;
+            }
+            enabled++;
+            String seen = entry.ipv6 ? ipv6 : ipv4;
+            if (seen == null) {
+                if (entry.ipv6) {
+                    ipv6 = entry.address;
+                } else {
+                    ipv4 = entry.address;
+                }
+            } else if (!seen.equals(entry.address)) {
+                type = IssueType.CONFLICT;
+                break;
+            } else {
+                type = IssueType.DUPLICATE;
+            }
+        }
+        if (enabled < 2 || type == null) {
+            problems.remove(hostname);
+        } else {
+            problems.put(hostname, type);
+        }
+    }
+
+    /**
+     * 解析一行：<code>地址 主机名...</code>，注释掉的映射行视为已禁用的映射
+     *
+     * @return 映射，空行、普通注释和无法识别的行返回 null
+     */
+    private static Entry parseLine(CharSequence line) {
+        int i = 0;
+        int length = line.length();
+        while (i < length && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            i++;
+        }
+        boolean disabled = false;
+        if (i < length && line.charAt(i) == '#') {
+            disabled = true;
+            while (i < length && line.charAt(i) == '#') {
+                i++;
+            }
+        }
+        CharSequence content = i == 0 ? line : line.subSequence(i, length);
+        int[] address = {-1, -1};
+        List<String> hostnames = new ArrayList<>(2);
+        HostsLexer.lex(content, (start, end, type) -> {
+            if (type == HostsLexer.ADDRESS) {
+                address[0] = start;
+                address[1] = end;
+            } else if (type == HostsLexer.HOSTNAME) {
+                hostnames.add(content.subSequence(start, end).toString().toLowerCase(Locale.ROOT));
+            }
+        });
+        if (address[0] < 0 || hostnames.isEmpty()) {
+            return null;
+        }
+        String addressText = content.subSequence(address[0], address[1]).toString();
+        return new Entry(addressText, addressText.indexOf(':') >= 0, hostnames.toArray(new String[0]), disabled);
+    }
+
+    private int allocateId() {
+        if (freeCount > 0) {
+            return freeIds[--freeCount];
+        }
+        if (nextId == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        return nextId++;
+    }
+
+    private void ensureLineCapacity(int capacity) {
+        if (capacity > lineEntries.length) {
+            lineEntries = Arrays.copyOf(lineEntries, Math.max(capacity, lineEntries.length * 2));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.daicy.core.JsonEngine;
+
+/**
+ * hosts 配置方案
+ *
+ * <p>每个方案（如 dev、staging、prod）由若干命名的区块组成，应用方案时按顺序拼接启用的区块，
+ * 每个区块以 <code>#### 区块名</code> 开头。方案以 JSON 保存在用户目录下的
+ * <code>.devtools/hosts-profiles.json</code> 中，同样通过临时文件原子替换。
+ *
+ * @author daicy
+ */
+public class HostsProfiles {
+
+    // 区块标题行的前缀
+    private static final String BLOCK_HEADER = "#### ";
+    // 第一个标题之前的内容归入的区块
+    private static final String DEFAULT_BLOCK = "默认";
+
+    /**
+     * 配置方案
+     */
+    public static class Profile {
+        private String name;
+        private List<Block> blocks = new ArrayList<>();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<Block> getBlocks() {
+            return blocks;
+        }
+
+        public void setBlocks(List<Block> blocks) {
+            this.blocks = blocks;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * 方案中的一个区块
+     */
+    public static class Block {
+        private String name;
+        private boolean enabled = true;
+        private String content = "";
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public void setContent(String content) {
+            this.content = content;
+        }
+    }
+
+    private HostsProfiles() {
+    }
+
+    /**
+     * @return 方案文件的位置
+     */
+    public static Path getStoreFile() {
+        return Path.of(System.getProperty("user.home"), ".devtools", "hosts-profiles.json");
+    }
+
+    /**
+     * 读取全部方案
+     *
+     * @return 方案列表，文件不存在时为空列表
+     * @throws IOException 读取或解析失败
+     */
+    public static List<Profile> load() throws IOException {
+        Path file = getStoreFile();
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        try (InputStream input = Files.newInputStream(file)) {
+            return new ArrayList<>(JsonEngine.readList(input, Profile.class));
+        }
+    }
+
+    /**
+     * 保存全部方案
+     *
+     * @param profiles 方案列表
+     * @throws IOException 写入失败
+     */
+    public static void save(List<Profile> profiles) throws IOException {
+        Path file = getStoreFile();
+        Files.createDirectories(file.getParent());
+        AtomicFiles.write(file, JsonEngine.prettyWriter().writeValueAsBytes(profiles));
+    }
+
+    /**
+     * 按顺序拼接方案中启用的区块
+     *
+     * @param profile 方案
+     * @return hosts 文件内容
+     */
+    public static String compose(Profile profile) {
+        StringBuilder text = new StringBuilder();
+        for (Block block : profile.getBlocks()) {
+            if (!block.isEnabled()) {
+                continue;
+            }
+            text.append(BLOCK_HEADER).append(block.getName()).append('\n');
+            text.append(block.getContent());
+            if (!block.getContent().isEmpty() && !block.getContent().endsWith("\n")) {
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * 把 hosts 文本按区块标题拆分后存入方案，是 {@link #compose(Profile)} 的逆过程
+     *
+     * <p>文本中出现的区块被替换并启用，方案中原有但文本中没有的已禁用区块保留在原来的位置，
+     * 已启用的则被删除。
+     *
+     * @param profile 方案
+     * @param text hosts 文件内容
+     */
+    public static void update(Profile profile, String text) {
+        Map<String, StringBuilder> contents = new LinkedHashMap<>();
+        StringBuilder current = null;
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            lineEnd = lineEnd < 0 ? text.length() : lineEnd + 1;
+            if (text.startsWith(BLOCK_HEADER, lineStart)) {
+                String name = text.substring(lineStart + BLOCK_HEADER.length(), lineEnd).trim();
+                current = contents.computeIfAbsent(name, key -> new StringBuilder());
+            } else {
+                if (current == null) {
+                    current = contents.computeIfAbsent(DEFAULT_BLOCK, key -> new StringBuilder());
+                }
+                current.append(text, lineStart, lineEnd);
+            }
+            lineStart = lineEnd;
+        }
+        Map<String, Block> parsed = new LinkedHashMap<>();
+        contents.forEach((name, content) -> {
+            Block block = new Block();
+            block.setName(name);
+            block.setContent(content.toString());
+            parsed.put(name, block);
+        });
+        List<Block> blocks = new ArrayList<>();
+        for (Block block : profile.getBlocks()) {
+            Block replacement = parsed.remove(block.getName());
+            if (replacement != null) {
+                blocks.add(replacement);
+            } else if (!block.isEnabled()) {
+                blocks.add(block);
+            }
+        }
+        blocks.addAll(parsed.values());
+        profile.setBlocks(blocks);
+    }
+}
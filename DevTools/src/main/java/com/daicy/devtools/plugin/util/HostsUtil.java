@@ -1,13 +1,17 @@
 package com.daicy.devtools.plugin.util;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.Optional;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import javafx.scene.control.Alert;
 import javafx.scene.control.TextInputDialog;
@@ -17,13 +21,14 @@ import org.apache.commons.lang3.SystemUtils;
 /**
  * Hosts 文件工具类
  * 
- * <p>提供读取和保存系统 hosts 文件的功能。
+ * <p>提供读取和保存系统 hosts 文件的功能。内容未改变时跳过写入，写入时通过临时文件原子替换。
  * 
  * @author daicy
  */
 public class HostsUtil {
     // sudo password
     private static String sudoPwd = null;
+    private static final long SUDO_TIMEOUT_SECONDS = 30;
     
     public static String getHostsContent(){
         String fileName = null;
@@ -45,58 +50,162 @@ public class HostsUtil {
         return fileContent;
     }
     
+    /**
+     * 保存 hosts 文件，需要时弹出对话框询问 sudo 密码
+     *
+     * @param fileContent 文件内容
+     * @return 保存成功或内容未改变时返回 true
+     */
     public static Boolean saveHostsContent(String fileContent){
         File file = HostsUtil.getHostsFile();
         
         if(file == null){
             return false;
-        } else {
-            try {
-                if(SystemUtils.IS_OS_LINUX || SystemUtils.IS_OS_MAC || SystemUtils.IS_OS_UNIX){
-                    if(sudoPwd == null){
-                        TextInputDialog dialog = new TextInputDialog("");
-                        dialog.setTitle("Sudo Dialog");
-                        dialog.setHeaderText("Look, a Sudo Input Dialog");
-                        dialog.setContentText("Please enter your sudo pwd:");
+        }
+        try {
+            writeHosts(file.toPath(), fileContent);
+            return true;
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("保存失败");
+            alert.setHeaderText("无法写入 " + file);
+            alert.setContentText(e.getMessage());
+            alert.showAndWait();
+            return false;
+        }
+    }
 
-                        Optional<String> result = dialog.showAndWait();
+    /**
+     * 写入 hosts 文件，需要时弹出对话框询问 sudo 密码
+     *
+     * @param target hosts 文件
+     * @param content 新内容
+     * @return 是否实际写入了文件
+     * @throws IOException 写入失败、sudo 密码错误或被取消
+     */
+    public static boolean writeHosts(Path target, String content) throws IOException {
+        try {
+            return writeHosts(target, content, HostsUtil::askSudoPassword);
+        } catch (IOException e) {
+            // 密码错误时下次重新询问
+            sudoPwd = null;
+            throw e;
+        }
+    }
 
-                        result.ifPresent(pwd -> sudoPwd = pwd);
-                        
-                        String[] cmds = {"/bin/bash", "-c", "echo \"" + sudoPwd + "\" | " + "sudo" + " -S " + " chmod 777 " + file};
-                        Process process = Runtime.getRuntime().exec(cmds);
-                        
-                        BufferedReader bufferedReader=new BufferedReader(new InputStreamReader(process.getErrorStream()));
-                        String line;
-                        Boolean isSucc = true;
-                        while((line=bufferedReader.readLine())!=null)
-                        {
-                            if(line.contains("try again")){
-                                isSucc = false;
-                            }
-                        }
-                        
-                        if(!isSucc){
-                            sudoPwd = null;
-                            
-                            Alert alert = new Alert(Alert.AlertType.ERROR);
-                            alert.setTitle("Wrong Password");
-                            alert.setHeaderText("Wrong Password");
-                            alert.setContentText("Please try agian");
-                            alert.showAndWait();
-                            
-                            return false;
-                        }
-                    }
-                }
+    /**
+     * 写入 hosts 文件
+     *
+     * <p>内容与文件现有内容相同时不写入。否则先写入同一目录下的临时文件，再原子地替换目标文件，
+     * 读取 hosts 的程序不会看到写了一半的文件。目录不可写时在 Linux/macOS 上通过 sudo 完成复制和替换，
+     * 密码从 sudo 的标准输入传入，不经过 shell。两种方式都保留原文件的权限、所有者和所属组，
+     * 目标是符号链接时替换链接指向的文件。
+     *
+     * @param target hosts 文件
+     * @param content 新内容
+     * @param password 需要 sudo 时调用，返回 null 表示取消
+     * @return 是否实际写入了文件
+     * @throws IOException 写入失败、sudo 密码错误或被取消
+     */
+    public static boolean writeHosts(Path target, String content, Supplier<String> password) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Path file = Files.exists(target) ? target.toRealPath() : target.toAbsolutePath();
+        if (sameContent(file, bytes)) {
+            return false;
+        }
+        Path directory = file.getParent();
+        if (Files.isWritable(directory) || SystemUtils.IS_OS_WINDOWS) {
+            AtomicFiles.write(file, bytes);
+            return true;
+        }
+        String pwd = password.get();
+        if (pwd == null) {
+            throw new IOException("已取消");
+        }
+        Path temp = Files.createTempFile("hosts", ".tmp");
+        try {
+            Files.write(temp, bytes);
+            sudoReplace(temp, file, pwd);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return true;
+    }
+
+    private static boolean sameContent(Path target, byte[] bytes) throws IOException {
+        // 长度不同时无需读取文件
+        if (!Files.exists(target) || Files.size(target) != bytes.length) {
+            return false;
+        }
+        return Arrays.equals(Files.readAllBytes(target), bytes);
+    }
+
+    /**
+     * 以 root 身份把临时文件复制到目标文件旁边，设置与原文件相同的权限和所有者后再重命名覆盖目标文件
+     *
+     * @param target 已解析符号链接的目标文件
+     */
+    private static void sudoReplace(Path temp, Path target, String pwd) throws IOException {
+        // 原文件的权限和所有者由当前用户读取，不存在时使用 hosts 文件通常的 644 和 root
+        String mode = "644";
+        String owner = "0:0";
+        if (Files.exists(target)) {
+            PosixFileAttributes attributes = Files.readAttributes(target, PosixFileAttributes.class);
+            mode = Integer.toOctalString(permissionBits(attributes.permissions()));
+            owner = attributes.owner().getName() + ":" + attributes.group().getName();
+        }
+        // 路径、权限和所有者都作为位置参数传给 sh，不拼接进命令字符串
+        ProcessBuilder builder = new ProcessBuilder("sudo", "-S", "-p", "", "--", "/bin/sh", "-c",
+                "cp \"$1\" \"$2.devtools-tmp\" && chmod \"$3\" \"$2.devtools-tmp\" && chown \"$4\" \"$2.devtools-tmp\""
+                        + " && mv -f \"$2.devtools-tmp\" \"$2\" || { rm -f \"$2.devtools-tmp\"; exit 1; }",
+                "sh", temp.toString(), target.toString(), mode, owner);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Process process = builder.start();
+        try (OutputStream stdin = process.getOutputStream()) {
+            stdin.write((pwd + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // 已缓存凭据时 sudo 不读取标准输入，可能已经退出
+        }
+        String error = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        try {
+            if (!process.waitFor(SUDO_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("sudo 超时");
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("sudo 被中断", e);
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException(error.isEmpty() ? "sudo 退出码 " + process.exitValue() : error);
+        }
+    }
 
-                Files.writeString(file.toPath(), fileContent, StandardOpenOption.TRUNCATE_EXISTING);
-            } catch (IOException e) {
-            } catch (Exception e) {
-                e.printStackTrace();
+    /**
+     * @return 权限集合对应的八进制权限位，如 rw-r--r-- 为 0644
+     */
+    private static int permissionBits(Set<PosixFilePermission> permissions) {
+        int bits = 0;
+        // PosixFilePermission 按 OWNER_READ 到 OTHERS_EXECUTE 的顺序声明，依次对应从高到低的 9 位
+        for (PosixFilePermission permission : PosixFilePermission.values()) {
+            bits <<= 1;
+            if (permissions.contains(permission)) {
+                bits |= 1;
             }
-            return true;
         }
+        return bits;
+    }
+
+    private static String askSudoPassword() {
+        if (sudoPwd == null) {
+            TextInputDialog dialog = new TextInputDialog("");
+            dialog.setTitle("Sudo Dialog");
+            dialog.setHeaderText("写入 hosts 文件需要管理员权限");
+            dialog.setContentText("Please enter your sudo pwd:");
+            dialog.showAndWait().ifPresent(pwd -> sudoPwd = pwd);
+        }
+        return sudoPwd;
     }
     
     public static File getHostsFile(){
@@ -0,0 +1,79 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+
+/**
+ * 增量 hosts 语法高亮
+ *
+ * <p>hosts 文件的每一行都是独立的，没有跨行的词法状态，文本修改时只需重新着色
+ * 被修改的段落，不复制全文。样式通过 {@link ParagraphStyleScheduler} 应用，
+ * 视口内的段落立即着色，其余段落在后续的 JavaFX 脉冲中分批补齐。
+ * 每行的词法分析由 {@link HostsLexer} 完成。
+ *
+ * @author daicy
+ */
+public class IncrementalHostsHighlighter {
+
+    // 按 HostsLexer 的词法单元类型索引
+    private static final Collection<String>[] STYLES = styles("keyword", "hostname", "comment", "hosts-error");
+
+    private final CodeArea codeArea;
+    private final ParagraphStyleScheduler scheduler;
+
+    public IncrementalHostsHighlighter(CodeArea codeArea) {
+        this.codeArea = codeArea;
+        this.scheduler = new ParagraphStyleScheduler(codeArea,
+                (paragraph, spansBuilder) -> spanLine(codeArea.getParagraph(paragraph).getText(), spansBuilder));
+        codeArea.plainTextChanges().subscribe(this::onTextChange);
+        if (codeArea.getLength() > 0) {
+            onTextChange(new PlainTextChange(0, "", codeArea.getText()));
+        }
+    }
+
+    private void onTextChange(PlainTextChange change) {
+        int startParagraph = codeArea.offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+        scheduler.paragraphsReplaced(startParagraph, countLines(change.getRemoved()), countLines(change.getInserted()));
+        scheduler.flush();
+    }
+
+    /**
+     * 为一行文本写入样式，覆盖整行
+     *
+     * @param text 一行文本，不含换行符
+     * @param spansBuilder 样式输出
+     */
+    public static void spanLine(String text, StyleSpansBuilder<Collection<String>> spansBuilder) {
+        int[] lastEnd = {0};
+        HostsLexer.lex(text, (start, end, type) -> {
+            spansBuilder.add(Collections.emptyList(), start - lastEnd[0]);
+            spansBuilder.add(STYLES[type], end - start);
+            lastEnd[0] = end;
+        });
+        spansBuilder.add(Collections.emptyList(), text.length() - lastEnd[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<String>[] styles(String... styleClasses) {
+        Collection<String>[] styles = new Collection[styleClasses.length];
+        for (int i = 0; i < styleClasses.length; i++) {
+            styles[i] = Collections.singleton(styleClasses[i]);
+        }
+        return styles;
+    }
+
+    private static int countLines(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
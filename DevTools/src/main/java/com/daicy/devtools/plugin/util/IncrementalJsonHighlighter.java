@@ -0,0 +1,163 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+
+import com.daicy.devtools.plugin.util.JsonHighlighting.LexState;
+
+/**
+ * 增量 JSON 语法高亮
+ *
+ * <p>为每个段落缓存起始处的词法状态。文本修改时只重新分析被修改的段落，
+ * 并继续向后分析直到某个段落的起始状态与缓存一致为止。
+ * 样式通过 {@link ParagraphStyleScheduler} 应用，视口内的段落优先。
+ *
+ * @author daicy
+ */
+public class IncrementalJsonHighlighter {
+
+    private static final String ERROR_STYLE = "json-error";
+
+    private final CodeArea codeArea;
+    private final ParagraphStyleScheduler scheduler;
+    // states.get(i) 为第 i 个段落起始处的词法状态
+    private final List<LexState> states = new ArrayList<>();
+    private int errorStart = -1;
+    private int errorEnd = -1;
+
+    public IncrementalJsonHighlighter(CodeArea codeArea) {
+        this.codeArea = codeArea;
+        this.scheduler = new ParagraphStyleScheduler(codeArea, this::styleParagraph);
+        states.add(null);
+        codeArea.plainTextChanges().subscribe(this::onTextChange);
+        if (codeArea.getLength() > 0) {
+            onTextChange(new PlainTextChange(0, "", codeArea.getText()));
+        }
+    }
+
+    /**
+     * 标记错误范围，只重新着色涉及的段落
+     *
+     * @param start 起始偏移（含）
+     * @param end 结束偏移（不含）
+     */
+    public void markError(int start, int end) {
+        clearError();
+        errorStart = start;
+        errorEnd = end;
+        markDirtyRange(errorStart, errorEnd);
+        scheduler.flush();
+    }
+
+    public void clearError() {
+        if (errorStart >= 0) {
+            markDirtyRange(errorStart, errorEnd);
+            errorStart = -1;
+            errorEnd = -1;
+            scheduler.flush();
+        }
+    }
+
+    private void markDirtyRange(int start, int end) {
+        int length = codeArea.getLength();
+        int first = codeArea.offsetToPosition(Math.min(start, length), Bias.Forward).getMajor();
+        int last = codeArea.offsetToPosition(Math.min(end, length), Bias.Forward).getMajor();
+        scheduler.markDirty(first, last + 1);
+    }
+
+    private void onTextChange(PlainTextChange change) {
+        if (errorStart >= 0) {
+            if (change.getRemovalEnd() <= errorStart) {
+                // 修改位于错误之前，错误范围随之平移
+                errorStart += change.getNetLength();
+                errorEnd += change.getNetLength();
+            } else if (change.getPosition() < errorEnd) {
+                // 修改与错误范围重叠，旧的错误位置不再可靠；所在段落随后会被重新着色
+                errorStart = -1;
+                errorEnd = -1;
+            }
+        }
+        int startParagraph = codeArea.offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+        int removedCount = countLines(change.getRemoved());
+        int insertedCount = countLines(change.getInserted());
+        states.subList(startParagraph + 1, startParagraph + 1 + removedCount).clear();
+        states.addAll(startParagraph + 1, Collections.nCopies(insertedCount, null));
+        scheduler.paragraphsReplaced(startParagraph, removedCount, insertedCount);
+        relex(startParagraph, startParagraph + insertedCount);
+        scheduler.flush();
+    }
+
+    /**
+     * 从 from 段落开始重新计算词法状态
+     *
+     * <p>至少分析到 mustReach 段落，之后一旦计算出的起始状态与缓存一致即停止。
+     */
+    private void relex(int from, int mustReach) {
+        int paragraphCount = codeArea.getParagraphs().size();
+        int paragraph = from;
+        while (true) {
+            LexState out = JsonHighlighting.lex(codeArea.getParagraph(paragraph).getText(), states.get(paragraph), null);
+            paragraph++;
+            if (paragraph >= paragraphCount) {
+                break;
+            }
+            if (paragraph > mustReach && Objects.equals(states.get(paragraph), out)) {
+                break;
+            }
+            states.set(paragraph, out);
+        }
+        scheduler.markDirty(from, paragraph);
+    }
+
+    private void styleParagraph(int paragraph, StyleSpansBuilder<Collection<String>> spansBuilder) {
+        String text = codeArea.getParagraph(paragraph).getText();
+        LexState state = states.get(paragraph);
+        if (errorStart < 0) {
+            JsonHighlighting.spanLine(text, state, spansBuilder);
+            return;
+        }
+        int paragraphStart = codeArea.getAbsolutePosition(paragraph, 0);
+        int from = Math.max(errorStart - paragraphStart, 0);
+        int to = Math.min(errorEnd - paragraphStart, text.length());
+        if (from >= to) {
+            JsonHighlighting.spanLine(text, state, spansBuilder);
+            return;
+        }
+        StyleSpansBuilder<Collection<String>> lineBuilder = new StyleSpansBuilder<>();
+        JsonHighlighting.spanLine(text, state, lineBuilder);
+        StyleSpans<Collection<String>> errorSpans = new StyleSpansBuilder<Collection<String>>()
+                .add(Collections.emptyList(), from)
+                .add(Collections.singleton(ERROR_STYLE), to - from)
+                .add(Collections.emptyList(), text.length() - to)
+                .create();
+        spansBuilder.addAll(lineBuilder.create().overlay(errorSpans, (base, error) -> {
+            if (error.isEmpty()) {
+                return base;
+            }
+            Set<String> styles = new HashSet<>(base);
+            styles.addAll(error);
+            return styles;
+        }));
+    }
+
+    private static int countLines(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,228 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import com.daicy.core.JsonEngine;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * 二进制 JSON 格式：CBOR、Smile 和 MessagePack
+ *
+ * <p>解码和编码都是 Jackson 解析器到生成器的逐个 token 复制，与文本格式化共用
+ * {@link JsonStreamFormatter} 的复制逻辑，不构建 JsonNode 树。
+ *
+ * @author daicy
+ */
+public enum JsonBinaryFormat {
+    CBOR("CBOR", new CBORFactory(), "cbor"),
+    SMILE("Smile", new SmileFactory(), "smile", "sml"),
+    MESSAGE_PACK("MessagePack", new MessagePackFactory(), "msgpack", "mpk", "mp");
+
+    // 每复制这么多个 token 检查一次取消状态并汇报进度
+    private static final int CHECK_INTERVAL = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String label;
+    private final JsonFactory factory;
+    private final String[] extensions;
+
+    JsonBinaryFormat(String label, JsonFactory factory, String... extensions) {
+        this.label = label;
+        this.factory = factory;
+        this.extensions = extensions;
+    }
+
+    /**
+     * @return 保存文件时使用的扩展名
+     */
+    public String getExtension() {
+        return extensions[0];
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * 根据文件头和扩展名判断文件可能的二进制格式
+     *
+     * <p>Smile 的 <code>:)\n</code> 文件头和 CBOR 的自描述标签 <code>D9 D9 F7</code> 可以直接确定格式，
+     * 其次按扩展名判断。CBOR 与 MessagePack 的容器类型在首字节上有重叠，
+     * 无法确定时返回两者，由调用方依次用 {@link #decode} 尝试。
+     *
+     * @param file 文件
+     * @return 按可能性排列的候选格式；首字节是可打印字符或空白时视为 JSON 文本，返回空列表
+     * @throws IOException 读取失败
+     */
+    public static List<JsonBinaryFormat> detect(Path file) throws IOException {
+        byte[] head = new byte[3];
+        int length;
+        try (InputStream input = Files.newInputStream(file)) {
+            length = input.readNBytes(head, 0, head.length);
+        }
+        List<JsonBinaryFormat> candidates = new ArrayList<>();
+        if (length == 0) {
+            return candidates;
+        }
+        if (length == 3 && head[0] == ':' && head[1] == ')' && head[2] == '\n') {
+            candidates.add(SMILE);
+            return candidates;
+        }
+        if (length == 3 && (head[0] & 0xFF) == 0xD9 && (head[1] & 0xFF) == 0xD9 && (head[2] & 0xFF) == 0xF7) {
+            candidates.add(CBOR);
+            return candidates;
+        }
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (JsonBinaryFormat format : values()) {
+            for (String extension : format.extensions) {
+                if (name.endsWith("." + extension)) {
+                    candidates.add(format);
+                    return candidates;
+                }
+            }
+        }
+        int first = head[0] & 0xFF;
+        // UTF-8 BOM
+        if (first == 0xEF || (first >= 0x20 && first < 0x80) || first == '\t' || first == '\n' || first == '\r') {
+            return candidates;
+        }
+        if (first >= 0xDC && first <= 0xDF) {
+            // MessagePack 的 array16/32、map16/32，在 CBOR 中是保留值
+            candidates.add(MESSAGE_PACK);
+        } else if ((first >= 0x80 && first <= 0x8F) || first >= 0xC0) {
+            // MessagePack 的 fixmap 以及 nil、bool、数字等类型码
+            candidates.add(MESSAGE_PACK);
+            candidates.add(CBOR);
+        } else {
+            candidates.add(CBOR);
+            candidates.add(MESSAGE_PACK);
+        }
+        return candidates;
+    }
+
+    /**
+     * 把二进制文件解码为 JSON 文本
+     *
+     * <p>文件必须恰好包含一个顶层值，之后还有数据时视为格式不符，以便在候选格式之间做出区分。
+     *
+     * @param file 二进制文件
+     * @param writer 结果输出，方法返回时已被刷新并关闭
+     * @param mode 输出模式
+     * @param progress 进度回调，参数为已读取的字节数
+     * @param cancelled 返回 true 时中止并抛出 {@link CancellationException}
+     * @throws IOException 数据不符合该格式或读写失败
+     */
+    public void decode(Path file, Writer writer, JsonFormatMode mode, LongConsumer progress,
+                       BooleanSupplier cancelled) throws IOException {
+        JsonEngine.timed("decode-" + getExtension(), () -> {
+            try (JsonParser parser = factory.createParser(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+                 JsonGenerator generator = JsonEngine.createGenerator(writer)) {
+                if (mode == JsonFormatMode.PRETTY) {
+                    generator.useDefaultPrettyPrinter();
+                }
+                if (parser.nextToken() == null) {
+                    throw new JsonParseException(parser, "文件中没有 " + label + " 数据");
+                }
+                if (mode == JsonFormatMode.CANONICAL) {
+                    // 逐层缓冲对象成员，不先解码为完整的 JSON 文本
+                    JsonStreamFormatter.copyCanonical(parser, generator, false, progress, cancelled);
+                } else {
+                    copyTokens(parser, generator, mode, progress, cancelled);
+                }
+                if (hasMoreData(parser)) {
+                    throw new JsonParseException(parser, "顶层值之后还有多余的数据，不是有效的 " + label + " 文件");
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 逐个 token 复制从当前 token 开始的一个顶层值
+     */
+    private static void copyTokens(JsonParser parser, JsonGenerator generator, JsonFormatMode mode,
+                                   LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        long tokens = 0;
+        int depth = 0;
+        do {
+            if (++tokens % CHECK_INTERVAL == 0) {
+                checkCancelled(cancelled);
+                progress.accept(parser.getCurrentLocation().getByteOffset());
+            }
+            JsonToken token = parser.currentToken();
+            JsonStreamFormatter.copyToken(parser, generator, mode, false);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+        } while (depth > 0 && parser.nextToken() != null);
+    }
+
+    /**
+     * 把 JSON 编码为二进制格式写入文件
+     *
+     * @param parser JSON 解析器，方法返回时已关闭
+     * @param output 输出文件，已存在时在编码成功后被替换，失败或取消时保持不变
+     * @param cancelled 返回 true 时中止并抛出 {@link CancellationException}
+     * @return 写入的字节数
+     * @throws IOException JSON 语法错误或写入失败
+     */
+    public long encode(JsonParser parser, Path output, BooleanSupplier cancelled) throws IOException {
+        return JsonEngine.timed("encode-" + getExtension(), () -> {
+            // 写入同一目录下的临时文件，完成后才替换输出文件
+            try (JsonParser source = parser) {
+                AtomicFiles.write(output, out -> {
+                    try (JsonGenerator generator = factory.createGenerator(out)) {
+                        long tokens = 0;
+                        while (source.nextToken() != null) {
+                            if (++tokens % CHECK_INTERVAL == 0) {
+                                checkCancelled(cancelled);
+                            }
+                            // 数字保持解析出的类型：整数写为整数，小数写为 double
+                            generator.copyCurrentEvent(source);
+                        }
+                    }
+                    return null;
+                });
+            }
+            return Files.size(output);
+        });
+    }
+
+    private static boolean hasMoreData(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken() != null;
+        } catch (JsonEOFException e) {
+            // MessagePack 解析器在数据结束时抛出异常，而不是返回 null
+            return false;
+        }
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+}
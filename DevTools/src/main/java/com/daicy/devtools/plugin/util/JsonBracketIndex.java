@@ -0,0 +1,399 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntFunction;
+
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.LineNumberFactory;
+import org.fxmisc.richtext.SelectionImpl;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.TwoDimensional;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+
+/**
+ * JSON 括号匹配与代码折叠索引
+ *
+ * <p>每个段落只记录去掉段内已配对括号后剩下的「未配对右括号数、未配对左括号数」，
+ * 这种摘要可以结合，按段落建成线段树后，任意括号的配对位置都能在 O(log n)
+ * 个节点内找到，不需要重新解析文档。文本修改时只重新扫描被修改的段落；
+ * 段落数发生变化时线段树在下一次查询时重建。
+ *
+ * <p>字符串中的括号不参与匹配；JSON 字符串不能跨行，因此每个段落都从字符串外开始扫描。
+ * 花括号和方括号按同一种括号处理，类型不匹配由语法校验报告。
+ *
+ * @author daicy
+ */
+public class JsonBracketIndex {
+
+    private static final String MATCH_STYLE = "bracket-match";
+
+    private final CodeArea codeArea;
+    // 每个段落的未配对右括号数和未配对左括号数
+    private int[] leafCloses = new int[16];
+    private int[] leafOpens = new int[16];
+    private int paragraphCount;
+    // 线段树，叶子从 treeSize 开始；段落数变化后置为无效，查询时重建
+    private int[] treeCloses;
+    private int[] treeOpens;
+    private int treeSize;
+    private boolean treeValid;
+    // 查询过程中的累计摘要
+    private int accCloses;
+    private int accOpens;
+
+    private final SelectionImpl<Collection<String>, String, Collection<String>> caretBracket;
+    private final SelectionImpl<Collection<String>, String, Collection<String>> partnerBracket;
+
+    private JsonBracketIndex(CodeArea codeArea) {
+        this.codeArea = codeArea;
+        paragraphCount = 1;
+        codeArea.plainTextChanges().subscribe(this::onTextChange);
+        if (codeArea.getLength() > 0) {
+            onTextChange(new PlainTextChange(0, "", codeArea.getText()));
+        }
+        caretBracket = new SelectionImpl<>(MATCH_STYLE, codeArea, path -> path.getStyleClass().add(MATCH_STYLE));
+        partnerBracket = new SelectionImpl<>(MATCH_STYLE + "-partner", codeArea, path -> path.getStyleClass().add(MATCH_STYLE));
+        codeArea.addSelection(caretBracket);
+        codeArea.addSelection(partnerBracket);
+        codeArea.caretPositionProperty().addListener((observable, oldValue, newValue) -> highlightCaretBracket());
+    }
+
+    /**
+     * 为编辑区建立括号索引，并启用光标处的括号配对高亮和行号旁的折叠标记
+     *
+     * @param codeArea 编辑区
+     * @return 括号索引
+     */
+    public static JsonBracketIndex attach(CodeArea codeArea) {
+        JsonBracketIndex index = new JsonBracketIndex(codeArea);
+        IntFunction<Node> lineNumbers = LineNumberFactory.get(codeArea);
+        codeArea.setParagraphGraphicFactory(paragraph -> {
+            Label marker = new Label();
+            marker.setMinWidth(12);
+            marker.getStyleClass().add("fold-marker");
+            // 只依赖本段落自身的摘要，段落修改时标记会随段落一起重建
+            if (paragraph < index.paragraphCount && index.leafOpens[paragraph] > 0) {
+                marker.setText(codeArea.isFolded(Math.min(paragraph + 1, codeArea.getParagraphs().size() - 1)) ? "▸" : "▾");
+                marker.setOnMouseClicked(event -> {
+                    if (index.toggleFold(paragraph)) {
+                        marker.setText("▾".equals(marker.getText()) ? "▸" : "▾");
+                    }
+                });
+            }
+            return new HBox(lineNumbers.apply(paragraph), marker);
+        });
+        return index;
+    }
+
+    /**
+     * 返回括号的配对位置
+     *
+     * @param offset 括号的偏移
+     * @return 配对括号的偏移；offset 处不是字符串外的括号或没有配对时返回 -1
+     */
+    public int findPartner(int offset) {
+        if (offset < 0 || offset >= codeArea.getLength()) {
+            return -1;
+        }
+        TwoDimensional.Position position = codeArea.offsetToPosition(offset, Bias.Forward);
+        int paragraph = position.getMajor();
+        int column = position.getMinor();
+        String text = codeArea.getParagraph(paragraph).getText();
+        int[] brackets = brackets(text);
+        int index = Arrays.binarySearch(brackets, column);
+        if (index < 0) {
+            return -1;
+        }
+        return isOpen(text.charAt(column))
+                ? findClose(paragraph, text, brackets, index)
+                : findOpen(paragraph, text, brackets, index);
+    }
+
+    /**
+     * 折叠或展开从 paragraph 开始的对象/数组，配对括号所在的段落保持可见
+     *
+     * <p>配对位置通过索引查找；折叠本身由 {@link CodeArea#foldParagraphs(int, int)} 完成。
+     *
+     * @param paragraph 段落
+     * @return 是否折叠或展开了段落
+     */
+    public boolean toggleFold(int paragraph) {
+        if (paragraph + 1 < codeArea.getParagraphs().size() && codeArea.isFolded(paragraph + 1)) {
+            codeArea.unfoldParagraphs(paragraph);
+            return true;
+        }
+        String text = codeArea.getParagraph(paragraph).getText();
+        int[] brackets = brackets(text);
+        // 段内未配对的第一个左括号即最外层的可折叠区域
+        int depth = 0;
+        int outer = -1;
+        for (int i = brackets.length - 1; i >= 0; i--) {
+            if (isOpen(text.charAt(brackets[i]))) {
+                if (depth == 0) {
+                    outer = i;
+                } else {
+                    depth--;
+                }
+            } else {
+                depth++;
+            }
+        }
+        if (outer < 0) {
+            return false;
+        }
+        int partner = findClose(paragraph, text, brackets, outer);
+        if (partner < 0) {
+            return false;
+        }
+        int last = codeArea.offsetToPosition(partner, Bias.Forward).getMajor() - 1;
+        if (last <= paragraph) {
+            return false;
+        }
+        codeArea.foldParagraphs(paragraph, last);
+        return true;
+    }
+
+    private void highlightCaretBracket() {
+        int caret = codeArea.getCaretPosition();
+        // 优先匹配光标前的括号
+        int bracket = caret - 1;
+        int partner = findPartner(bracket);
+        if (partner < 0) {
+            bracket = caret;
+            partner = findPartner(bracket);
+        }
+        if (partner < 0) {
+            caretBracket.selectRange(caret, caret);
+            partnerBracket.selectRange(caret, caret);
+            return;
+        }
+        caretBracket.selectRange(bracket, bracket + 1);
+        partnerBracket.selectRange(partner, partner + 1);
+    }
+
+    private void onTextChange(PlainTextChange change) {
+        int startParagraph = codeArea.offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+        int removedCount = countLines(change.getRemoved());
+        int insertedCount = countLines(change.getInserted());
+        if (removedCount != insertedCount) {
+            int newCount = paragraphCount - removedCount + insertedCount;
+            if (newCount > leafCloses.length) {
+                int capacity = Math.max(newCount, leafCloses.length * 2);
+                leafCloses = Arrays.copyOf(leafCloses, capacity);
+                leafOpens = Arrays.copyOf(leafOpens, capacity);
+            }
+            int tailFrom = startParagraph + removedCount + 1;
+            int tailTo = startParagraph + insertedCount + 1;
+            System.arraycopy(leafCloses, tailFrom, leafCloses, tailTo, paragraphCount - tailFrom);
+            System.arraycopy(leafOpens, tailFrom, leafOpens, tailTo, paragraphCount - tailFrom);
+            paragraphCount = newCount;
+            treeValid = false;
+        }
+        for (int paragraph = startParagraph; paragraph <= startParagraph + insertedCount; paragraph++) {
+            updateLeaf(paragraph, codeArea.getParagraph(paragraph).getText());
+        }
+    }
+
+    private void updateLeaf(int paragraph, String text) {
+        int closes = 0;
+        int opens = 0;
+        for (int position : brackets(text)) {
+            if (isOpen(text.charAt(position))) {
+                opens++;
+            } else if (opens > 0) {
+                opens--;
+            } else {
+                closes++;
+            }
+        }
+        leafCloses[paragraph] = closes;
+        leafOpens[paragraph] = opens;
+        if (treeValid) {
+            int node = treeSize + paragraph;
+            treeCloses[node] = closes;
+            treeOpens[node] = opens;
+            for (node >>= 1; node > 0; node >>= 1) {
+                combine(node);
+            }
+        }
+    }
+
+    private void ensureTree() {
+        if (treeValid) {
+            return;
+        }
+        treeSize = Integer.highestOneBit(Math.max(1, paragraphCount - 1)) << 1;
+        treeCloses = new int[treeSize * 2];
+        treeOpens = new int[treeSize * 2];
+        System.arraycopy(leafCloses, 0, treeCloses, treeSize, paragraphCount);
+        System.arraycopy(leafOpens, 0, treeOpens, treeSize, paragraphCount);
+        for (int node = treeSize - 1; node > 0; node--) {
+            combine(node);
+        }
+        treeValid = true;
+    }
+
+    private void combine(int node) {
+        int left = node * 2;
+        int right = left + 1;
+        int matched = Math.min(treeOpens[left], treeCloses[right]);
+        treeCloses[node] = treeCloses[left] + treeCloses[right] - matched;
+        treeOpens[node] = treeOpens[left] + treeOpens[right] - matched;
+    }
+
+    /**
+     * 查找 brackets[index] 处左括号的配对右括号
+     */
+    private int findClose(int paragraph, String text, int[] brackets, int index) {
+        int depth = 0;
+        for (int i = index; i < brackets.length; i++) {
+            depth += isOpen(text.charAt(brackets[i])) ? 1 : -1;
+            if (depth == 0) {
+                return codeArea.getAbsolutePosition(paragraph, brackets[i]);
+            }
+        }
+        ensureTree();
+        accCloses = 0;
+        accOpens = 0;
+        int target = searchForward(1, 0, treeSize, paragraph + 1, depth);
+        if (target < 0) {
+            return -1;
+        }
+        // 进入目标段落时仍待配对的左括号数
+        depth = depth - accCloses + accOpens;
+        String targetText = codeArea.getParagraph(target).getText();
+        for (int position : brackets(targetText)) {
+            depth += isOpen(targetText.charAt(position)) ? 1 : -1;
+            if (depth == 0) {
+                return codeArea.getAbsolutePosition(target, position);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找 brackets[index] 处右括号的配对左括号
+     */
+    private int findOpen(int paragraph, String text, int[] brackets, int index) {
+        int depth = 0;
+        for (int i = index; i >= 0; i--) {
+            depth += isOpen(text.charAt(brackets[i])) ? -1 : 1;
+            if (depth == 0) {
+                return codeArea.getAbsolutePosition(paragraph, brackets[i]);
+            }
+        }
+        ensureTree();
+        accCloses = 0;
+        accOpens = 0;
+        int target = searchBackward(1, 0, treeSize, paragraph, depth);
+        if (target < 0) {
+            return -1;
+        }
+        depth = depth - accOpens + accCloses;
+        String targetText = codeArea.getParagraph(target).getText();
+        int[] targetBrackets = brackets(targetText);
+        for (int i = targetBrackets.length - 1; i >= 0; i--) {
+            depth += isOpen(targetText.charAt(targetBrackets[i])) ? -1 : 1;
+            if (depth == 0) {
+                return codeArea.getAbsolutePosition(target, targetBrackets[i]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 在 [from, paragraphCount) 中查找第一个段落 q，使 from..q 的未配对右括号数达到 need；
+     * 返回时 acc 为 from..q-1 的摘要
+     */
+    private int searchForward(int node, int low, int high, int from, int need) {
+        if (high <= from || low >= paragraphCount) {
+            return -1;
+        }
+        if (low >= from) {
+            int matched = Math.min(accOpens, treeCloses[node]);
+            int closes = accCloses + treeCloses[node] - matched;
+            if (closes < need) {
+                accCloses = closes;
+                accOpens = accOpens + treeOpens[node] - matched;
+                return -1;
+            }
+            if (high - low == 1) {
+                return low;
+            }
+        }
+        int middle = (low + high) >>> 1;
+        int found = searchForward(node * 2, low, middle, from, need);
+        return found >= 0 ? found : searchForward(node * 2 + 1, middle, high, from, need);
+    }
+
+    /**
+     * 在 [0, before) 中从后向前查找第一个段落 q，使 q..before-1 的未配对左括号数达到 need；
+     * 返回时 acc 为 q+1..before-1 的摘要
+     */
+    private int searchBackward(int node, int low, int high, int before, int need) {
+        if (low >= before || low >= paragraphCount) {
+            return -1;
+        }
+        if (high <= before) {
+            int matched = Math.min(treeOpens[node], accCloses);
+            int opens = treeOpens[node] + accOpens - matched;
+            if (opens < need) {
+                accOpens = opens;
+                accCloses = treeCloses[node] + accCloses - matched;
+                return -1;
+            }
+            if (high - low == 1) {
+                return low;
+            }
+        }
+        int middle = (low + high) >>> 1;
+        int found = searchBackward(node * 2 + 1, middle, high, before, need);
+        return found >= 0 ? found : searchBackward(node * 2, low, middle, before, need);
+    }
+
+    /**
+     * 返回段落中字符串外的括号所在的列，升序
+     */
+    static int[] brackets(String text) {
+        int[] positions = new int[8];
+        int count = 0;
+        boolean inString = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[' || c == '}' || c == ']') {
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                positions[count++] = i;
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    private static boolean isOpen(char c) {
+        return c == '{' || c == '[';
+    }
+
+    private static int countLines(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,367 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import javax.xml.namespace.QName;
+
+import com.daicy.core.JsonEngine;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvFactory;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.dataformat.xml.XmlFactory;
+import com.fasterxml.jackson.dataformat.xml.XmlNameProcessors;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * JSON 转换为 CSV/YAML/XML
+ *
+ * <p>基于 Jackson 各数据格式的流式生成器，从解析器逐个 token 读取并写入输出文件，
+ * 任何时候内存中最多只有一条记录（CSV 为用于推断列的样本），1 GB 的数组也不会被整体加载。
+ *
+ * <p>记录的划分：顶层数组的每个元素是一条记录，其他顶层值（例如 NDJSON 的每一行）各是一条记录。
+ *
+ * @author daicy
+ */
+public class JsonConverter {
+
+    /**
+     * 转换的目标格式
+     */
+    public enum Target {
+        CSV("CSV", "csv"),
+        YAML("YAML", "yaml"),
+        XML("XML", "xml");
+
+        private final String label;
+        private final String extension;
+
+        Target(String label, String extension) {
+            this.label = label;
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * 推断 CSV 列时读取的样本记录数
+     */
+    static final int CSV_SAMPLE_SIZE = 1000;
+    // 每读取这么多个 token 检查一次取消状态并汇报进度
+    private static final int CHECK_INTERVAL = 4096;
+    private static final String XML_ROOT = "root";
+    private static final String XML_ITEM = "item";
+
+    private static final CsvFactory CSV_FACTORY = new CsvFactory();
+    private static final YAMLFactory YAML_FACTORY = new YAMLFactory();
+    // 属性名中 XML 名称不允许的字符替换为下划线
+    private static final XmlFactory XML_FACTORY = XmlFactory.builder()
+            .xmlNameProcessor(XmlNameProcessors.newReplacementProcessor())
+            .enable(ToXmlGenerator.Feature.WRITE_XML_DECLARATION)
+            .build();
+    // 小数读取为 BigDecimal，写入 CSV 时保持原有精度
+    private static final ObjectReader RECORD_READER = JsonEngine.reader()
+            .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    /**
+     * 转换结果
+     */
+    public static final class Result {
+        private final long records;
+        private final long outputBytes;
+        private final int droppedFields;
+
+        Result(long records, long outputBytes, int droppedFields) {
+            this.records = records;
+            this.outputBytes = outputBytes;
+            this.droppedFields = droppedFields;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * @return CSV 中样本之后才出现、因此没有对应列而被忽略的属性数
+         */
+        public int getDroppedFields() {
+            return droppedFields;
+        }
+
+        public String describe() {
+            String text = String.format("已转换 %,d 条记录，输出 %s", records, ByteSizes.format(outputBytes));
+            return droppedFields == 0 ? text : text + String.format("，%d 个属性未出现在前 %d 条记录中，已忽略",
+                    droppedFields, CSV_SAMPLE_SIZE);
+        }
+    }
+
+    private final JsonParser parser;
+    private final LongConsumer progress;
+    private final BooleanSupplier cancelled;
+    private long tokens;
+    private boolean inRootArray;
+
+    private JsonConverter(JsonParser parser, LongConsumer progress, BooleanSupplier cancelled) {
+        this.parser = parser;
+        this.progress = progress;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * 转换 JSON 并写入文件
+     *
+     * @param parser JSON 解析器，方法返回时已关闭
+     * @param output 输出文件，已存在时在转换成功后被替换，失败或取消时保持不变
+     * @param target 目标格式
+     * @param progress 进度回调，参数为已读取的字节数（从文本解析时为字符数）
+     * @param cancelled 返回 true 时中止转换并抛出 {@link CancellationException}
+     * @return 转换结果
+     * @throws IOException JSON 语法错误、无法表示为目标格式或读写失败
+     */
+    public static Result convert(JsonParser parser, Path output, Target target, LongConsumer progress,
+                                 BooleanSupplier cancelled) throws IOException {
+        return JsonEngine.timed("convert-" + target.getExtension(), () -> {
+            JsonConverter converter = new JsonConverter(parser, progress, cancelled);
+            Result result;
+            // 写入同一目录下的临时文件，完成后才替换输出文件
+            try (JsonParser source = parser) {
+                result = AtomicFiles.write(output, out -> {
+                    switch (target) {
+                        case CSV:
+                            return converter.toCsv(out);
+                        case YAML:
+                            return converter.toYaml(out);
+                        default:
+                            return converter.toXml(out);
+                    }
+                });
+                progress.accept(position(source));
+            }
+            return new Result(result.records, Files.size(output), result.droppedFields);
+        });
+    }
+
+    private Result toYaml(OutputStream out) throws IOException {
+        long records = 0;
+        try (JsonGenerator generator = YAML_FACTORY.createGenerator(out)) {
+            JsonToken token;
+            int depth = 0;
+            boolean rootArray = false;
+            while ((token = nextToken()) != null) {
+                if (depth == 0) {
+                    rootArray = token == JsonToken.START_ARRAY;
+                    if (!rootArray) {
+                        records++;
+                    }
+                } else if (depth == 1 && rootArray && !token.isStructEnd()) {
+                    records++;
+                }
+                copyEvent(generator);
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                }
+            }
+        }
+        return new Result(records, 0, 0);
+    }
+
+    private Result toXml(OutputStream out) throws IOException {
+        long records = 0;
+        try (ToXmlGenerator generator = XML_FACTORY.createGenerator(out)) {
+            generator.useDefaultPrettyPrinter();
+            // 写出 XML 声明，通常由 XmlMapper 在序列化前调用
+            generator.initGenerator();
+            generator.setNextName(new QName(XML_ROOT));
+            generator.writeStartObject();
+            while (nextRecord()) {
+                if (records == 0 && !inRootArray && parser.currentToken() == JsonToken.START_OBJECT) {
+                    // 第一个顶层值是对象时，它的属性直接作为根元素的子元素，之后的顶层值仍写为 item
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        generator.writeFieldName(parser.getCurrentName());
+                        parser.nextToken();
+                        copyValue(generator);
+                    }
+                } else {
+                    generator.writeFieldName(XML_ITEM);
+                    copyValue(generator);
+                }
+                records++;
+            }
+            generator.writeEndObject();
+        }
+        return new Result(records, 0, 0);
+    }
+
+    private Result toCsv(OutputStream out) throws IOException {
+        // 读取样本，按首次出现的顺序合并所有列
+        List<Map<String, String>> sample = new ArrayList<>();
+        Set<String> columns = new LinkedHashSet<>();
+        while (sample.size() < CSV_SAMPLE_SIZE && nextRecord()) {
+            Map<String, String> row = flattenRecord();
+            columns.addAll(row.keySet());
+            sample.add(row);
+        }
+        CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+        columns.forEach(schema::addColumn);
+        long records = 0;
+        Set<String> dropped = new HashSet<>();
+        try (CsvGenerator generator = CSV_FACTORY.createGenerator(out)) {
+            generator.setSchema(schema.build());
+            Iterator<Map<String, String>> buffered = sample.iterator();
+            while (true) {
+                Map<String, String> row;
+                if (buffered.hasNext()) {
+                    row = buffered.next();
+                    buffered.remove();
+                } else if (nextRecord()) {
+                    row = flattenRecord();
+                    for (String column : row.keySet()) {
+                        if (!columns.contains(column)) {
+                            dropped.add(column);
+                        }
+                    }
+                } else {
+                    break;
+                }
+                generator.writeStartArray();
+                for (String column : columns) {
+                    // 缺失的列和 null 都写为空字段
+                    String value = row.get(column);
+                    generator.writeString(value == null ? "" : value);
+                }
+                generator.writeEndArray();
+                records++;
+            }
+        }
+        return new Result(records, 0, dropped.size());
+    }
+
+    /**
+     * 移动到下一条记录的第一个 token；顶层数组被展开为多条记录
+     *
+     * @return 是否还有记录
+     */
+    private boolean nextRecord() throws IOException {
+        JsonToken token = nextToken();
+        while (token != null) {
+            if (!inRootArray && token == JsonToken.START_ARRAY) {
+                inRootArray = true;
+            } else if (inRootArray && token == JsonToken.END_ARRAY) {
+                inRootArray = false;
+            } else {
+                return true;
+            }
+            token = nextToken();
+        }
+        return false;
+    }
+
+    /**
+     * 读取当前记录并展开为列名 → 文本值：嵌套对象的属性名以 . 连接，数组写为紧凑的 JSON
+     */
+    private Map<String, String> flattenRecord() throws IOException {
+        JsonNode record = RECORD_READER.readTree(parser);
+        Map<String, String> row = new LinkedHashMap<>();
+        if (record.isObject()) {
+            flatten("", record, row);
+        } else {
+            flatten("value", record, row);
+        }
+        return row;
+    }
+
+    private static void flatten(String prefix, JsonNode node, Map<String, String> row) throws IOException {
+        if (node.isObject() && (prefix.isEmpty() || node.size() > 0)) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                flatten(prefix.isEmpty() ? field.getKey() : prefix + "." + field.getKey(), field.getValue(), row);
+            }
+        } else if (node.isContainerNode()) {
+            row.put(prefix, JsonEngine.writer().writeValueAsString(node));
+        } else if (node.isNull()) {
+            row.put(prefix, null);
+        } else {
+            row.put(prefix, node.asText());
+        }
+    }
+
+    /**
+     * 复制当前 token 开始的完整值
+     */
+    private void copyValue(JsonGenerator generator) throws IOException {
+        int depth = 0;
+        JsonToken token = parser.currentToken();
+        while (true) {
+            copyEvent(generator);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+            if (depth == 0) {
+                return;
+            }
+            token = nextToken();
+        }
+    }
+
+    private void copyEvent(JsonGenerator generator) throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            // 数字按原始文本输出，不经过 double 转换
+            generator.writeNumber(parser.getText());
+        } else {
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    private JsonToken nextToken() throws IOException {
+        if (++tokens % CHECK_INTERVAL == 0) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            progress.accept(position(parser));
+        }
+        return parser.nextToken();
+    }
+
+    private static long position(JsonParser parser) {
+        JsonLocation location = parser.getCurrentLocation();
+        return location.getByteOffset() >= 0 ? location.getByteOffset() : location.getCharOffset();
+    }
+}
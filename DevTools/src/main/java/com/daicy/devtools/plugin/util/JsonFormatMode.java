@@ -0,0 +1,32 @@
+package com.daicy.devtools.plugin.util;
+
+/**
+ * JSON 输出模式
+ *
+ * @author daicy
+ */
+public enum JsonFormatMode {
+    /**
+     * 美化：缩进换行
+     */
+    PRETTY("美化"),
+    /**
+     * 压缩：去除所有空白
+     */
+    MINIFY("压缩"),
+    /**
+     * 规范化：键排序、数字归一化、无空白，便于比较和计算哈希
+     */
+    CANONICAL("规范化");
+
+    private final String label;
+
+    JsonFormatMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
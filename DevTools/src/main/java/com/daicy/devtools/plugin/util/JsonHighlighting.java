@@ -1,73 +1,210 @@
 package com.daicy.devtools.plugin.util;
 
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
 
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
 
-import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 
 /**
  * JSON 语法高亮工具类
- * 
- * <p>提供 JSON 代码的语法高亮功能。
- * 
+ *
+ * <p>提供 JSON 代码的语法高亮功能。词法分析是手写的单遍扫描，
+ * 可以从任意段落的 {@link LexState} 开始，供 {@link IncrementalJsonHighlighter}
+ * 按段落增量高亮使用。
+ *
  * @author daicy
  */
 public class JsonHighlighting {
 
-    private final static JsonFactory jsonFactory = new JsonFactory();
+    /**
+     * 词法单元回调
+     */
+    public interface TokenSink {
+        void token(int start, int end, String styleClass);
+    }
 
-    public static StyleSpans<Collection<String>> highlight(String code) {
-        List<Match> matches = new ArrayList<>();
-
-        try {
-            JsonParser parser = jsonFactory.createParser(code);
-            while (!parser.isClosed()) {
-                JsonToken jsonToken = parser.nextToken();
-                int start = (int) parser.getTokenLocation().getCharOffset();
-                int end = start + parser.getTextLength();
-
-                // Because getTextLength() does contain the surrounding ""
-                if(jsonToken == JsonToken.VALUE_STRING || jsonToken == JsonToken.FIELD_NAME) {
-                    end += 2;
-                }
+    /**
+     * 段落起始处的词法状态：容器栈以及当前对象是否在等待属性名
+     *
+     * <p>不可变对象，相同前缀的栈帧在段落之间共享。{@code null} 表示位于顶层。
+     */
+    public static final class LexState {
+        private final LexState parent;
+        private final boolean object;
+        private final boolean expectKey;
+        // expectKey 取反的同位状态，缓存后逐行切换时不再分配新对象
+        private LexState twin;
 
-                String className = jsonTokenToClassName(jsonToken);
-                if (!className.isEmpty()) {
-                    Match m = new Match(className, start, end);
-                    matches.add(m);
+        private LexState(LexState parent, boolean object, boolean expectKey) {
+            this.parent = parent;
+            this.object = object;
+            this.expectKey = expectKey;
+        }
+
+        private LexState withExpectKey(boolean value) {
+            if (value == expectKey) {
+                return this;
+            }
+            if (twin == null) {
+                twin = new LexState(parent, object, value);
+                twin.twin = this;
+            }
+            return twin;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            LexState a = this;
+            Object b = o;
+            while (a != b) {
+                if (!(b instanceof LexState)) {
+                    return false;
+                }
+                LexState other = (LexState) b;
+                if (a.object != other.object || a.expectKey != other.expectKey) {
+                    return false;
                 }
+                a = a.parent;
+                b = other.parent;
+                if (a == null) {
+                    return b == null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            for (LexState s = this; s != null; s = s.parent) {
+                hash = hash * 31 + (s.object ? 2 : 0) + (s.expectKey ? 1 : 0);
             }
-        } catch (IOException e) {
-            // JSON parsing error, ignore
+            return hash;
         }
+    }
 
+    public static StyleSpans<Collection<String>> highlight(String code) {
         StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
-        int lastPos = 0;
-        for (Match match : matches) {
+        spanLine(code, null, spansBuilder);
+        return spansBuilder.create();
+    }
+
+    /**
+     * 对一段文本做词法分析并写入样式，文本之间的空隙使用空样式补齐
+     *
+     * @param text 要分析的文本，通常是一个段落
+     * @param state 文本起始处的词法状态
+     * @param spansBuilder 样式输出
+     * @return 文本结束处的词法状态
+     */
+    public static LexState spanLine(CharSequence text, LexState state, StyleSpansBuilder<Collection<String>> spansBuilder) {
+        int[] lastPos = {0};
+        LexState end = lex(text, state, (start, stop, styleClass) -> {
             // Fill the gaps, since Style Spans need to be contiguous.
-            if (match.start > lastPos) {
-                int length = match.start - lastPos;
-                spansBuilder.add(Collections.emptyList(), length);
+            if (start > lastPos[0]) {
+                spansBuilder.add(Collections.emptyList(), start - lastPos[0]);
             }
+            spansBuilder.add(Collections.singleton(styleClass), stop - start);
+            lastPos[0] = stop;
+        });
+        spansBuilder.add(Collections.emptyList(), text.length() - lastPos[0]);
+        return end;
+    }
 
-            int length = match.end - match.start;
-            spansBuilder.add(Collections.singleton(match.kind), length);
-            lastPos = match.end;
-        }
-
-        if(lastPos == 0) {
-            spansBuilder.add(Collections.emptyList(), code.length());
+    /**
+     * 单遍扫描文本，输出需要着色的词法单元
+     *
+     * <p>字符串不跨行：未闭合的字符串在换行处结束，因此一行的错误不会影响后续段落的状态。
+     *
+     * @param text 要分析的文本
+     * @param state 文本起始处的词法状态
+     * @param sink 词法单元回调，为 {@code null} 时只计算结束状态
+     * @return 文本结束处的词法状态
+     */
+    public static LexState lex(CharSequence text, LexState state, TokenSink sink) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': {
+                    int end = i + 1;
+                    while (end < length) {
+                        char ch = text.charAt(end);
+                        if (ch == '\\') {
+                            end += 2;
+                        } else if (ch == '"') {
+                            end++;
+                            break;
+                        } else if (ch == '\n') {
+                            break;
+                        } else {
+                            end++;
+                        }
+                    }
+                    end = Math.min(end, length);
+                    if (sink != null) {
+                        boolean property = state != null && state.object && state.expectKey;
+                        sink.token(i, end, jsonTokenToClassName(property ? JsonToken.FIELD_NAME : JsonToken.VALUE_STRING));
+                    }
+                    i = end;
+                    break;
+                }
+                case '{':
+                    state = new LexState(state, true, true);
+                    i++;
+                    break;
+                case '[':
+                    state = new LexState(state, false, false);
+                    i++;
+                    break;
+                case '}':
+                case ']':
+                    state = state == null ? null : state.parent;
+                    i++;
+                    break;
+                case ':':
+                    if (state != null && state.object) {
+                        state = state.withExpectKey(false);
+                    }
+                    i++;
+                    break;
+                case ',':
+                    if (state != null && state.object) {
+                        state = state.withExpectKey(true);
+                    }
+                    i++;
+                    break;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        int end = i + 1;
+                        while (end < length && isNumberPart(text.charAt(end))) {
+                            end++;
+                        }
+                        if (sink != null) {
+                            sink.token(i, end, jsonTokenToClassName(JsonToken.VALUE_NUMBER_INT));
+                        }
+                        i = end;
+                    } else if (Character.isLetter(c)) {
+                        // true / false / null 等字面量不着色，整体跳过
+                        i++;
+                        while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                            i++;
+                        }
+                    } else {
+                        i++;
+                    }
+                    break;
+            }
         }
+        return state;
+    }
 
-        return spansBuilder.create();
+    private static boolean isNumberPart(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
     }
 
     public static String jsonTokenToClassName(JsonToken jsonToken) {
@@ -87,4 +224,4 @@ public class JsonHighlighting {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,243 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JSONPath 表达式
+ *
+ * <p>支持的语法：{@code $}、{@code .name}、{@code ['name']}、{@code [n]}（可为负数）、
+ * {@code [start:end]}、{@code [*]}、{@code .*} 以及递归下降 {@code ..name}、{@code ..*}。
+ *
+ * <p>求值基于 {@link JsonStructureIndex} 在原文上跳跃扫描：不匹配的子树通过索引直接跳过，
+ * 只有命中的值才会交给调用方解析。
+ *
+ * @author daicy
+ */
+public class JsonPath {
+
+    /**
+     * 匹配结果回调，参数为命中值在原文中的 [start, end) 范围
+     */
+    public interface MatchConsumer {
+        void accept(int start, int end);
+    }
+
+    private enum Kind { NAME, INDEX, SLICE, WILDCARD }
+
+    private static final class Step {
+        final Kind kind;
+        final boolean recursive;
+        final String name;
+        final int from;
+        final int to;
+
+        Step(Kind kind, boolean recursive, String name, int from, int to) {
+            this.kind = kind;
+            this.recursive = recursive;
+            this.name = name;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private final String expression;
+    private final List<Step> steps;
+
+    private JsonPath(String expression, List<Step> steps) {
+        this.expression = expression;
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * 编译 JSONPath 表达式
+     *
+     * @param expression 表达式，例如 {@code $.items[*].id}
+     * @return 编译后的表达式
+     * @throws IllegalArgumentException 表达式语法错误
+     */
+    public static JsonPath compile(String expression) {
+        String path = expression.trim();
+        int pos = 0;
+        if (path.startsWith("$")) {
+            pos = 1;
+        }
+        List<Step> steps = new ArrayList<>();
+        while (pos < path.length()) {
+            boolean recursive = false;
+            char c = path.charAt(pos);
+            if (c == '.') {
+                if (pos + 1 < path.length() && path.charAt(pos + 1) == '.') {
+                    recursive = true;
+                    pos++;
+                }
+                pos++;
+                if (pos >= path.length()) {
+                    throw new IllegalArgumentException("表达式不完整: " + expression);
+                }
+                if (path.charAt(pos) == '[') {
+                    if (!recursive) {
+                        throw new IllegalArgumentException("'.' 之后不能直接跟 '['，位置 " + pos);
+                    }
+                    continue;
+                }
+                if (path.charAt(pos) == '*') {
+                    steps.add(new Step(Kind.WILDCARD, recursive, null, 0, 0));
+                    pos++;
+                    continue;
+                }
+                int end = pos;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == pos) {
+                    throw new IllegalArgumentException("缺少属性名，位置 " + pos);
+                }
+                steps.add(new Step(Kind.NAME, recursive, path.substring(pos, end), 0, 0));
+                pos = end;
+            } else if (c == '[') {
+                // 递归下降后紧跟 [...] 的情况，例如 $..[0]
+                recursive = pos >= 2 && path.charAt(pos - 1) == '.' && path.charAt(pos - 2) == '.';
+                int close = findClosingBracket(path, pos);
+                steps.add(parseBracket(path.substring(pos + 1, close).trim(), recursive, expression));
+                pos = close + 1;
+            } else {
+                throw new IllegalArgumentException("无法识别的字符 '" + c + "'，位置 " + pos);
+            }
+        }
+        return new JsonPath(expression, steps);
+    }
+
+    private static int findClosingBracket(String path, int open) {
+        char quote = 0;
+        for (int i = open + 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("缺少 ']'，位置 " + open);
+    }
+
+    private static Step parseBracket(String content, boolean recursive, String expression) {
+        if (content.equals("*")) {
+            return new Step(Kind.WILDCARD, recursive, null, 0, 0);
+        }
+        if (content.length() >= 2 && (content.charAt(0) == '\'' || content.charAt(0) == '"')
+                && content.charAt(content.length() - 1) == content.charAt(0)) {
+            return new Step(Kind.NAME, recursive, content.substring(1, content.length() - 1), 0, 0);
+        }
+        try {
+            int colon = content.indexOf(':');
+            if (colon >= 0) {
+                String from = content.substring(0, colon).trim();
+                String to = content.substring(colon + 1).trim();
+                return new Step(Kind.SLICE, recursive, null,
+                        from.isEmpty() ? 0 : Integer.parseInt(from),
+                        to.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(to));
+            }
+            return new Step(Kind.INDEX, recursive, null, Integer.parseInt(content), 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无法识别的下标 [" + content + "]: " + expression);
+        }
+    }
+
+    /**
+     * 在索引对应的文本上求值
+     *
+     * @param index 结构索引
+     * @param consumer 命中值回调，按遍历顺序调用；回调抛出的运行时异常会中止求值
+     */
+    public void evaluate(JsonStructureIndex index, MatchConsumer consumer) {
+        int root = index.skipWhitespace(0);
+        if (root >= index.getText().length()) {
+            return;
+        }
+        walk(index, root, index.valueEnd(root), 0, consumer);
+    }
+
+    private void walk(JsonStructureIndex index, int start, int end, int stepIndex, MatchConsumer consumer) {
+        if (stepIndex == steps.size()) {
+            consumer.accept(start, end);
+            return;
+        }
+        int container = index.containerAt(start);
+        if (container < 0) {
+            return;
+        }
+        Step step = steps.get(stepIndex);
+        select(index, container, step, (valueStart, valueEnd) -> walk(index, valueStart, valueEnd, stepIndex + 1, consumer));
+        if (step.recursive) {
+            // 递归下降：同一步骤继续作用于所有子容器
+            index.forEachMember(container, -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+                walk(index, valueStart, valueEnd, stepIndex, consumer);
+                return true;
+            });
+        }
+    }
+
+    private static void select(JsonStructureIndex index, int container, Step step, MatchConsumer consumer) {
+        boolean object = index.isObject(container);
+        switch (step.kind) {
+            case WILDCARD:
+                index.forEachMember(container, -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+                    consumer.accept(valueStart, valueEnd);
+                    return true;
+                });
+                break;
+            case NAME:
+                if (object) {
+                    index.forEachMember(container, -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+                        if (index.keyEquals(keyStart, keyEnd, step.name)) {
+                            consumer.accept(valueStart, valueEnd);
+                            return false;
+                        }
+                        return true;
+                    });
+                }
+                break;
+            case INDEX:
+                if (!object) {
+                    int target = step.from < 0 ? step.from + index.getChildCount(container) : step.from;
+                    selectRange(index, container, target, target + 1, consumer);
+                }
+                break;
+            case SLICE:
+                if (!object) {
+                    int count = index.getChildCount(container);
+                    int from = step.from < 0 ? Math.max(0, step.from + count) : step.from;
+                    int to = step.to < 0 ? step.to + count : Math.min(step.to, count);
+                    selectRange(index, container, from, to, consumer);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void selectRange(JsonStructureIndex index, int container, int from, int to, MatchConsumer consumer) {
+        if (from < 0 || from >= to) {
+            return;
+        }
+        int[] position = {0};
+        index.forEachMember(container, -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+            int current = position[0]++;
+            if (current >= from) {
+                consumer.accept(valueStart, valueEnd);
+            }
+            return position[0] < to;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
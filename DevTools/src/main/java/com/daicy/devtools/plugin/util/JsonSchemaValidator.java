@@ -0,0 +1,704 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.daicy.core.JsonEngine;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 编译后的 JSON Schema 校验器
+ *
+ * <p>Schema 只在第一次使用时编译为校验节点树，之后按内容的 SHA-256 缓存，
+ * 再次校验同一个 Schema 时不会重新解析。校验在文档的流式解析过程中单遍完成，
+ * 没有对应 Schema 的子树直接跳过；只有用到 enum/const 的对象和数组才会被读成树。
+ *
+ * <p>支持的关键字：type、enum、const、properties、patternProperties、additionalProperties、
+ * required、minProperties、maxProperties、items、minItems、maxItems、minLength、maxLength、
+ * pattern、minimum、maximum、exclusiveMinimum、exclusiveMaximum（数值和 draft-04 的布尔形式）、
+ * multipleOf、allOf、anyOf、oneOf、not，以及指向本文档内部的 $ref。
+ * 不支持 format、uniqueItems、dependencies 和远程引用。
+ *
+ * @author daicy
+ */
+public class JsonSchemaValidator {
+
+    /**
+     * 单次校验最多记录的违规数，超出后只计数
+     */
+    private static final int MAX_VIOLATIONS = 10_000;
+    private static final int CACHE_SIZE = 16;
+
+    // Schema 内容的 SHA-256 → 编译结果，按访问顺序淘汰
+    private static final Map<String, JsonSchemaValidator> cache = new LinkedHashMap<String, JsonSchemaValidator>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JsonSchemaValidator> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * 一条违规
+     */
+    public static final class Violation {
+        private final int offset;
+        private final String path;
+        private final String message;
+
+        Violation(int offset, String path, String message) {
+            this.offset = offset;
+            this.path = path;
+            this.message = message;
+        }
+
+        /**
+         * @return 违规值在文档中的字符偏移
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return path + " : " + message;
+        }
+    }
+
+    /**
+     * 校验结果
+     */
+    public static final class Result {
+        private final List<Violation> violations;
+        private final int totalCount;
+
+        Result(List<Violation> violations, int totalCount) {
+            this.violations = violations;
+            this.totalCount = totalCount;
+        }
+
+        /**
+         * @return 记录下来的违规，最多 {@value #MAX_VIOLATIONS} 条
+         */
+        public List<Violation> getViolations() {
+            return violations;
+        }
+
+        /**
+         * @return 违规总数
+         */
+        public int getTotalCount() {
+            return totalCount;
+        }
+    }
+
+    private final Schema root;
+
+    private JsonSchemaValidator(Schema root) {
+        this.root = root;
+    }
+
+    /**
+     * 编译 Schema，内容相同的 Schema 直接返回缓存的校验器
+     *
+     * @param schemaText Schema 文本
+     * @return 校验器
+     * @throws IOException Schema 不是合法的 JSON
+     * @throws IllegalArgumentException Schema 内容不合法，例如 $ref 无法解析
+     */
+    public static JsonSchemaValidator compile(String schemaText) throws IOException {
+        String key = sha256(schemaText);
+        synchronized (cache) {
+            JsonSchemaValidator cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        JsonNode schemaNode = JsonEngine.readTree(schemaText);
+        JsonSchemaValidator validator = new JsonSchemaValidator(new Compiler(schemaNode).compile(schemaNode, "#"));
+        synchronized (cache) {
+            cache.put(key, validator);
+        }
+        return validator;
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 单遍流式校验文档
+     *
+     * @param json 文档
+     * @return 校验结果
+     * @throws IOException 文档不是合法的 JSON
+     */
+    public Result validate(String json) throws IOException {
+        return JsonEngine.timed("schema-validate", () -> {
+            Sink sink = new Sink(new ArrayList<>());
+            try (JsonParser parser = JsonEngine.createParser(json)) {
+                JsonToken token = parser.nextToken();
+                if (token != null) {
+                    validateValue(parser, token, Collections.singletonList(new Check(root, sink)), Path.ROOT, -1);
+                }
+            }
+            return new Result(sink.violations, sink.count);
+        });
+    }
+
+    // ---------------------------------------------------------------- 校验
+
+    /**
+     * 违规收集器；组合关键字的分支只需要知道是否失败，不保存违规内容
+     */
+    private static final class Sink {
+        final List<Violation> violations;
+        int count;
+
+        Sink(List<Violation> violations) {
+            this.violations = violations;
+        }
+
+        void add(int offset, Path path, String message) {
+            count++;
+            if (violations != null && violations.size() < MAX_VIOLATIONS) {
+                violations.add(new Violation(offset, path.toString(), message));
+            }
+        }
+    }
+
+    /**
+     * 作用于当前值的一个 Schema 及其违规收集器
+     */
+    private static final class Check {
+        final Schema schema;
+        final Sink sink;
+
+        Check(Schema schema, Sink sink) {
+            this.schema = schema;
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * anyOf/oneOf/not 的分支，在值读取完毕后汇总
+     */
+    private static final class Combination {
+        final String keyword;
+        final Sink parent;
+        final List<Sink> branches;
+
+        Combination(String keyword, Sink parent, List<Sink> branches) {
+            this.keyword = keyword;
+            this.parent = parent;
+            this.branches = branches;
+        }
+    }
+
+    private static void validateValue(JsonParser parser, JsonToken token, List<Check> checks, Path path, int fixedOffset) throws IOException {
+        int offset = fixedOffset >= 0 ? fixedOffset : (int) parser.getTokenLocation().getCharOffset();
+        List<Check> expanded = new ArrayList<>(checks.size());
+        List<Combination> combinations = new ArrayList<>(0);
+        boolean needsTree = false;
+        for (Check check : checks) {
+            needsTree |= expand(check.schema, check.sink, offset, path, expanded, combinations);
+        }
+        if (needsTree || !token.isStructStart()) {
+            // enum/const 需要完整的值：读成树后比较，再在树上继续校验子结构
+            JsonNode value = parser.readValueAsTree();
+            checkValue(value, expanded, offset, path);
+            if (token.isStructStart()) {
+                try (JsonParser treeParser = value.traverse(parser.getCodec())) {
+                    validateStructure(treeParser, treeParser.nextToken(), expanded, path, offset);
+                }
+            }
+        } else {
+            validateStructure(parser, token, expanded, path, fixedOffset);
+        }
+        for (Combination combination : combinations) {
+            int passed = 0;
+            for (Sink branch : combination.branches) {
+                if (branch.count == 0) {
+                    passed++;
+                }
+            }
+            switch (combination.keyword) {
+                case "anyOf":
+                    if (passed == 0) {
+                        combination.parent.add(offset, path, "不满足 anyOf 中的任何一个 Schema");
+                    }
+                    break;
+                case "oneOf":
+                    if (passed != 1) {
+                        combination.parent.add(offset, path, "应恰好满足 oneOf 中的一个 Schema，实际满足 " + passed + " 个");
+                    }
+                    break;
+                default:
+                    if (passed == 1) {
+                        combination.parent.add(offset, path, "不应满足 not 中的 Schema");
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 展开 allOf/$ref/anyOf/oneOf/not，并检查类型
+     *
+     * @return 是否有 Schema 需要完整的值（enum/const）
+     */
+    private static boolean expand(Schema schema, Sink sink, int offset, Path path, List<Check> expanded, List<Combination> combinations) {
+        if (schema.alwaysFalse) {
+            sink.add(offset, path, "Schema 不允许任何值");
+            return false;
+        }
+        expanded.add(new Check(schema, sink));
+        boolean needsTree = schema.enumValues != null || schema.constValue != null;
+        if (schema.ref != null) {
+            needsTree |= expand(schema.ref, sink, offset, path, expanded, combinations);
+        }
+        for (Schema sub : schema.allOf) {
+            needsTree |= expand(sub, sink, offset, path, expanded, combinations);
+        }
+        needsTree |= expandBranches("anyOf", schema.anyOf, sink, offset, path, expanded, combinations);
+        needsTree |= expandBranches("oneOf", schema.oneOf, sink, offset, path, expanded, combinations);
+        if (schema.not != null) {
+            needsTree |= expandBranches("not", Collections.singletonList(schema.not), sink, offset, path, expanded, combinations);
+        }
+        return needsTree;
+    }
+
+    private static boolean expandBranches(String keyword, List<Schema> schemas, Sink sink, int offset, Path path,
+                                          List<Check> expanded, List<Combination> combinations) {
+        if (schemas.isEmpty()) {
+            return false;
+        }
+        boolean needsTree = false;
+        List<Sink> branches = new ArrayList<>(schemas.size());
+        for (Schema sub : schemas) {
+            Sink branch = new Sink(null);
+            branches.add(branch);
+            needsTree |= expand(sub, branch, offset, path, expanded, combinations);
+        }
+        // 内层组合先加入列表，先于外层汇总
+        combinations.add(new Combination(keyword, sink, branches));
+        return needsTree;
+    }
+
+    private static void validateStructure(JsonParser parser, JsonToken token, List<Check> checks, Path path, int fixedOffset) throws IOException {
+        int offset = fixedOffset >= 0 ? fixedOffset : (int) parser.getTokenLocation().getCharOffset();
+        if (token == JsonToken.START_OBJECT) {
+            checkType(checks, "object", offset, path);
+            Set<String> names = new HashSet<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                int nameOffset = fixedOffset >= 0 ? fixedOffset : (int) parser.getTokenLocation().getCharOffset();
+                names.add(name);
+                Path childPath = new Path(path, name, -1);
+                List<Check> childChecks = new ArrayList<>(0);
+                for (Check check : checks) {
+                    Schema schema = check.schema;
+                    boolean matched = false;
+                    Schema property = schema.properties.get(name);
+                    if (property != null) {
+                        childChecks.add(new Check(property, check.sink));
+                        matched = true;
+                    }
+                    for (Map.Entry<Pattern, Schema> entry : schema.patternProperties.entrySet()) {
+                        if (entry.getKey().matcher(name).find()) {
+                            childChecks.add(new Check(entry.getValue(), check.sink));
+                            matched = true;
+                        }
+                    }
+                    if (!matched) {
+                        if (schema.additionalForbidden) {
+                            check.sink.add(nameOffset, childPath, "不允许的属性 \"" + name + "\"");
+                        } else if (schema.additional != null) {
+                            childChecks.add(new Check(schema.additional, check.sink));
+                        }
+                    }
+                }
+                JsonToken valueToken = parser.nextToken();
+                if (childChecks.isEmpty()) {
+                    parser.skipChildren();
+                } else {
+                    validateValue(parser, valueToken, childChecks, childPath, fixedOffset);
+                }
+            }
+            for (Check check : checks) {
+                Schema schema = check.schema;
+                for (String required : schema.required) {
+                    if (!names.contains(required)) {
+                        check.sink.add(offset, path, "缺少必需的属性 \"" + required + "\"");
+                    }
+                }
+                checkRange(check, names.size(), schema.minProperties, schema.maxProperties, "属性个数", offset, path);
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            checkType(checks, "array", offset, path);
+            List<Check> itemChecks = new ArrayList<>(0);
+            for (Check check : checks) {
+                if (check.schema.items != null) {
+                    itemChecks.add(new Check(check.schema.items, check.sink));
+                }
+            }
+            int count = 0;
+            JsonToken itemToken;
+            while ((itemToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (itemChecks.isEmpty()) {
+                    parser.skipChildren();
+                } else {
+                    validateValue(parser, itemToken, itemChecks, new Path(path, null, count), fixedOffset);
+                }
+                count++;
+            }
+            for (Check check : checks) {
+                checkRange(check, count, check.schema.minItems, check.schema.maxItems, "元素个数", offset, path);
+            }
+        }
+    }
+
+    /**
+     * 检查标量的类型和约束，以及所有值的 enum/const
+     */
+    private static void checkValue(JsonNode value, List<Check> checks, int offset, Path path) {
+        for (Check check : checks) {
+            Schema schema = check.schema;
+            if (schema.enumValues != null && !schema.enumValues.contains(value)) {
+                check.sink.add(offset, path, "值不在 enum 列表中");
+            }
+            if (schema.constValue != null && !schema.constValue.equals(value)) {
+                check.sink.add(offset, path, "值应等于 const " + schema.constValue);
+            }
+        }
+        if (value.isContainerNode()) {
+            return;
+        }
+        String type = typeOf(value);
+        checkType(checks, type, offset, path);
+        if (value.isTextual()) {
+            String text = value.textValue();
+            int length = text.codePointCount(0, text.length());
+            for (Check check : checks) {
+                checkRange(check, length, check.schema.minLength, check.schema.maxLength, "字符串长度", offset, path);
+                if (check.schema.pattern != null && !check.schema.pattern.matcher(text).find()) {
+                    check.sink.add(offset, path, "字符串不匹配 pattern " + check.schema.pattern.pattern());
+                }
+            }
+        } else if (value.isNumber()) {
+            BigDecimal number = value.decimalValue();
+            for (Check check : checks) {
+                Schema schema = check.schema;
+                if (schema.minimum != null && number.compareTo(schema.minimum) < 0) {
+                    check.sink.add(offset, path, "应大于等于 " + schema.minimum.toPlainString());
+                }
+                if (schema.maximum != null && number.compareTo(schema.maximum) > 0) {
+                    check.sink.add(offset, path, "应小于等于 " + schema.maximum.toPlainString());
+                }
+                if (schema.exclusiveMinimum != null && number.compareTo(schema.exclusiveMinimum) <= 0) {
+                    check.sink.add(offset, path, "应大于 " + schema.exclusiveMinimum.toPlainString());
+                }
+                if (schema.exclusiveMaximum != null && number.compareTo(schema.exclusiveMaximum) >= 0) {
+                    check.sink.add(offset, path, "应小于 " + schema.exclusiveMaximum.toPlainString());
+                }
+                if (schema.multipleOf != null && number.remainder(schema.multipleOf).signum() != 0) {
+                    check.sink.add(offset, path, "应为 " + schema.multipleOf.toPlainString() + " 的倍数");
+                }
+            }
+        }
+    }
+
+    private static String typeOf(JsonNode value) {
+        if (value.isTextual()) {
+            return "string";
+        }
+        if (value.isIntegralNumber()) {
+            return "integer";
+        }
+        if (value.isNumber()) {
+            // 1.0 也是整数
+            return value.decimalValue().stripTrailingZeros().scale() <= 0 ? "integer" : "number";
+        }
+        if (value.isBoolean()) {
+            return "boolean";
+        }
+        return "null";
+    }
+
+    private static void checkType(List<Check> checks, String type, int offset, Path path) {
+        for (Check check : checks) {
+            Set<String> types = check.schema.types;
+            if (types != null && !types.contains(type) && !("integer".equals(type) && types.contains("number"))) {
+                check.sink.add(offset, path, "类型应为 " + String.join(" | ", types) + "，实际为 " + type);
+            }
+        }
+    }
+
+    private static void checkRange(Check check, int value, Integer min, Integer max, String what, int offset, Path path) {
+        if (min != null && value < min) {
+            check.sink.add(offset, path, what + "应不少于 " + min + "，实际为 " + value);
+        }
+        if (max != null && value > max) {
+            check.sink.add(offset, path, what + "应不多于 " + max + "，实际为 " + value);
+        }
+    }
+
+    /**
+     * 值在文档中的路径，只在报告违规时才拼接成字符串
+     */
+    private static final class Path {
+        static final Path ROOT = new Path(null, null, -1);
+
+        final Path parent;
+        final String name;
+        final int index;
+
+        Path(Path parent, String name, int index) {
+            this.parent = parent;
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            if (parent == null) {
+                return "$";
+            }
+            return name == null ? parent + "[" + index + "]" : parent + "." + name;
+        }
+    }
+
+    // ---------------------------------------------------------------- 编译
+
+    /**
+     * 编译后的 Schema 节点
+     */
+    private static final class Schema {
+        boolean alwaysFalse;
+        Set<String> types;
+        List<JsonNode> enumValues;
+        JsonNode constValue;
+        Map<String, Schema> properties = Collections.emptyMap();
+        Map<Pattern, Schema> patternProperties = Collections.emptyMap();
+        Schema additional;
+        boolean additionalForbidden;
+        List<String> required = Collections.emptyList();
+        Integer minProperties;
+        Integer maxProperties;
+        Schema items;
+        Integer minItems;
+        Integer maxItems;
+        Integer minLength;
+        Integer maxLength;
+        Pattern pattern;
+        BigDecimal minimum;
+        BigDecimal maximum;
+        BigDecimal exclusiveMinimum;
+        BigDecimal exclusiveMaximum;
+        BigDecimal multipleOf;
+        List<Schema> allOf = Collections.emptyList();
+        List<Schema> anyOf = Collections.emptyList();
+        List<Schema> oneOf = Collections.emptyList();
+        Schema not;
+        Schema ref;
+    }
+
+    private static final class Compiler {
+        private final JsonNode rootNode;
+        // $ref → 编译结果，先放入占位节点以支持递归引用
+        private final Map<String, Schema> refs = new HashMap<>();
+
+        Compiler(JsonNode rootNode) {
+            this.rootNode = rootNode;
+        }
+
+        /**
+         * @param path 该 Schema 在文档中的 JSON Pointer，用于错误提示
+         */
+        Schema compile(JsonNode node, String path) {
+            Schema schema = new Schema();
+            fill(schema, node, path);
+            return schema;
+        }
+
+        private void fill(Schema schema, JsonNode node, String path) {
+            if (node.isBoolean()) {
+                schema.alwaysFalse = !node.booleanValue();
+                return;
+            }
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Schema 必须是对象或布尔值: " + node);
+            }
+            JsonNode type = node.get("type");
+            if (type != null) {
+                schema.types = new HashSet<>();
+                if (type.isArray()) {
+                    type.forEach(item -> schema.types.add(item.asText()));
+                } else {
+                    schema.types.add(type.asText());
+                }
+            }
+            if (node.has("enum")) {
+                schema.enumValues = new ArrayList<>();
+                node.get("enum").forEach(schema.enumValues::add);
+            }
+            schema.constValue = node.get("const");
+            if (node.has("properties")) {
+                schema.properties = new HashMap<>();
+                node.get("properties").fields().forEachRemaining(entry -> schema.properties.put(entry.getKey(),
+                        compile(entry.getValue(), child(path, "properties", entry.getKey()))));
+            }
+            if (node.has("patternProperties")) {
+                schema.patternProperties = new LinkedHashMap<>();
+                node.get("patternProperties").fields().forEachRemaining(entry ->
+                        schema.patternProperties.put(compilePattern(entry.getKey()),
+                                compile(entry.getValue(), child(path, "patternProperties", entry.getKey()))));
+            }
+            JsonNode additional = node.get("additionalProperties");
+            if (additional != null) {
+                if (additional.isBoolean()) {
+                    schema.additionalForbidden = !additional.booleanValue();
+                } else {
+                    schema.additional = compile(additional, path + "/additionalProperties");
+                }
+            }
+            if (node.has("required")) {
+                schema.required = new ArrayList<>();
+                node.get("required").forEach(item -> schema.required.add(item.asText()));
+            }
+            schema.minProperties = intValue(node, "minProperties");
+            schema.maxProperties = intValue(node, "maxProperties");
+            if (node.has("items") && !node.get("items").isArray()) {
+                schema.items = compile(node.get("items"), path + "/items");
+            }
+            schema.minItems = intValue(node, "minItems");
+            schema.maxItems = intValue(node, "maxItems");
+            schema.minLength = intValue(node, "minLength");
+            schema.maxLength = intValue(node, "maxLength");
+            if (node.has("pattern")) {
+                schema.pattern = compilePattern(node.get("pattern").asText());
+            }
+            schema.minimum = decimalValue(node, "minimum");
+            schema.maximum = decimalValue(node, "maximum");
+            // draft-04 中 exclusiveMinimum/exclusiveMaximum 是修饰 minimum/maximum 的布尔值
+            JsonNode exclusiveMinimum = node.get("exclusiveMinimum");
+            if (exclusiveMinimum != null && exclusiveMinimum.isBoolean()) {
+                if (exclusiveMinimum.booleanValue()) {
+                    schema.exclusiveMinimum = schema.minimum;
+                    schema.minimum = null;
+                }
+            } else {
+                schema.exclusiveMinimum = decimalValue(node, "exclusiveMinimum");
+            }
+            JsonNode exclusiveMaximum = node.get("exclusiveMaximum");
+            if (exclusiveMaximum != null && exclusiveMaximum.isBoolean()) {
+                if (exclusiveMaximum.booleanValue()) {
+                    schema.exclusiveMaximum = schema.maximum;
+                    schema.maximum = null;
+                }
+            } else {
+                schema.exclusiveMaximum = decimalValue(node, "exclusiveMaximum");
+            }
+            schema.multipleOf = decimalValue(node, "multipleOf");
+            if (schema.multipleOf != null && schema.multipleOf.signum() <= 0) {
+                // 校验时用作除数，为 0 时无法计算余数
+                throw new IllegalArgumentException("multipleOf 必须大于 0: " + schema.multipleOf.toPlainString()
+                        + "（位于 " + path + "/multipleOf）");
+            }
+            schema.allOf = compileList(node.get("allOf"), path + "/allOf");
+            schema.anyOf = compileList(node.get("anyOf"), path + "/anyOf");
+            schema.oneOf = compileList(node.get("oneOf"), path + "/oneOf");
+            if (node.has("not")) {
+                schema.not = compile(node.get("not"), path + "/not");
+            }
+            if (node.has("$ref")) {
+                schema.ref = resolve(node.get("$ref").asText());
+            }
+        }
+
+        private List<Schema> compileList(JsonNode node, String path) {
+            if (node == null || !node.isArray()) {
+                return Collections.emptyList();
+            }
+            List<Schema> schemas = new ArrayList<>(node.size());
+            for (int i = 0; i < node.size(); i++) {
+                schemas.add(compile(node.get(i), path + "/" + i));
+            }
+            return schemas;
+        }
+
+        /**
+         * 在 JSON Pointer 后追加关键字和属性名，属性名中的 ~ 和 / 按 RFC 6901 转义
+         */
+        private static String child(String path, String keyword, String name) {
+            return path + "/" + keyword + "/" + name.replace("~", "~0").replace("/", "~1");
+        }
+
+        private Schema resolve(String ref) {
+            Schema schema = refs.get(ref);
+            if (schema != null) {
+                return schema;
+            }
+            if (!ref.startsWith("#")) {
+                throw new IllegalArgumentException("不支持的 $ref（只支持文档内部引用）: " + ref);
+            }
+            JsonNode target = ref.length() == 1 ? rootNode : rootNode.at(ref.substring(1));
+            if (target.isMissingNode()) {
+                throw new IllegalArgumentException("无法解析 $ref: " + ref);
+            }
+            schema = new Schema();
+            refs.put(ref, schema);
+            fill(schema, target, ref);
+            return schema;
+        }
+
+        private static Pattern compilePattern(String regex) {
+            try {
+                return Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("pattern 不是合法的正则表达式: " + regex, e);
+            }
+        }
+
+        private static Integer intValue(JsonNode node, String name) {
+            JsonNode value = node.get(name);
+            return value != null && value.isNumber() ? value.intValue() : null;
+        }
+
+        private static BigDecimal decimalValue(JsonNode node, String name) {
+            JsonNode value = node.get(name);
+            return value != null && value.isNumber() ? value.decimalValue() : null;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import com.daicy.core.JsonEngine;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * JSON 体积分析
+ *
+ * <p>流式读取文档一次，把每个值在原文中占用的字节数计入它的路径。数组的所有元素
+ * 合并到同一个路径 {@code [*]} 下，因此路径树的大小取决于文档的结构而不是数据量。
+ * 以 ID 等为键的对象会产生大量不同的属性名，单个对象的子路径数超过上限后，
+ * 已有和之后出现的属性都合并到通配路径 {@code .*} 下；路径总数超过上限后新出现的属性同样
+ * 计入通配路径，内存占用始终有界。
+ *
+ * @author daicy
+ */
+public class JsonSizeAnalyzer {
+
+    /**
+     * 路径树节点数上限
+     */
+    static final int MAX_NODES = 100_000;
+    /**
+     * 单个节点的子路径数上限
+     */
+    static final int MAX_CHILDREN = 1000;
+    /**
+     * 统计出现次数的不同属性名上限
+     */
+    static final int MAX_KEYS = 10_000;
+    /**
+     * 报告中列出的路径和属性名条数
+     */
+    static final int TOP_N = 50;
+
+    private static final String ELEMENT_SEGMENT = "[*]";
+    private static final String WILDCARD_SEGMENT = ".*";
+    // 每读取这么多个 token 检查一次取消状态并汇报进度
+    private static final int CHECK_INTERVAL = 64 * 1024;
+
+    /**
+     * 路径树节点
+     */
+    private static final class Node {
+        final Node parent;
+        final String segment;
+        final int depth;
+        Map<String, Node> children;
+        long bytes;
+        long count;
+
+        Node(Node parent, String segment) {
+            this.parent = parent;
+            this.segment = segment;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
+
+        String path() {
+            Deque<String> segments = new ArrayDeque<>();
+            for (Node node = this; node != null; node = node.parent) {
+                segments.push(node.segment);
+            }
+            return String.join("", segments);
+        }
+    }
+
+    /**
+     * 一个路径的统计
+     */
+    public static final class PathSize {
+        private final String path;
+        private final long bytes;
+        private final long count;
+
+        PathSize(String path, long bytes, long count) {
+            this.path = path;
+            this.bytes = bytes;
+            this.count = count;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return 该路径下所有值在原文中占用的字节数之和
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return 该路径下值的个数
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * 分析结果
+     */
+    public static final class Report {
+        private final long totalBytes;
+        private final int maxDepth;
+        private final String deepestPath;
+        private final List<PathSize> heaviestPaths;
+        private final List<Map.Entry<String, Long>> frequentKeys;
+        private final int nodeCount;
+        private final boolean keysTruncated;
+
+        Report(long totalBytes, int maxDepth, String deepestPath, List<PathSize> heaviestPaths,
+               List<Map.Entry<String, Long>> frequentKeys, int nodeCount, boolean keysTruncated) {
+            this.totalBytes = totalBytes;
+            this.maxDepth = maxDepth;
+            this.deepestPath = deepestPath;
+            this.heaviestPaths = heaviestPaths;
+            this.frequentKeys = frequentKeys;
+            this.nodeCount = nodeCount;
+            this.keysTruncated = keysTruncated;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        /**
+         * @return 按字节数降序排列的前 {@value #TOP_N} 个路径
+         */
+        public List<PathSize> getHeaviestPaths() {
+            return heaviestPaths;
+        }
+
+        /**
+         * 生成文字报告：最重的路径、属性名出现次数和最大深度
+         */
+        public String describe() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("总大小 %s，最大深度 %d（%s），路径 %,d 个%n", ByteSizes.format(totalBytes),
+                    maxDepth, deepestPath, nodeCount));
+            report.append("\n最重的路径：\n");
+            for (PathSize path : heaviestPaths) {
+                double percent = totalBytes == 0 ? 0 : path.bytes * 100.0 / totalBytes;
+                report.append(String.format("  %10s %6.1f%% %12s 个  %s%n", ByteSizes.format(path.bytes), percent,
+                        String.format("%,d", path.count), path.path));
+            }
+            report.append("\n属性名出现次数");
+            if (keysTruncated) {
+                report.append("（不同属性名超过 ").append(MAX_KEYS).append(" 个，之后的属性名未统计）");
+            }
+            report.append("：\n");
+            for (Map.Entry<String, Long> key : frequentKeys) {
+                report.append(String.format("  %12s  %s%n", String.format("%,d", key.getValue()), key.getKey()));
+            }
+            return report.toString();
+        }
+    }
+
+    private final JsonParser parser;
+    private final LongConsumer progress;
+    private final BooleanSupplier cancelled;
+    private final Node root = new Node(null, "$");
+    private final Map<String, long[]> keyCounts = new HashMap<>();
+    private boolean keysTruncated;
+    private int nodeCount = 1;
+    private Node deepest = root;
+    private long tokens;
+
+    private JsonSizeAnalyzer(JsonParser parser, LongConsumer progress, BooleanSupplier cancelled) {
+        this.parser = parser;
+        this.progress = progress;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * 分析 UTF-8 编码的 JSON，多个顶层值都计入根路径
+     *
+     * @param input JSON 输入，方法返回时已关闭
+     * @param progress 进度回调，参数为已读取的字节数
+     * @param cancelled 返回 true 时中止分析并抛出 {@link CancellationException}
+     * @return 分析结果
+     * @throws IOException JSON 语法错误或读取失败
+     */
+    public static Report analyze(InputStream input, LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        return JsonEngine.timed("size-analyze", () -> {
+            try (JsonParser parser = JsonEngine.getFactory().createParser(input)) {
+                JsonSizeAnalyzer analyzer = new JsonSizeAnalyzer(parser, progress, cancelled);
+                JsonToken token;
+                while ((token = parser.nextToken()) != null) {
+                    analyzer.value(token, analyzer.root);
+                }
+                progress.accept(parser.getCurrentLocation().getByteOffset());
+                return analyzer.report(parser.getCurrentLocation().getByteOffset());
+            }
+        });
+    }
+
+    /**
+     * 遍历当前 token 开始的值，把它占用的字节数计入 node
+     */
+    private void value(JsonToken token, Node node) throws IOException {
+        if (++tokens % CHECK_INTERVAL == 0) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            progress.accept(parser.getCurrentLocation().getByteOffset());
+        }
+        if (node.depth > deepest.depth) {
+            deepest = node;
+        }
+        long start = parser.getTokenLocation().getByteOffset();
+        switch (token) {
+            case START_OBJECT:
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    countKey(name);
+                    Node child = child(node, memberSegment(name));
+                    value(parser.nextToken(), child);
+                }
+                break;
+            case START_ARRAY: {
+                Node element = null;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (element == null) {
+                        element = child(node, ELEMENT_SEGMENT);
+                    }
+                    value(token, element);
+                }
+                break;
+            }
+            case VALUE_STRING:
+                // 字符串内容是延迟解析的，读完后当前位置才指向结束引号之后
+                parser.finishToken();
+                break;
+            default:
+                break;
+        }
+        node.bytes += parser.getCurrentLocation().getByteOffset() - start;
+        node.count++;
+    }
+
+    private Node child(Node node, String segment) {
+        if (node.children == null) {
+            node.children = new HashMap<>();
+        }
+        Node child = node.children.get(segment);
+        if (child != null) {
+            return child;
+        }
+        if (!segment.equals(ELEMENT_SEGMENT)) {
+            // 属性过多的对象（以 ID 为键等）把已有属性合并到通配路径，之后的属性都计入通配路径
+            if (node.children.size() >= MAX_CHILDREN && !node.children.containsKey(WILDCARD_SEGMENT)) {
+                collapseMembers(node);
+            }
+            if (node.children.containsKey(WILDCARD_SEGMENT) || nodeCount >= MAX_NODES) {
+                segment = WILDCARD_SEGMENT;
+                child = node.children.get(segment);
+                if (child != null) {
+                    return child;
+                }
+            }
+        }
+        child = new Node(node, segment);
+        node.children.put(segment, child);
+        nodeCount++;
+        return child;
+    }
+
+    private void collapseMembers(Node node) {
+        Node wildcard = new Node(node, WILDCARD_SEGMENT);
+        nodeCount++;
+        Map<String, Node> children = new HashMap<>();
+        for (Node child : node.children.values()) {
+            if (child.segment.equals(ELEMENT_SEGMENT)) {
+                children.put(ELEMENT_SEGMENT, child);
+            } else {
+                merge(wildcard, child);
+            }
+        }
+        children.put(WILDCARD_SEGMENT, wildcard);
+        node.children = children;
+    }
+
+    /**
+     * 把 source 子树的统计合并到 target 子树，source 随后被丢弃
+     */
+    private void merge(Node target, Node source) {
+        target.bytes += source.bytes;
+        target.count += source.count;
+        nodeCount--;
+        if (source.children == null) {
+            return;
+        }
+        if (target.children == null) {
+            target.children = new HashMap<>();
+        }
+        for (Node child : source.children.values()) {
+            Node existing = target.children.get(child.segment);
+            if (existing == null) {
+                existing = new Node(target, child.segment);
+                target.children.put(child.segment, existing);
+                nodeCount++;
+            }
+            merge(existing, child);
+        }
+    }
+
+    private void countKey(String name) {
+        long[] count = keyCounts.get(name);
+        if (count == null) {
+            if (keyCounts.size() >= MAX_KEYS) {
+                keysTruncated = true;
+                return;
+            }
+            count = new long[1];
+            keyCounts.put(name, count);
+        }
+        count[0]++;
+    }
+
+    /**
+     * 属性名作为路径片段：合法标识符写作 .name，其余写作 ['name']
+     */
+    private static String memberSegment(String name) {
+        boolean identifier = !name.isEmpty() && Character.isJavaIdentifierStart(name.charAt(0));
+        for (int i = 1; identifier && i < name.length(); i++) {
+            identifier = Character.isJavaIdentifierPart(name.charAt(i));
+        }
+        return identifier ? "." + name : "['" + name.replace("\\", "\\\\").replace("'", "\\'") + "']";
+    }
+
+    private Report report(long totalBytes) {
+        PriorityQueue<Node> heaviest = new PriorityQueue<>(Comparator.comparingLong(node -> node.bytes));
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            heaviest.add(node);
+            if (heaviest.size() > TOP_N) {
+                heaviest.poll();
+            }
+            if (node.children != null) {
+                node.children.values().forEach(pending::push);
+            }
+        }
+        List<PathSize> paths = new ArrayList<>();
+        while (!heaviest.isEmpty()) {
+            Node node = heaviest.poll();
+            paths.add(0, new PathSize(node.path(), node.bytes, node.count));
+        }
+        List<Map.Entry<String, Long>> keys = new ArrayList<>();
+        keyCounts.forEach((name, count) -> keys.add(Map.entry(name, count[0])));
+        keys.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return new Report(totalBytes, deepest.depth, deepest.path(), paths,
+                new ArrayList<>(keys.subList(0, Math.min(TOP_N, keys.size()))), nodeCount, keysTruncated);
+    }
+}
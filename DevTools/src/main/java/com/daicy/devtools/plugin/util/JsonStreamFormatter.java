@@ -0,0 +1,572 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+import com.daicy.core.JsonEngine;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * JSON 流式格式化工具类
+ *
+ * <p>基于 Jackson 的 {@link JsonParser} → {@link JsonGenerator} 逐个 token 复制，
+ * 不构建 JsonNode 树，美化和压缩时内存占用与文档大小无关。规范化输出要对对象的键排序，
+ * 内存占用取决于最大的对象。
+ *
+ * @author daicy
+ */
+public class JsonStreamFormatter {
+
+    /**
+     * 文本达到该长度时尝试按顶层数组元素并行格式化
+     */
+    static final int PARALLEL_THRESHOLD = 1024 * 1024;
+    /**
+     * 并行格式化时每块的大致字符数
+     */
+    private static final int CHUNK_CHARS = 256 * 1024;
+    /**
+     * 规范化输出时每处理这么多个 token 或值检查一次取消状态
+     */
+    private static final int CHECK_INTERVAL = 4096;
+
+    /**
+     * 将 reader 中的 JSON 美化输出到 writer
+     *
+     * <p>数字按原始文本复制，不会因转换为 double 而丢失精度。
+     * 方法返回时 writer 已被刷新并关闭。
+     *
+     * @param reader JSON 输入
+     * @param writer 格式化结果输出
+     * @throws IOException JSON 语法错误或读写失败
+     */
+    public static void format(Reader reader, Writer writer) throws IOException {
+        format(reader, writer, JsonFormatMode.PRETTY);
+    }
+
+    /**
+     * 按指定模式将 reader 中的 JSON 输出到 writer
+     *
+     * <p>规范化模式下对象的键按 UTF-16 码元排序。对象要读完全部成员后才能排序，
+     * 因此逐层缓冲对象成员的规范化结果，见 {@link #copyCanonical}；数组元素仍然逐个直接输出。
+     *
+     * @param reader JSON 输入
+     * @param writer 结果输出，方法返回时已被刷新并关闭
+     * @param mode 输出模式
+     * @throws IOException JSON 语法错误或读写失败
+     */
+    public static void format(Reader reader, Writer writer, JsonFormatMode mode) throws IOException {
+        format(reader, writer, mode, false);
+    }
+
+    /**
+     * 按指定模式将 reader 中的 JSON 输出到 writer，可选展开字符串化的 JSON
+     *
+     * <p>展开时，内容本身是完整 JSON 对象或数组的字符串值（例如 <code>"{\"a\":1}"</code>）
+     * 会被解析并作为嵌套结构输出，展开后的值中再出现这样的字符串时继续逐层展开。
+     * 不是完整 JSON 的字符串保持原样。
+     *
+     * @param reader JSON 输入
+     * @param writer 结果输出，方法返回时已被刷新并关闭
+     * @param mode 输出模式
+     * @param unwrapStrings 是否展开字符串化的 JSON
+     * @throws IOException JSON 语法错误或读写失败
+     */
+    public static void format(Reader reader, Writer writer, JsonFormatMode mode, boolean unwrapStrings) throws IOException {
+        JsonEngine.timed("format-" + mode.name().toLowerCase(), () -> {
+            formatUntimed(reader, writer, mode, unwrapStrings);
+            return null;
+        });
+    }
+
+    /**
+     * 格式化完整的 JSON 文本，大的顶层数组按元素分块并行格式化
+     *
+     * <p>文本达到 {@value #PARALLEL_THRESHOLD} 个字符且是单个顶层数组时，先由
+     * {@link JsonArraySplitter} 找出元素边界，再把连续的元素分成若干块，在公共 ForkJoinPool
+     * 上并行格式化后按顺序拼接，输出与顺序格式化完全相同。
+     * 某一块解析失败时改为顺序格式化整篇文本，以便异常报告整篇文档中的准确位置。
+     *
+     * @param text JSON 文本
+     * @param writer 结果输出，方法返回时已被刷新并关闭
+     * @param mode 输出模式
+     * @param unwrapStrings 是否展开字符串化的 JSON
+     * @param progress 进度回调，参数为已处理的字符数，可能在多个线程中调用
+     * @param cancelled 返回 true 时中止并抛出 {@link CancellationException}
+     * @throws IOException JSON 语法错误或读写失败
+     */
+    public static void formatText(String text, Writer writer, JsonFormatMode mode, boolean unwrapStrings,
+                                  LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        if (mode == JsonFormatMode.CANONICAL) {
+            JsonEngine.timed("format-canonical", () -> {
+                formatCanonical(text, writer, unwrapStrings, progress, cancelled);
+                return null;
+            });
+            return;
+        }
+        int[] boundaries = text.length() >= PARALLEL_THRESHOLD ? JsonArraySplitter.split(text) : null;
+        List<int[]> chunks = boundaries == null ? Collections.emptyList() : groupElements(boundaries);
+        if (chunks.size() < 2) {
+            formatSequential(text, writer, mode, unwrapStrings, progress, cancelled);
+            return;
+        }
+        List<String> pieces;
+        try {
+            pieces = JsonEngine.timed("format-parallel-" + mode.name().toLowerCase(), () -> {
+                AtomicLong done = new AtomicLong();
+                return chunks.parallelStream().map(range -> {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException();
+                    }
+                    String piece = formatElements(text, range[0], range[1], mode, unwrapStrings);
+                    progress.accept(done.addAndGet(range[1] - range[0]));
+                    return piece;
+                }).collect(Collectors.toList());
+            });
+        } catch (UncheckedIOException e) {
+            if (!(e.getCause() instanceof JsonProcessingException)) {
+                throw e.getCause();
+            }
+            formatSequential(text, writer, mode, unwrapStrings, progress, cancelled);
+            return;
+        }
+        boolean pretty = mode == JsonFormatMode.PRETTY;
+        try (Writer output = writer) {
+            output.write(pretty ? "[ " : "[");
+            for (int i = 0; i < pieces.size(); i++) {
+                if (i > 0) {
+                    output.write(pretty ? ", " : ",");
+                }
+                output.write(pieces.get(i));
+            }
+            output.write(pretty ? " ]" : "]");
+        }
+    }
+
+    private static void formatSequential(String text, Writer writer, JsonFormatMode mode, boolean unwrapStrings,
+                                         LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        format(new ProgressReader(new StringReader(text), read -> {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            progress.accept(read);
+        }), writer, mode, unwrapStrings);
+    }
+
+    /**
+     * 把相邻元素合并为约 {@value #CHUNK_CHARS} 个字符的块，返回每块的 [起始, 结束) 偏移，
+     * 块的两端不含分隔元素的逗号
+     */
+    private static List<int[]> groupElements(int[] boundaries) {
+        List<int[]> chunks = new ArrayList<>();
+        int start = boundaries[0] + 1;
+        for (int k = 1; k < boundaries.length; k++) {
+            int end = boundaries[k];
+            if (end - start >= CHUNK_CHARS || k == boundaries.length - 1) {
+                chunks.add(new int[]{start, end});
+                start = end + 1;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 把一段以逗号分隔的元素包装成数组格式化，再去掉外层的括号
+     */
+    private static String formatElements(String text, int start, int end, JsonFormatMode mode, boolean unwrapStrings) {
+        StringBuilder chunk = new StringBuilder(end - start + 2);
+        chunk.append('[').append(text, start, end).append(']');
+        StringWriter output = new StringWriter(end - start + (end - start) / 2);
+        try {
+            formatUntimed(new StringReader(chunk.toString()), output, mode, unwrapStrings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // 美化模式下数组输出为 "[ a, b ]"，其余模式为 "[a,b]"
+        int bracket = mode == JsonFormatMode.PRETTY ? 2 : 1;
+        StringBuffer buffer = output.getBuffer();
+        return buffer.substring(bracket, buffer.length() - bracket);
+    }
+
+    /**
+     * 与 {@link #format(Reader, Writer, JsonFormatMode)} 相同，但不记录耗时，
+     * 供逐行处理等高频调用使用
+     */
+    static void formatUntimed(Reader reader, Writer writer, JsonFormatMode mode) throws IOException {
+        formatUntimed(reader, writer, mode, false);
+    }
+
+    private static void formatUntimed(Reader reader, Writer writer, JsonFormatMode mode, boolean unwrapStrings) throws IOException {
+        try (JsonParser parser = JsonEngine.createParser(reader);
+             JsonGenerator generator = JsonEngine.createGenerator(writer)) {
+            if (mode == JsonFormatMode.PRETTY) {
+                generator.useDefaultPrettyPrinter();
+            }
+            while (parser.nextToken() != null) {
+                if (mode == JsonFormatMode.CANONICAL) {
+                    copyCanonical(parser, generator, unwrapStrings, read -> { }, () -> false);
+                } else {
+                    copyToken(parser, generator, mode, unwrapStrings);
+                }
+            }
+        }
+    }
+
+    /**
+     * 复制当前 token
+     *
+     * <p>解析器可以是任意 Jackson 数据格式，二进制格式解码时同样经过这里。
+     * 规范化输出需要对象的全部成员，不经过这里，见 {@link #copyCanonical}。
+     */
+    static void copyToken(JsonParser parser, JsonGenerator generator, JsonFormatMode mode,
+                          boolean unwrapStrings) throws IOException {
+        if (parser.currentToken().isNumeric()) {
+            // 数字按原始文本输出，保留 2E3、-0.0 等写法
+            generator.writeNumber(parser.getText());
+        } else if (!unwrapStrings || parser.currentToken() != JsonToken.VALUE_STRING
+                || !unwrapString(parser.getText(), generator, mode)) {
+            generator.copyCurrentEvent(parser);
+        }
+    }
+
+    /**
+     * 从解析器以规范形式复制当前值，用于只能顺序读取的输入（Reader、二进制格式）
+     *
+     * <p>数组元素逐个直接写出；对象的每个成员先以规范形式写入各自的缓冲区，对象读完后按键排序输出。
+     * 同一时刻只缓冲从顶层到当前位置路径上各层对象已读到的成员，内存占用取决于最大的对象：
+     * 顶层是对象时约为整个文档规范化后的大小，顶层是数组时与数组长度无关。
+     *
+     * @param parser 位于值的第一个 token 上，返回时位于值的最后一个 token 上
+     * @param generator 结果输出
+     * @param unwrapStrings 是否展开字符串化的 JSON
+     * @param progress 进度回调，参数为已读取的字节数（从文本解析时为字符数）
+     * @param cancelled 返回 true 时中止并抛出 {@link CancellationException}
+     * @throws IOException JSON 语法错误或写入失败
+     */
+    static void copyCanonical(JsonParser parser, JsonGenerator generator, boolean unwrapStrings,
+                              LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        new CanonicalCopier(parser, unwrapStrings, progress, cancelled).copyValue(generator);
+    }
+
+    /**
+     * 从解析器逐层缓冲对象成员，以规范形式写出值
+     */
+    private static final class CanonicalCopier {
+        private final JsonParser parser;
+        private final boolean unwrapStrings;
+        private final LongConsumer progress;
+        private final BooleanSupplier cancelled;
+        private long tokens;
+
+        CanonicalCopier(JsonParser parser, boolean unwrapStrings, LongConsumer progress, BooleanSupplier cancelled) {
+            this.parser = parser;
+            this.unwrapStrings = unwrapStrings;
+            this.progress = progress;
+            this.cancelled = cancelled;
+        }
+
+        private void copyValue(JsonGenerator generator) throws IOException {
+            if (++tokens % CHECK_INTERVAL == 0) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                JsonLocation location = parser.getCurrentLocation();
+                progress.accept(Math.max(location.getByteOffset(), location.getCharOffset()));
+            }
+            JsonToken token = parser.currentToken();
+            switch (token) {
+                case START_OBJECT:
+                    copyObject(generator);
+                    break;
+                case START_ARRAY:
+                    generator.writeStartArray();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        copyValue(generator);
+                    }
+                    generator.writeEndArray();
+                    break;
+                case VALUE_STRING:
+                    if (!unwrapStrings || !unwrapString(parser.getText(), generator, JsonFormatMode.CANONICAL)) {
+                        generator.writeString(parser.getText());
+                    }
+                    break;
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    // 二进制格式的小数取最短的十进制表示，与先解码为文本再规范化的结果相同
+                    BigDecimal number;
+                    try {
+                        number = new BigDecimal(parser.getText());
+                    } catch (NumberFormatException e) {
+                        throw new JsonParseException(parser, "规范化输出不支持 NaN 和 Infinity");
+                    }
+                    generator.writeNumber(normalizeNumber(number));
+                    break;
+                default:
+                    generator.copyCurrentEvent(parser);
+                    break;
+            }
+        }
+
+        private void copyObject(JsonGenerator generator) throws IOException {
+            // 当前这一层的成员按键排序，重复的键以最后一次出现为准
+            Map<String, String> members = new TreeMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                StringWriter member = new StringWriter();
+                try (JsonGenerator memberGenerator = JsonEngine.createGenerator(member)) {
+                    copyValue(memberGenerator);
+                }
+                members.put(name, member.toString());
+            }
+            generator.writeStartObject();
+            for (Map.Entry<String, String> member : members.entrySet()) {
+                generator.writeFieldName(member.getKey());
+                generator.writeRawValue(member.getValue());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * 规范化输出完整的 JSON 文本
+     *
+     * <p>文本已经全部在内存中，不需要缓冲成员。先完整解析一遍校验语法，使错误位置与逐 token 格式化时一致；再用 {@link JsonStructureIndex}
+     * 定位每个对象的成员，只把当前对象的属性名和值的偏移按键排序，值本身从原文中逐个复制，
+     * 嵌套的对象和数组同样按需递归，不缓冲任何已序列化的成员。
+     */
+    private static void formatCanonical(String text, Writer writer, boolean unwrapStrings,
+                                        LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        try (JsonParser parser = JsonEngine.createParser(text)) {
+            long tokens = 0;
+            while (parser.nextToken() != null) {
+                if (++tokens % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+            }
+        }
+        try (JsonGenerator generator = JsonEngine.createGenerator(writer)) {
+            new CanonicalWriter(text, generator, unwrapStrings, progress, cancelled).writeAll();
+        }
+    }
+
+    /**
+     * 按结构索引从原文中以规范形式写出值，文本必须已经通过语法校验
+     */
+    private static final class CanonicalWriter {
+        private final String text;
+        private final JsonStructureIndex index;
+        private final JsonGenerator generator;
+        private final boolean unwrapStrings;
+        private final LongConsumer progress;
+        private final BooleanSupplier cancelled;
+        private long values;
+
+        CanonicalWriter(String text, JsonGenerator generator, boolean unwrapStrings,
+                        LongConsumer progress, BooleanSupplier cancelled) {
+            this.text = text;
+            this.index = JsonStructureIndex.build(text);
+            this.generator = generator;
+            this.unwrapStrings = unwrapStrings;
+            this.progress = progress;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * 依次写出全部顶层值
+         */
+        void writeAll() throws IOException {
+            int pos = index.skipWhitespace(0);
+            while (pos < text.length()) {
+                int end = index.valueEnd(pos);
+                writeValue(pos, end);
+                pos = index.skipWhitespace(end);
+            }
+        }
+
+        private void writeValue(int start, int end) throws IOException {
+            if (++values % CHECK_INTERVAL == 0) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                progress.accept(start);
+            }
+            switch (text.charAt(start)) {
+                case '{':
+                    writeObject(index.containerAt(start));
+                    break;
+                case '[':
+                    writeArray(index.containerAt(start));
+                    break;
+                case '"':
+                    writeString(start, end);
+                    break;
+                case 't':
+                    generator.writeBoolean(true);
+                    break;
+                case 'f':
+                    generator.writeBoolean(false);
+                    break;
+                case 'n':
+                    generator.writeNull();
+                    break;
+                default:
+                    generator.writeNumber(normalizeNumber(new BigDecimal(text.substring(start, end))));
+                    break;
+            }
+        }
+
+        private void writeObject(int container) throws IOException {
+            // 只保存当前这一层的属性名和值的偏移，重复的键以最后一次出现为准
+            Map<String, int[]> members = new TreeMap<>();
+            index.forEachMember(container, -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+                members.put(index.decodeKey(keyStart, keyEnd), new int[]{valueStart, valueEnd});
+                return true;
+            });
+            generator.writeStartObject();
+            for (Map.Entry<String, int[]> member : members.entrySet()) {
+                generator.writeFieldName(member.getKey());
+                writeValue(member.getValue()[0], member.getValue()[1]);
+            }
+            generator.writeEndObject();
+        }
+
+        private void writeArray(int container) throws IOException {
+            generator.writeStartArray();
+            // 每次只取出一个元素，大数组不需要保存元素偏移
+            int[] element = new int[2];
+            int from = -1;
+            do {
+                element[0] = -1;
+                from = index.forEachMember(container, from, (keyStart, keyEnd, valueStart, valueEnd) -> {
+                    element[0] = valueStart;
+                    element[1] = valueEnd;
+                    return false;
+                });
+                if (element[0] >= 0) {
+                    writeValue(element[0], element[1]);
+                }
+            } while (from >= 0);
+            generator.writeEndArray();
+        }
+
+        private void writeString(int start, int end) throws IOException {
+            boolean escaped = false;
+            for (int i = start + 1; i < end - 1 && !escaped; i++) {
+                escaped = text.charAt(i) == '\\';
+            }
+            String value;
+            if (!escaped) {
+                value = text.substring(start + 1, end - 1);
+            } else {
+                try (JsonParser parser = JsonEngine.createParser(text.substring(start, end))) {
+                    parser.nextToken();
+                    value = parser.getText();
+                }
+            }
+            if (!unwrapStrings || !unwrapString(value, generator, JsonFormatMode.CANONICAL)) {
+                generator.writeString(value);
+            }
+        }
+    }
+
+    /**
+     * 字符串内容是完整的 JSON 对象或数组时，把它作为嵌套值写出
+     *
+     * @return 是否已展开；返回 false 时调用方按普通字符串输出
+     */
+    private static boolean unwrapString(String text, JsonGenerator generator, JsonFormatMode mode) throws IOException {
+        if (!isStringifiedJson(text)) {
+            return false;
+        }
+        if (mode == JsonFormatMode.CANONICAL) {
+            new CanonicalWriter(text, generator, true, read -> { }, () -> false).writeAll();
+            return true;
+        }
+        try (JsonParser inner = JsonEngine.createParser(text)) {
+            while (inner.nextToken() != null) {
+                copyToken(inner, generator, mode, true);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 先按首尾字符快速筛选，再跳读一遍确认是单个完整的值，
+     * 避免把 "[INFO] ..." 这类普通文本写出一半后才发现解析失败
+     */
+    private static boolean isStringifiedJson(String text) throws IOException {
+        int start = 0;
+        int end = text.length() - 1;
+        while (start <= end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end))) {
+            end--;
+        }
+        if (end <= start) {
+            return false;
+        }
+        char first = text.charAt(start);
+        char last = text.charAt(end);
+        if (!(first == '{' && last == '}') && !(first == '[' && last == ']')) {
+            return false;
+        }
+        try (JsonParser probe = JsonEngine.createParser(text)) {
+            probe.nextToken();
+            probe.skipChildren();
+            return probe.nextToken() == null;
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 数字归一化：去掉多余的零和正号，整数不带小数点，
+     * 数量级在 [1e-6, 1e21) 之外时使用科学计数法（与 ECMAScript 的数字输出规则一致）
+     *
+     * @param value 数值
+     * @return 规范形式的数字文本
+     */
+    static String normalizeNumber(BigDecimal value) {
+        BigDecimal number = value.stripTrailingZeros();
+        if (number.signum() == 0) {
+            return "0";
+        }
+        int exponent = number.precision() - number.scale() - 1;
+        if (exponent >= -6 && exponent < 21) {
+            return number.toPlainString();
+        }
+        String digits = number.unscaledValue().abs().toString();
+        StringBuilder text = new StringBuilder(digits.length() + 8);
+        if (number.signum() < 0) {
+            text.append('-');
+        }
+        text.append(digits.charAt(0));
+        if (digits.length() > 1) {
+            text.append('.').append(digits, 1, digits.length());
+        }
+        text.append('e').append(exponent > 0 ? '+' : '-').append(Math.abs(exponent));
+        return text.toString();
+    }
+}
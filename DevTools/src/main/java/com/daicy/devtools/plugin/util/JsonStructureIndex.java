@@ -0,0 +1,356 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.Arrays;
+
+/**
+ * JSON 结构索引
+ *
+ * <p>单遍扫描文本，记录每个对象/数组的起止偏移、直接子元素数量和父容器，
+ * 不解析任何值。容器按起始偏移升序（先序）排列，借助索引可以 O(log n) 地
+ * 跳过任意子树，只对真正需要的部分做解析。
+ *
+ * <p>扫描只识别字符串边界和括号，不做完整的语法校验；括号不匹配时抛出
+ * {@link IllegalArgumentException}。
+ *
+ * @author daicy
+ */
+public class JsonStructureIndex {
+
+    /**
+     * 容器成员回调
+     */
+    public interface MemberVisitor {
+        /**
+         * @param keyStart 属性名起始引号的偏移，数组元素为 -1
+         * @param keyEnd 属性名结束引号之后的偏移，数组元素为 -1
+         * @param valueStart 值的起始偏移
+         * @param valueEnd 值之后的偏移
+         * @return 是否继续遍历
+         */
+        boolean visit(int keyStart, int keyEnd, int valueStart, int valueEnd);
+    }
+
+    private final CharSequence text;
+    private int[] starts;
+    private int[] ends;
+    private int[] childCounts;
+    private int[] parents;
+    private int size;
+
+    private JsonStructureIndex(CharSequence text) {
+        this.text = text;
+        int capacity = 64;
+        starts = new int[capacity];
+        ends = new int[capacity];
+        childCounts = new int[capacity];
+        parents = new int[capacity];
+    }
+
+    /**
+     * 为文本建立结构索引
+     *
+     * @param text JSON 文本，建立索引后不得再修改
+     * @return 结构索引
+     * @throws IllegalArgumentException 括号不匹配或字符串未闭合
+     */
+    public static JsonStructureIndex build(CharSequence text) {
+        JsonStructureIndex index = new JsonStructureIndex(text);
+        index.scan();
+        return index;
+    }
+
+    private void scan() {
+        int length = text.length();
+        int[] stack = new int[32];
+        int depth = 0;
+        // 当前容器内是否已经出现过元素，用于统计子元素个数
+        boolean pendingValue = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    i = skipString(text, i) - 1;
+                    pendingValue = true;
+                    break;
+                case '{':
+                case '[':
+                    if (size == starts.length) {
+                        grow();
+                    }
+                    starts[size] = i;
+                    ends[size] = -1;
+                    childCounts[size] = 0;
+                    parents[size] = depth == 0 ? -1 : stack[depth - 1];
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = size++;
+                    pendingValue = false;
+                    break;
+                case '}':
+                case ']': {
+                    if (depth == 0) {
+                        throw new IllegalArgumentException("多余的 '" + c + "'，位置 " + i);
+                    }
+                    int container = stack[--depth];
+                    char open = text.charAt(starts[container]);
+                    if ((open == '{') != (c == '}')) {
+                        throw new IllegalArgumentException("括号不匹配，位置 " + i);
+                    }
+                    if (pendingValue) {
+                        childCounts[container]++;
+                    }
+                    ends[container] = i;
+                    pendingValue = true;
+                    break;
+                }
+                case ',':
+                    if (depth > 0 && pendingValue) {
+                        childCounts[stack[depth - 1]]++;
+                    }
+                    pendingValue = false;
+                    break;
+                case ':':
+                    // 属性名之后才是值，属性名本身不计数
+                    pendingValue = false;
+                    break;
+                default:
+                    if (!isWhitespace(c)) {
+                        pendingValue = true;
+                    }
+                    break;
+            }
+        }
+        if (depth > 0) {
+            throw new IllegalArgumentException("JSON 结构不完整，缺少 " + depth + " 个闭合括号");
+        }
+    }
+
+    private void grow() {
+        int capacity = starts.length * 2;
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * @return 容器总数
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getStart(int container) {
+        return starts[container];
+    }
+
+    /**
+     * @return 闭合括号的偏移
+     */
+    public int getEnd(int container) {
+        return ends[container];
+    }
+
+    public int getChildCount(int container) {
+        return childCounts[container];
+    }
+
+    /**
+     * @return 父容器编号，顶层容器返回 -1
+     */
+    public int getParent(int container) {
+        return parents[container];
+    }
+
+    public boolean isObject(int container) {
+        return text.charAt(starts[container]) == '{';
+    }
+
+    /**
+     * 查找从 offset 开始的容器
+     *
+     * @param offset '{' 或 '[' 的偏移
+     * @return 容器编号，offset 处不是容器时返回 -1
+     */
+    public int containerAt(int offset) {
+        int found = Arrays.binarySearch(starts, 0, size, offset);
+        return found >= 0 ? found : -1;
+    }
+
+    /**
+     * 查找包含 offset 的最内层容器
+     *
+     * @param offset 字符偏移
+     * @return 容器编号，不在任何容器内时返回 -1
+     */
+    public int enclosingContainer(int offset) {
+        int candidate = Arrays.binarySearch(starts, 0, size, offset);
+        candidate = candidate >= 0 ? candidate : -candidate - 2;
+        while (candidate >= 0 && ends[candidate] < offset) {
+            candidate = parents[candidate];
+        }
+        return candidate;
+    }
+
+    /**
+     * 计算从 offset 开始的值的结束位置
+     *
+     * @param offset 值的第一个字符的偏移
+     * @return 值之后第一个字符的偏移
+     */
+    public int valueEnd(int offset) {
+        char c = text.charAt(offset);
+        if (c == '{' || c == '[') {
+            int container = containerAt(offset);
+            return ends[container] + 1;
+        }
+        if (c == '"') {
+            return skipString(text, offset);
+        }
+        int end = offset;
+        int length = text.length();
+        while (end < length) {
+            char ch = text.charAt(end);
+            if (ch == ',' || ch == '}' || ch == ']' || isWhitespace(ch)) {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * 遍历容器的直接成员，跳过嵌套子树时不做解析
+     *
+     * @param container 容器编号
+     * @param from 上次遍历返回的续读位置，从头开始时传 -1
+     * @param visitor 成员回调
+     * @return 中途停止时返回下一个成员的续读位置，遍历完毕返回 -1
+     */
+    public int forEachMember(int container, int from, MemberVisitor visitor) {
+        boolean object = isObject(container);
+        int end = ends[container];
+        int pos = skipWhitespace(from < 0 ? starts[container] + 1 : from);
+        while (pos < end) {
+            int keyStart = -1;
+            int keyEnd = -1;
+            if (object) {
+                keyStart = pos;
+                keyEnd = skipString(text, pos);
+                // 跳过冒号
+                pos = skipWhitespace(skipWhitespace(keyEnd) + 1);
+            }
+            int valueStart = pos;
+            int valueEnd = valueEnd(pos);
+            pos = skipWhitespace(valueEnd);
+            if (pos < end && text.charAt(pos) == ',') {
+                pos = skipWhitespace(pos + 1);
+            }
+            if (!visitor.visit(keyStart, keyEnd, valueStart, valueEnd)) {
+                return pos < end ? pos : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 判断 [keyStart, keyEnd) 处带引号的属性名是否等于 name
+     */
+    public boolean keyEquals(int keyStart, int keyEnd, String name) {
+        int rawLength = keyEnd - keyStart - 2;
+        for (int i = 0; i < rawLength; i++) {
+            if (text.charAt(keyStart + 1 + i) == '\\') {
+                return decodeKey(keyStart, keyEnd).equals(name);
+            }
+        }
+        if (rawLength != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < rawLength; i++) {
+            if (text.charAt(keyStart + 1 + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解码 [keyStart, keyEnd) 处带引号的属性名，处理转义字符
+     */
+    public String decodeKey(int keyStart, int keyEnd) {
+        CharSequence raw = text.subSequence(keyStart + 1, keyEnd - 1);
+        StringBuilder key = null;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\') {
+                if (key != null) {
+                    key.append(c);
+                }
+                continue;
+            }
+            if (key == null) {
+                key = new StringBuilder(raw.length()).append(raw, 0, i);
+            }
+            char escaped = ++i < raw.length() ? raw.charAt(i) : '\\';
+            switch (escaped) {
+                case 'n': key.append('\n'); break;
+                case 't': key.append('\t'); break;
+                case 'r': key.append('\r'); break;
+                case 'b': key.append('\b'); break;
+                case 'f': key.append('\f'); break;
+                case 'u':
+                    if (i + 4 < raw.length()) {
+                        key.append((char) Integer.parseInt(raw.subSequence(i + 1, i + 5).toString(), 16));
+                        i += 4;
+                    }
+                    break;
+                default: key.append(escaped); break;
+            }
+        }
+        return key == null ? raw.toString() : key.toString();
+    }
+
+    /**
+     * 跳过空白字符
+     *
+     * @return 第一个非空白字符的偏移
+     */
+    public int skipWhitespace(int offset) {
+        int length = text.length();
+        while (offset < length && isWhitespace(text.charAt(offset))) {
+            offset++;
+        }
+        return offset;
+    }
+
+    /**
+     * 跳过从 offset 开始的字符串
+     *
+     * @param offset 起始引号的偏移
+     * @return 结束引号之后的偏移
+     */
+    static int skipString(CharSequence text, int offset) {
+        int length = text.length();
+        int i = offset + 1;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("字符串未闭合，起始位置 " + offset);
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
@@ -0,0 +1,391 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 可增量重新校验的 JSON 语法检查器
+ *
+ * <p>手写的单遍状态机，只校验语法，不创建任何值对象。扫描过程中每隔
+ * {@value #CHECKPOINT_INTERVAL} 个字符，在紧跟 <code>{ [ , :</code> 之后的位置记录一个检查点
+ * （容器栈和期望的下一个 token）。这些位置之前的文本决定了之后的全部解析状态，
+ * 因此文本在 p 处被修改后，偏移不超过 p 的检查点仍然有效，
+ * 重新校验时从最近的有效检查点继续，而不是从头开始。
+ *
+ * <p>多个顶层值（以空白分隔）视为合法，与格式化时的行为一致。
+ * 实例不是线程安全的，应始终在同一个后台线程中使用。
+ *
+ * @author daicy
+ */
+public class JsonSyntaxChecker {
+
+    /**
+     * 相邻检查点之间的最小字符数
+     */
+    static final int CHECKPOINT_INTERVAL = 64 * 1024;
+
+    // 期望的下一个 token
+    private static final int EXPECT_VALUE = 0;
+    private static final int EXPECT_VALUE_OR_END = 1;
+    private static final int EXPECT_KEY = 2;
+    private static final int EXPECT_KEY_OR_END = 3;
+    private static final int EXPECT_COLON = 4;
+    private static final int EXPECT_COMMA_OR_END = 5;
+
+    /**
+     * 语法错误
+     */
+    public static final class SyntaxError {
+        private final int start;
+        private final int end;
+        private final String message;
+
+        SyntaxError(int start, int end, String message) {
+            this.start = start;
+            this.end = end;
+            this.message = message;
+        }
+
+        /**
+         * @return 出错 token 的起始偏移
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return 出错 token 之后的偏移，至少比起始偏移大 1（文本为空时除外）
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "偏移 " + start + "：" + message;
+        }
+    }
+
+    /**
+     * 容器栈，不可变，检查点直接共享
+     */
+    private static final class Frame {
+        final Frame parent;
+        final boolean object;
+
+        Frame(Frame parent, boolean object) {
+            this.parent = parent;
+            this.object = object;
+        }
+    }
+
+    private static final class Checkpoint {
+        final int offset;
+        final Frame stack;
+        final int expect;
+
+        Checkpoint(int offset, Frame stack, int expect) {
+            this.offset = offset;
+            this.stack = stack;
+            this.expect = expect;
+        }
+    }
+
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private int resumedFrom;
+
+    /**
+     * 文本从 position 开始被修改，丢弃此后的检查点
+     *
+     * @param position 修改的起始偏移
+     */
+    public void invalidateFrom(int position) {
+        while (!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).offset > position) {
+            checkpoints.remove(checkpoints.size() - 1);
+        }
+    }
+
+    /**
+     * 丢弃全部检查点，例如文本被整体替换时
+     */
+    public void reset() {
+        checkpoints.clear();
+    }
+
+    /**
+     * @return 最近一次校验开始扫描的偏移
+     */
+    public int getResumedFrom() {
+        return resumedFrom;
+    }
+
+    /**
+     * 从最近的有效检查点开始校验文本
+     *
+     * @param text 当前全文，调用之间的修改必须已通过 {@link #invalidateFrom(int)} 告知
+     * @param cancelled 返回 true 时中止并抛出 {@link CancellationException}，已记录的检查点仍然有效
+     * @return 第一个语法错误，没有错误时返回 null
+     */
+    public SyntaxError check(CharSequence text, BooleanSupplier cancelled) {
+        Checkpoint checkpoint = checkpoints.isEmpty() ? null : checkpoints.get(checkpoints.size() - 1);
+        int i = checkpoint == null ? 0 : checkpoint.offset;
+        Frame stack = checkpoint == null ? null : checkpoint.stack;
+        int expect = checkpoint == null ? EXPECT_VALUE : checkpoint.expect;
+        int lastCheckpoint = i;
+        int nextCancelCheck = i + CHECKPOINT_INTERVAL;
+        resumedFrom = i;
+        int length = text.length();
+        while (true) {
+            while (i < length && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i >= length) {
+                if (stack != null) {
+                    return error(text, Math.max(0, length - 1), length, stack.object ? "对象缺少结束的 }" : "数组缺少结束的 ]");
+                }
+                return null;
+            }
+            if (i >= nextCancelCheck) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                nextCancelCheck = i + CHECKPOINT_INTERVAL;
+            }
+            char c = text.charAt(i);
+            int start = i;
+            switch (expect) {
+                case EXPECT_KEY_OR_END:
+                case EXPECT_KEY:
+                    if (c == '}' && expect == EXPECT_KEY_OR_END) {
+                        stack = stack.parent;
+                        expect = EXPECT_COMMA_OR_END;
+                        i++;
+                        continue;
+                    }
+                    if (c != '"') {
+                        return error(text, start, tokenEnd(text, start), "此处应为属性名");
+                    }
+                    i = scanString(text, i);
+                    if (i < 0) {
+                        return stringError(text, start, -i - 1);
+                    }
+                    expect = EXPECT_COLON;
+                    continue;
+                case EXPECT_COLON:
+                    if (c != ':') {
+                        return error(text, start, tokenEnd(text, start), "属性名之后应为 :");
+                    }
+                    i++;
+                    expect = EXPECT_VALUE;
+                    break;
+                case EXPECT_COMMA_OR_END:
+                    if (stack == null) {
+                        // 顶层值之后可以继续下一个顶层值
+                        expect = EXPECT_VALUE;
+                        continue;
+                    }
+                    if (c == ',') {
+                        i++;
+                        expect = stack.object ? EXPECT_KEY : EXPECT_VALUE;
+                        break;
+                    }
+                    if (c == (stack.object ? '}' : ']')) {
+                        i++;
+                        stack = stack.parent;
+                        expect = EXPECT_COMMA_OR_END;
+                        continue;
+                    }
+                    return error(text, start, tokenEnd(text, start), stack.object ? "此处应为 , 或 }" : "此处应为 , 或 ]");
+                default:
+                    if (c == ']' && expect == EXPECT_VALUE_OR_END) {
+                        i++;
+                        stack = stack.parent;
+                        expect = EXPECT_COMMA_OR_END;
+                        continue;
+                    }
+                    if (c == '{') {
+                        i++;
+                        stack = new Frame(stack, true);
+                        expect = EXPECT_KEY_OR_END;
+                        break;
+                    }
+                    if (c == '[') {
+                        i++;
+                        stack = new Frame(stack, false);
+                        expect = EXPECT_VALUE_OR_END;
+                        break;
+                    }
+                    if (c == '"') {
+                        i = scanString(text, i);
+                        if (i < 0) {
+                            return stringError(text, start, -i - 1);
+                        }
+                    } else if (c == '-' || (c >= '0' && c <= '9')) {
+                        i = scanNumber(text, i);
+                        if (i < 0) {
+                            return error(text, start, tokenEnd(text, start), "数字格式错误");
+                        }
+                        if (stack == null && i < length && !isWhitespace(text.charAt(i))) {
+                            return error(text, i, tokenEnd(text, i), "顶层的值之间应以空白分隔");
+                        }
+                    } else if (c == 't' || c == 'f' || c == 'n') {
+                        String literal = c == 't' ? "true" : c == 'f' ? "false" : "null";
+                        i = scanLiteral(text, i, literal);
+                        if (i < 0) {
+                            return error(text, start, tokenEnd(text, start), "无法识别的值，是否应为 " + literal + "？");
+                        }
+                    } else {
+                        return error(text, start, tokenEnd(text, start), "此处应为值");
+                    }
+                    expect = EXPECT_COMMA_OR_END;
+                    continue;
+            }
+            // 刚越过 { [ , : 之一，此处之前的文本完全决定了之后的状态
+            if (i - lastCheckpoint >= CHECKPOINT_INTERVAL) {
+                checkpoints.add(new Checkpoint(i, stack, expect));
+                lastCheckpoint = i;
+            }
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * 扫描字符串，返回结束引号之后的偏移；出错时返回 -(出错偏移 + 1)
+     */
+    private static int scanString(CharSequence text, int start) {
+        int length = text.length();
+        int i = start + 1;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c == '\\') {
+                if (i + 1 >= length) {
+                    return -(i + 1);
+                }
+                char escaped = text.charAt(i + 1);
+                if (escaped == 'u') {
+                    for (int k = 2; k < 6; k++) {
+                        if (i + k >= length || Character.digit(text.charAt(i + k), 16) < 0) {
+                            return -(i + 1);
+                        }
+                    }
+                    i += 6;
+                    continue;
+                }
+                if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+                    return -(i + 1);
+                }
+                i += 2;
+                continue;
+            }
+            if (c < 0x20) {
+                return -(i + 1);
+            }
+            i++;
+        }
+        return -(length + 1);
+    }
+
+    private static SyntaxError stringError(CharSequence text, int start, int position) {
+        if (position >= text.length()) {
+            return error(text, start, start + 1, "字符串缺少结束的引号");
+        }
+        if (text.charAt(position) == '\\') {
+            return error(text, position, Math.min(text.length(), position + 2), "无效的转义序列");
+        }
+        if (text.charAt(position) == '\n' || text.charAt(position) == '\r') {
+            return error(text, start, start + 1, "字符串缺少结束的引号");
+        }
+        return error(text, position, position + 1, "字符串中不能包含未转义的控制字符");
+    }
+
+    /**
+     * 扫描数字，返回数字之后的偏移；不符合 JSON 数字语法时返回 -1
+     */
+    private static int scanNumber(CharSequence text, int start) {
+        int length = text.length();
+        int i = start;
+        if (text.charAt(i) == '-') {
+            i++;
+        }
+        if (i >= length || !isDigit(text.charAt(i))) {
+            return -1;
+        }
+        if (text.charAt(i) == '0') {
+            i++;
+        } else {
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+        }
+        if (i < length && text.charAt(i) == '.') {
+            i++;
+            if (i >= length || !isDigit(text.charAt(i))) {
+                return -1;
+            }
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            if (i >= length || !isDigit(text.charAt(i))) {
+                return -1;
+            }
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+        }
+        return i < length && isWordChar(text.charAt(i)) ? -1 : i;
+    }
+
+    private static int scanLiteral(CharSequence text, int start, String literal) {
+        int end = start + literal.length();
+        if (end > text.length()) {
+            return -1;
+        }
+        for (int k = 1; k < literal.length(); k++) {
+            if (text.charAt(start + k) != literal.charAt(k)) {
+                return -1;
+            }
+        }
+        return end < text.length() && isWordChar(text.charAt(end)) ? -1 : end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '+' || c == '-';
+    }
+
+    /**
+     * 出错 token 的结束位置：连续的单词字符，至少一个字符
+     */
+    private static int tokenEnd(CharSequence text, int start) {
+        int i = start;
+        while (i < text.length() && isWordChar(text.charAt(i))) {
+            i++;
+        }
+        return Math.max(i, Math.min(start + 1, text.length()));
+    }
+
+    private static SyntaxError error(CharSequence text, int start, int end, String message) {
+        return new SyntaxError(start, Math.min(end, text.length()), message);
+    }
+}
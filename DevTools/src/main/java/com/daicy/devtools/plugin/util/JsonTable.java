@@ -0,0 +1,464 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntBinaryOperator;
+
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+
+/**
+ * 对象数组的表格视图模型
+ *
+ * <p>基于 {@link JsonStructureIndex}，每行只保存元素在原文中的偏移，单元格在显示时才解析，
+ * 表格中的行是行号的排列，而不是解析出的对象。列由前 {@value #SAMPLE_ROWS} 行的属性名推断。
+ *
+ * <p>排序和筛选在后台线程中执行：排序列第一次用到时整列提取为 double[] 或 String[]，
+ * 之后按行号数组做稳定的归并排序，结果是一个新的行号排列，界面只需替换表格的数据源。
+ *
+ * <p>线程约定：{@link #getCell(int, int)} 只在 JavaFX 应用线程调用，
+ * {@link #view(String, List, BooleanSupplier)} 只在同一个后台线程调用。
+ *
+ * @author daicy
+ */
+public class JsonTable {
+
+    /**
+     * 推断列时读取的行数
+     */
+    public static final int SAMPLE_ROWS = 1000;
+    // 单元格最多显示的字符数
+    private static final int CELL_LENGTH = 200;
+    // 缓存最近显示过的行，覆盖若干屏即可
+    private static final int ROW_CACHE_SIZE = 512;
+    // 每处理这么多行检查一次取消状态
+    private static final int CHECK_INTERVAL = 4096;
+    // 数组中非对象元素显示在该列
+    private static final String VALUE_COLUMN = "(值)";
+
+    /**
+     * 排序条件
+     */
+    public static final class SortKey {
+        private final int column;
+        private final boolean ascending;
+
+        public SortKey(int column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public boolean isAscending() {
+            return ascending;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SortKey)) {
+                return false;
+            }
+            SortKey other = (SortKey) o;
+            return column == other.column && ascending == other.ascending;
+        }
+
+        @Override
+        public int hashCode() {
+            return column * 2 + (ascending ? 1 : 0);
+        }
+    }
+
+    /**
+     * 一列的排序键：数值列为 double[]，其他为 String[]，缺失值排在最后
+     */
+    private static final class ColumnKeys {
+        final double[] numbers;
+        final String[] texts;
+
+        ColumnKeys(double[] numbers, String[] texts) {
+            this.numbers = numbers;
+            this.texts = texts;
+        }
+
+        int compare(int a, int b) {
+            if (numbers != null) {
+                double x = numbers[a];
+                double y = numbers[b];
+                if (Double.isNaN(x) || Double.isNaN(y)) {
+                    return Boolean.compare(Double.isNaN(x), Double.isNaN(y));
+                }
+                return Double.compare(x, y);
+            }
+            String x = texts[a];
+            String y = texts[b];
+            if (x == null || y == null) {
+                return Boolean.compare(x == null, y == null);
+            }
+            return x.compareTo(y);
+        }
+    }
+
+    private final JsonStructureIndex index;
+    private final int[] rowStarts;
+    private final int[] rowEnds;
+    // 行对应的容器编号，非对象元素为 -1
+    private final int[] rowContainers;
+    private final List<String> columns;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final int valueColumn;
+    // 只在 JavaFX 应用线程访问
+    private final Map<Integer, String[]> rowCache = new LinkedHashMap<Integer, String[]>(ROW_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > ROW_CACHE_SIZE;
+        }
+    };
+    // 只在后台线程访问
+    private final Map<Integer, ColumnKeys> columnKeys = new HashMap<>();
+
+    private JsonTable(JsonStructureIndex index, int[] rowStarts, int[] rowEnds, int[] rowContainers,
+                      List<String> columns, int valueColumn) {
+        this.index = index;
+        this.rowStarts = rowStarts;
+        this.rowEnds = rowEnds;
+        this.rowContainers = rowContainers;
+        this.columns = Collections.unmodifiableList(columns);
+        this.valueColumn = valueColumn;
+        for (int i = 0; i < columns.size(); i++) {
+            if (i != valueColumn) {
+                columnIndexes.put(columns.get(i), i);
+            }
+        }
+    }
+
+    /**
+     * 为顶层数组建立表格模型
+     *
+     * @param index 结构索引
+     * @param cancelled 返回 true 时中止并抛出 {@link CancellationException}
+     * @return 表格模型
+     * @throws IllegalArgumentException 顶层值不是数组
+     */
+    public static JsonTable build(JsonStructureIndex index, BooleanSupplier cancelled) {
+        int start = index.skipWhitespace(0);
+        if (start >= index.getText().length() || index.getText().charAt(start) != '[') {
+            throw new IllegalArgumentException("表格视图要求顶层值为数组");
+        }
+        int root = index.containerAt(start);
+        int count = index.getChildCount(root);
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int[] containers = new int[count];
+        int[] row = {0};
+        index.forEachMember(root, -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+            int i = row[0]++;
+            if (i % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            starts[i] = valueStart;
+            ends[i] = valueEnd;
+            containers[i] = index.getText().charAt(valueStart) == '{' ? index.containerAt(valueStart) : -1;
+            return true;
+        });
+        // 按首次出现的顺序合并样本行的属性名
+        Set<String> names = new LinkedHashSet<>();
+        boolean scalars = false;
+        for (int i = 0; i < Math.min(count, SAMPLE_ROWS); i++) {
+            if (containers[i] < 0) {
+                scalars = true;
+                continue;
+            }
+            index.forEachMember(containers[i], -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+                names.add(index.decodeKey(keyStart, keyEnd));
+                return true;
+            });
+        }
+        List<String> columns = new ArrayList<>(names);
+        if (scalars) {
+            columns.add(0, VALUE_COLUMN);
+        }
+        return new JsonTable(index, starts, ends, containers, columns, scalars ? 0 : -1);
+    }
+
+    public int getRowCount() {
+        return rowStarts.length;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return 行在原文中的起始偏移
+     */
+    public int getRowStart(int row) {
+        return rowStarts[row];
+    }
+
+    /**
+     * 单元格的显示文本，过长时截断
+     *
+     * @param row 行号
+     * @param column 列号
+     * @return 显示文本，缺失时为空字符串
+     */
+    public String getCell(int row, int column) {
+        String[] cells = rowCache.get(row);
+        if (cells == null) {
+            cells = new String[columns.size()];
+            if (rowContainers[row] < 0) {
+                if (valueColumn >= 0) {
+                    cells[valueColumn] = display(rowStarts[row], rowEnds[row]);
+                }
+            } else {
+                String[] target = cells;
+                index.forEachMember(rowContainers[row], -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+                    Integer i = columnIndexes.get(index.decodeKey(keyStart, keyEnd));
+                    if (i != null) {
+                        target[i] = display(valueStart, valueEnd);
+                    }
+                    return true;
+                });
+            }
+            rowCache.put(row, cells);
+        }
+        return cells[column] == null ? "" : cells[column];
+    }
+
+    /**
+     * 计算筛选和排序后的行号排列
+     *
+     * @param filter 筛选文本，任一单元格包含该文本（不区分大小写）的行保留；为空时保留全部行
+     * @param sortKeys 排序条件，按优先级排列；为空时保持原顺序
+     * @param cancelled 返回 true 时中止并抛出 {@link CancellationException}
+     * @return 行号排列
+     */
+    public int[] view(String filter, List<SortKey> sortKeys, BooleanSupplier cancelled) {
+        int[] rows = filter == null || filter.isEmpty() ? allRows() : filter(filter, cancelled);
+        if (sortKeys.isEmpty()) {
+            return rows;
+        }
+        ColumnKeys[] keys = new ColumnKeys[sortKeys.size()];
+        for (int k = 0; k < keys.length; k++) {
+            keys[k] = columnKeys(sortKeys.get(k).column, cancelled);
+        }
+        sort(rows, (a, b) -> {
+            for (int k = 0; k < keys.length; k++) {
+                int result = keys[k].compare(a, b);
+                if (result != 0) {
+                    // 缺失值无论升序降序都排在最后
+                    boolean missing = keys[k].numbers != null
+                            ? Double.isNaN(keys[k].numbers[a]) || Double.isNaN(keys[k].numbers[b])
+                            : keys[k].texts[a] == null || keys[k].texts[b] == null;
+                    return sortKeys.get(k).ascending || missing ? result : -result;
+                }
+            }
+            return 0;
+        }, cancelled);
+        return rows;
+    }
+
+    /**
+     * 把行号排列包装为表格的数据源，不复制数组
+     */
+    public static ObservableList<Integer> asList(int[] rows) {
+        return new ObservableListBase<Integer>() {
+            @Override
+            public Integer get(int i) {
+                return rows[i];
+            }
+
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+
+    /**
+     * @return 按原顺序排列的全部行号
+     */
+    public int[] allRows() {
+        int[] rows = new int[rowStarts.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    private int[] filter(String filter, BooleanSupplier cancelled) {
+        String needle = filter.toLowerCase(Locale.ROOT);
+        int[] rows = new int[rowStarts.length];
+        int count = 0;
+        for (int row = 0; row < rowStarts.length; row++) {
+            if (row % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            if (matches(row, needle)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private boolean matches(int row, String needle) {
+        if (rowContainers[row] < 0) {
+            return valueColumn >= 0 && contains(text(rowStarts[row], rowEnds[row]), needle);
+        }
+        boolean[] found = {false};
+        index.forEachMember(rowContainers[row], -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+            if (columnIndexes.containsKey(index.decodeKey(keyStart, keyEnd))
+                    && contains(text(valueStart, valueEnd), needle)) {
+                found[0] = true;
+                return false;
+            }
+            return true;
+        });
+        return found[0];
+    }
+
+    private static boolean contains(String text, String needle) {
+        return text.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    /**
+     * 提取整列的排序键；列中所有非 null 值都是数字时按数值排序
+     */
+    private ColumnKeys columnKeys(int column, BooleanSupplier cancelled) {
+        ColumnKeys cached = columnKeys.get(column);
+        if (cached != null) {
+            return cached;
+        }
+        int rowCount = rowStarts.length;
+        int[] valueStarts = new int[rowCount];
+        int[] valueEnds = new int[rowCount];
+        boolean numeric = true;
+        String name = columns.get(column);
+        for (int row = 0; row < rowCount; row++) {
+            if (row % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            valueStarts[row] = -1;
+            if (column == valueColumn) {
+                if (rowContainers[row] < 0) {
+                    valueStarts[row] = rowStarts[row];
+                    valueEnds[row] = rowEnds[row];
+                }
+            } else if (rowContainers[row] >= 0) {
+                int current = row;
+                index.forEachMember(rowContainers[row], -1, (keyStart, keyEnd, valueStart, valueEnd) -> {
+                    if (index.keyEquals(keyStart, keyEnd, name)) {
+                        valueStarts[current] = valueStart;
+                        valueEnds[current] = valueEnd;
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            if (valueStarts[row] >= 0 && !isNull(valueStarts[row], valueEnds[row])) {
+                char c = index.getText().charAt(valueStarts[row]);
+                numeric &= c == '-' || (c >= '0' && c <= '9');
+            }
+        }
+        ColumnKeys keys;
+        if (numeric) {
+            double[] numbers = new double[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                numbers[row] = valueStarts[row] < 0 || isNull(valueStarts[row], valueEnds[row]) ? Double.NaN
+                        : Double.parseDouble(index.getText().subSequence(valueStarts[row], valueEnds[row]).toString());
+            }
+            keys = new ColumnKeys(numbers, null);
+        } else {
+            String[] texts = new String[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                if (row % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                if (valueStarts[row] >= 0 && !isNull(valueStarts[row], valueEnds[row])) {
+                    texts[row] = text(valueStarts[row], valueEnds[row]);
+                }
+            }
+            keys = new ColumnKeys(null, texts);
+        }
+        columnKeys.put(column, keys);
+        return keys;
+    }
+
+    private boolean isNull(int start, int end) {
+        return end - start == 4 && index.getText().charAt(start) == 'n';
+    }
+
+    /**
+     * 值的文本：字符串去掉引号并处理转义，其他值为原文
+     */
+    private String text(int start, int end) {
+        if (index.getText().charAt(start) == '"') {
+            return index.decodeKey(start, end);
+        }
+        return index.getText().subSequence(start, end).toString();
+    }
+
+    private String display(int start, int end) {
+        if (isNull(start, end)) {
+            return "null";
+        }
+        // 过长的值只解码开头部分
+        if (end - start > CELL_LENGTH * 2) {
+            int headEnd = start + CELL_LENGTH + 1;
+            String head = index.getText().charAt(start) == '"' ? index.decodeKey(start, headEnd)
+                    : index.getText().subSequence(start, headEnd).toString();
+            return head + "…";
+        }
+        String text = text(start, end);
+        return text.length() > CELL_LENGTH ? text.substring(0, CELL_LENGTH) + "…" : text;
+    }
+
+    /**
+     * 对行号数组做稳定的归并排序，不装箱
+     */
+    static void sort(int[] rows, IntBinaryOperator comparator, BooleanSupplier cancelled) {
+        int[] buffer = new int[rows.length];
+        int[] source = rows;
+        int[] target = buffer;
+        for (int width = 1; width < rows.length; width *= 2) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            for (int low = 0; low < rows.length; low += 2 * width) {
+                int middle = Math.min(low + width, rows.length);
+                int high = Math.min(low + 2 * width, rows.length);
+                int i = low;
+                int j = middle;
+                int k = low;
+                while (i < middle && j < high) {
+                    target[k++] = comparator.applyAsInt(source[i], source[j]) <= 0 ? source[i++] : source[j++];
+                }
+                while (i < middle) {
+                    target[k++] = source[i++];
+                }
+                while (j < high) {
+                    target[k++] = source[j++];
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != rows) {
+            System.arraycopy(source, 0, rows, 0, rows.length);
+        }
+    }
+}
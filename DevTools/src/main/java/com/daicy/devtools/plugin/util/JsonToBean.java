@@ -1,71 +1,216 @@
 package com.daicy.devtools.plugin.util;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.daicy.devtools.plugin.util.JsonTypeInference.Field;
+import com.daicy.devtools.plugin.util.JsonTypeInference.JsonType;
 
 /**
  * JSON 转 JavaBean 工具类
- * 
- * <p>提供将 JSON 对象转换为 JavaBean 代码的功能。
- * 
+ *
+ * <p>根据 {@link JsonTypeInference} 推断出的类型生成 JavaBean 代码，
+ * 每个嵌套对象类型生成一个静态内部类，结构相同的嵌套类型共用一个类。
+ *
  * @author daicy
  */
 public class JsonToBean {
-    public static String generateJavaBeanCode(ObjectNode jsonObject) {
+
+    private static final Set<String> JAVA_KEYWORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+            "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+            "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+            "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+            "volatile", "while", "true", "false", "null", "var", "record", "yield"));
+
+    // 类名 → 类体（不含类声明），按生成顺序排列
+    private final Map<String, String> classBodies = new LinkedHashMap<>();
+    // 类体 → 类名，用于复用结构相同的类
+    private final Map<String, String> classesByBody = new HashMap<>();
+    private final Set<String> classNames = new HashSet<>();
+    private final Set<String> imports = new TreeSet<>();
+
+    private JsonToBean() {
+    }
+
+    /**
+     * 生成 JavaBean 代码
+     *
+     * @param root 推断出的根类型，可以是对象，或元素为对象的数组/多个对象样本
+     * @return JavaBean 代码
+     * @throws IllegalArgumentException 根类型不是对象
+     */
+    public static String generateJavaBeanCode(JsonType root) {
+        JsonType bean = root;
+        if (!bean.isObject() && bean.sawArray && bean.element != null) {
+            bean = bean.element;
+        }
+        if (!bean.isObject() || bean.kindCount() != 1 || bean.mapValue != null) {
+            throw new IllegalArgumentException("输入的JSON数据必须是一个对象。");
+        }
+        JsonToBean generator = new JsonToBean();
+        String rootName = generator.classFor("Root", bean);
+
         StringBuilder javaBeanCode = new StringBuilder();
-        String className = getClassNameFromJson(jsonObject);
-        javaBeanCode.append("public class ").append(className).append(" {\n");
-
-        List<String> fields = new ArrayList<>();
-        jsonObject.fields().forEachRemaining(entry -> {
-            String fieldName = toCamelCase(entry.getKey());
-            String fieldType = getJavaTypeFromJson(entry.getValue());
-            fields.add("    private " + fieldType + " " + fieldName + ";\n");
-            javaBeanCode.append("    public ").append(fieldType).append(" get").append(capitalize(fieldName)).append("() {\n");
-            javaBeanCode.append("        return ").append(fieldName).append(";\n");
-            javaBeanCode.append("    }\n");
-            javaBeanCode.append("    public void set").append(capitalize(fieldName)).append("(").append(fieldType).append(" ").append(fieldName).append(") {\n");
-            javaBeanCode.append("        this.").append(fieldName).append(" = ").append(fieldName).append(";\n");
-            javaBeanCode.append("    }\n");
+        for (String importName : generator.imports) {
+            javaBeanCode.append("import ").append(importName).append(";\n");
+        }
+        if (!generator.imports.isEmpty()) {
+            javaBeanCode.append("\n");
+        }
+        javaBeanCode.append("public class ").append(rootName).append(" {\n");
+        javaBeanCode.append(generator.classBodies.get(rootName));
+        generator.classBodies.forEach((name, body) -> {
+            if (!name.equals(rootName)) {
+                javaBeanCode.append("\n    public static class ").append(name).append(" {\n");
+                body.lines().forEach(line -> javaBeanCode.append(line.isEmpty() ? "" : "    ").append(line).append("\n"));
+                javaBeanCode.append("    }\n");
+            }
         });
-
-        javaBeanCode.append("\n");
-        fields.forEach(javaBeanCode::append);
         javaBeanCode.append("}\n");
-
         return javaBeanCode.toString();
     }
 
-    private static String getClassNameFromJson(ObjectNode jsonObject) {
-        String firstKey = jsonObject.fieldNames().next();
-        return toCamelCase(firstKey) + "Bean";
+    /**
+     * 为对象类型生成类，返回类名；结构相同的类型返回已生成的类名
+     */
+    private String classFor(String nameHint, JsonType type) {
+        StringBuilder methods = new StringBuilder();
+        StringBuilder fields = new StringBuilder();
+        Set<String> fieldNames = new HashSet<>();
+        for (Field field : type.fields == null ? Collections.<Field>emptyList() : type.fields.values()) {
+            String fieldName = uniqueName(toCamelCase(field.name), fieldNames);
+            // 部分样本中缺失的属性同样可能为 null
+            boolean nullable = field.presentCount < type.objectCount;
+            String fieldType = javaType(field.type, field.name, nullable);
+            if (field.type.kindCount() > 1) {
+                fields.append("    // 混合类型：").append(describeKinds(field.type)).append("\n");
+            }
+            if (!fieldName.equals(field.name)) {
+                imports.add("com.fasterxml.jackson.annotation.JsonProperty");
+                fields.append("    @JsonProperty(\"").append(field.name.replace("\\", "\\\\").replace("\"", "\\\""))
+                        .append("\")\n");
+            }
+            fields.append("    private ").append(fieldType).append(" ").append(fieldName).append(";\n");
+            methods.append("    public ").append(fieldType).append(" get").append(capitalize(fieldName)).append("() {\n");
+            methods.append("        return ").append(fieldName).append(";\n");
+            methods.append("    }\n");
+            methods.append("    public void set").append(capitalize(fieldName)).append("(").append(fieldType).append(" ").append(fieldName).append(") {\n");
+            methods.append("        this.").append(fieldName).append(" = ").append(fieldName).append(";\n");
+            methods.append("    }\n");
+        }
+        String body = methods.append("\n").append(fields).toString();
+        String existing = classesByBody.get(body);
+        if (existing != null) {
+            return existing;
+        }
+        String className = uniqueName(capitalize(toCamelCase(nameHint)) + "Bean", classNames);
+        classBodies.put(className, body);
+        classesByBody.put(body, className);
+        return className;
     }
 
-    private static  String getJavaTypeFromJson(JsonNode jsonNode) {
-        if (jsonNode.isTextual()) {
+    private String javaType(JsonType type, String nameHint, boolean nullable) {
+        boolean boxed = nullable || type.sawNull;
+        if (type.kindCount() != 1) {
+            return "Object";
+        }
+        if (type.sawBoolean) {
+            return boxed ? "Boolean" : "boolean";
+        }
+        if (type.sawDouble) {
+            return boxed ? "Double" : "double";
+        }
+        if (type.sawBigInteger) {
+            imports.add("java.math.BigInteger");
+            return "BigInteger";
+        }
+        if (type.sawLong) {
+            return boxed ? "Long" : "long";
+        }
+        if (type.sawInt) {
+            return boxed ? "Integer" : "int";
+        }
+        if (type.sawString) {
             return "String";
-        } else if (jsonNode.isBoolean()) {
-            return "boolean";
-        } else if (jsonNode.isInt()) {
-            return "int";
-        } else if (jsonNode.isLong()) {
-            return "long";
-        } else if (jsonNode.isDouble()) {
-            return "double";
-        } else if (jsonNode.isObject()) {
-            return getClassNameFromJson((ObjectNode) jsonNode);
-        } else if (jsonNode.isArray()) {
-            JsonNode firstElement = jsonNode.elements().next();
-            return "List<" + getJavaTypeFromJson(firstElement) + ">";
-        }
-        return "Object";
+        }
+        if (type.sawArray) {
+            imports.add("java.util.List");
+            return "List<" + (type.element == null ? "Object" : javaType(type.element, singular(nameHint), true)) + ">";
+        }
+        if (type.mapValue != null) {
+            imports.add("java.util.Map");
+            return "Map<String, " + javaType(type.mapValue, nameHint + "Value", true) + ">";
+        }
+        return classFor(nameHint, type);
     }
 
+    private static String describeKinds(JsonType type) {
+        StringBuilder kinds = new StringBuilder();
+        if (type.sawBoolean) {
+            kinds.append(" | boolean");
+        }
+        if (type.sawInt || type.sawLong || type.sawBigInteger || type.sawDouble) {
+            kinds.append(" | number");
+        }
+        if (type.sawString) {
+            kinds.append(" | string");
+        }
+        if (type.isObject()) {
+            kinds.append(" | object");
+        }
+        if (type.sawArray) {
+            kinds.append(" | array");
+        }
+        return kinds.substring(3);
+    }
+
+    private static String uniqueName(String name, Set<String> used) {
+        String candidate = name;
+        for (int i = 2; used.contains(candidate); i++) {
+            candidate = name + i;
+        }
+        used.add(candidate);
+        return candidate;
+    }
+
+    /**
+     * 数组元素的类名提示：items → item，其余加 Item 后缀
+     */
+    private static String singular(String name) {
+        if (name.length() > 1 && name.endsWith("s") && !name.endsWith("ss")) {
+            return name.substring(0, name.length() - 1);
+        }
+        return name + "Item";
+    }
+
+    /**
+     * 将属性名转换为合法的 Java 标识符：user_name、user-name → userName
+     */
     private static String toCamelCase(String input) {
-        return input;
+        StringBuilder name = new StringBuilder(input.length());
+        boolean upperNext = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '$') {
+                name.append(upperNext && name.length() > 0 ? Character.toUpperCase(c) : c);
+                upperNext = false;
+            } else {
+                upperNext = true;
+            }
+        }
+        if (name.length() == 0 || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            name.insert(0, '_');
+        }
+        String result = name.toString();
+        return JAVA_KEYWORDS.contains(result) ? result + "_" : result;
     }
 
     private static String capitalize(String input) {
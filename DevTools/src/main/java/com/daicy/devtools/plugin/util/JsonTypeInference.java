@@ -0,0 +1,394 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CharSequenceReader;
+
+import com.daicy.core.JsonEngine;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * JSON 类型推断
+ *
+ * <p>用流式解析器遍历所有样本，把每个位置上出现过的值合并到一个 {@link JsonType} 中：
+ * 数组合并全部元素，对象合并全部属性，多个顶层值（NDJSON）视为多个样本。
+ * 只保存推断出的结构而不保存数据，内存占用与样本大小无关。
+ *
+ * <p>大文件按行切分为多个分块，在公共 ForkJoinPool 上并行推断后再合并；
+ * 某个分块解析失败（例如文件不是 NDJSON 而是跨行的单个文档）时退回到整体顺序推断。
+ *
+ * @author daicy
+ */
+public class JsonTypeInference {
+
+    /**
+     * 并行推断时每个分块的大致大小
+     */
+    private static final long CHUNK_SIZE = 64L * 1024 * 1024;
+    /**
+     * 每处理这么多个 token 检查一次取消状态并汇报进度
+     */
+    private static final int CHECK_INTERVAL = 4096;
+    /**
+     * 对象的不同属性名超过该数量时按 Map 处理，避免以 ID 为键的对象让结构无限膨胀
+     */
+    static final int MAX_FIELDS = 500;
+
+    /**
+     * 推断出的类型，可与其他位置或其他分块推断出的类型合并
+     */
+    public static final class JsonType {
+        boolean sawNull;
+        boolean sawBoolean;
+        boolean sawInt;
+        boolean sawLong;
+        boolean sawBigInteger;
+        boolean sawDouble;
+        boolean sawString;
+        // 出现过的对象个数，用于判断属性是否可能缺失
+        long objectCount;
+        Map<String, Field> fields;
+        // 属性过多时改为 Map，所有属性值合并到 mapValue
+        JsonType mapValue;
+        boolean sawArray;
+        JsonType element;
+
+        boolean isObject() {
+            return objectCount > 0;
+        }
+
+        /**
+         * 出现过的非 null 类别数量，大于 1 时为联合类型
+         */
+        int kindCount() {
+            int kinds = 0;
+            if (sawBoolean) {
+                kinds++;
+            }
+            if (sawInt || sawLong || sawBigInteger || sawDouble) {
+                kinds++;
+            }
+            if (sawString) {
+                kinds++;
+            }
+            if (isObject()) {
+                kinds++;
+            }
+            if (sawArray) {
+                kinds++;
+            }
+            return kinds;
+        }
+
+        void merge(JsonType other) {
+            sawNull |= other.sawNull;
+            sawBoolean |= other.sawBoolean;
+            sawInt |= other.sawInt;
+            sawLong |= other.sawLong;
+            sawBigInteger |= other.sawBigInteger;
+            sawDouble |= other.sawDouble;
+            sawString |= other.sawString;
+            if (other.sawArray) {
+                sawArray = true;
+                if (other.element != null) {
+                    element().merge(other.element);
+                }
+            }
+            if (other.objectCount > 0) {
+                objectCount += other.objectCount;
+                if (other.mapValue != null) {
+                    toMap().merge(other.mapValue);
+                } else if (other.fields != null) {
+                    for (Field field : other.fields.values()) {
+                        Field target = field(field.name);
+                        if (target == null) {
+                            mapValue.merge(field.type);
+                        } else {
+                            target.presentCount += field.presentCount;
+                            target.type.merge(field.type);
+                        }
+                    }
+                }
+            }
+        }
+
+        JsonType element() {
+            if (element == null) {
+                element = new JsonType();
+            }
+            return element;
+        }
+
+        /**
+         * 查找或创建属性，对象已转为 Map 时返回 null
+         */
+        Field field(String name) {
+            if (mapValue != null) {
+                return null;
+            }
+            if (fields == null) {
+                fields = new LinkedHashMap<>();
+            }
+            Field field = fields.get(name);
+            if (field == null) {
+                if (fields.size() >= MAX_FIELDS) {
+                    toMap();
+                    return null;
+                }
+                field = new Field(name);
+                fields.put(name, field);
+            }
+            return field;
+        }
+
+        private JsonType toMap() {
+            if (mapValue == null) {
+                mapValue = new JsonType();
+                if (fields != null) {
+                    for (Field field : fields.values()) {
+                        mapValue.merge(field.type);
+                    }
+                    fields = null;
+                }
+            }
+            return mapValue;
+        }
+    }
+
+    /**
+     * 对象的属性
+     */
+    public static final class Field {
+        final String name;
+        final JsonType type = new JsonType();
+        long presentCount;
+
+        Field(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 推断文本中的全部样本，文本较大时按行切分后并行推断
+     *
+     * @param text JSON 或 NDJSON 文本
+     * @return 合并后的类型
+     * @throws IOException 解析失败
+     */
+    public static JsonType inferText(String text) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = start + (int) Math.min(CHUNK_SIZE, text.length() - start);
+            int newline = end < text.length() ? text.indexOf('\n', end) : -1;
+            end = newline < 0 ? text.length() : newline + 1;
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return JsonEngine.timed("infer-text", () -> inferChunks(chunks,
+                range -> JsonEngine.createParser(new CharSequenceReader(CharBuffer.wrap(text, (int) range[0], (int) range[1]))),
+                ignored -> JsonEngine.createParser(text), fraction -> {
+                }, () -> false));
+    }
+
+    /**
+     * 推断文件中的全部样本，按行切分为分块后并行推断
+     *
+     * @param path JSON 或 NDJSON 文件，按 UTF-8 读取
+     * @param progress 进度回调，参数为已完成的比例
+     * @param cancelled 返回 true 时中止推断并抛出 {@link CancellationException}
+     * @return 合并后的类型
+     * @throws IOException 读取或解析失败
+     */
+    public static JsonType inferFile(Path path, DoubleConsumer progress, BooleanSupplier cancelled) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size) {
+                long end = start + CHUNK_SIZE >= size ? size : nextLineStart(channel, start + CHUNK_SIZE);
+                chunks.add(new long[]{start, end});
+                start = end;
+            }
+        }
+        return JsonEngine.timed("infer-file", () -> inferChunks(chunks, range -> {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            channel.position(range[0]);
+            InputStream input = new BoundedInputStream(Channels.newInputStream(channel), range[1] - range[0]);
+            return JsonEngine.getFactory().createParser(input);
+        }, ignored -> JsonEngine.getFactory().createParser(path.toFile()), progress, cancelled));
+    }
+
+    /**
+     * 返回 position 之后第一个行首的偏移
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParserFactory<T> {
+        JsonParser open(T source) throws IOException;
+    }
+
+    private static JsonType inferChunks(List<long[]> chunks, ParserFactory<long[]> chunkParser,
+                                        ParserFactory<Void> wholeParser, DoubleConsumer progress,
+                                        BooleanSupplier cancelled) throws IOException {
+        if (chunks.size() > 1) {
+            AtomicInteger done = new AtomicInteger();
+            try {
+                return chunks.parallelStream().map(range -> {
+                    try (JsonParser parser = chunkParser.open(range)) {
+                        // 分块内只检查取消，进度按完成的分块数汇报
+                        JsonType type = infer(parser, new Scan(cancelled, offset -> {
+                        }));
+                        progress.accept(done.incrementAndGet() / (double) chunks.size());
+                        return type;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }).reduce((left, right) -> {
+                    left.merge(right);
+                    return left;
+                }).orElseGet(JsonType::new);
+            } catch (UncheckedIOException e) {
+                if (!(e.getCause() instanceof JsonProcessingException)) {
+                    throw e.getCause();
+                }
+                // 分块边界切开了跨行的值，说明不是 NDJSON，退回整体顺序推断
+            }
+        }
+        long total = chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1)[1];
+        try (JsonParser parser = wholeParser.open(null)) {
+            JsonType type = infer(parser, new Scan(cancelled, offset -> progress.accept(offset / (double) total)));
+            progress.accept(1);
+            return type;
+        }
+    }
+
+    private static JsonType infer(JsonParser parser, Scan scan) throws IOException {
+        JsonType root = new JsonType();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            accumulate(parser, token, root, scan);
+        }
+        return root;
+    }
+
+    /**
+     * 按 token 计数，定期检查取消状态并汇报解析位置
+     */
+    private static final class Scan {
+        private final BooleanSupplier cancelled;
+        private final LongConsumer offsetProgress;
+        private long tokens;
+
+        Scan(BooleanSupplier cancelled, LongConsumer offsetProgress) {
+            this.cancelled = cancelled;
+            this.offsetProgress = offsetProgress;
+        }
+
+        void tick(JsonParser parser) {
+            if (++tokens % CHECK_INTERVAL != 0) {
+                return;
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            // 文件按字节读取，文本按字符读取，另一个偏移为 -1
+            JsonLocation location = parser.getCurrentLocation();
+            offsetProgress.accept(Math.max(location.getByteOffset(), location.getCharOffset()));
+        }
+    }
+
+    /**
+     * 把当前 token 开始的值合并到 target
+     */
+    private static void accumulate(JsonParser parser, JsonToken token, JsonType target, Scan scan) throws IOException {
+        scan.tick(parser);
+        switch (token) {
+            case START_OBJECT:
+                target.objectCount++;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    Field field = target.field(parser.getCurrentName());
+                    JsonToken valueToken = parser.nextToken();
+                    if (field == null) {
+                        accumulate(parser, valueToken, target.mapValue, scan);
+                    } else {
+                        field.presentCount++;
+                        accumulate(parser, valueToken, field.type, scan);
+                    }
+                }
+                break;
+            case START_ARRAY:
+                target.sawArray = true;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    accumulate(parser, token, target.element(), scan);
+                }
+                break;
+            case VALUE_STRING:
+                target.sawString = true;
+                break;
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        target.sawInt = true;
+                        break;
+                    case LONG:
+                        target.sawLong = true;
+                        break;
+                    default:
+                        target.sawBigInteger = true;
+                        break;
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                target.sawDouble = true;
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                target.sawBoolean = true;
+                break;
+            case VALUE_NULL:
+                target.sawNull = true;
+                break;
+            default:
+                break;
+        }
+    }
+}
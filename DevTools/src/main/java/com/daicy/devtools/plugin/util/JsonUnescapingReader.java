@@ -0,0 +1,185 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 去掉一层 JSON 字符串转义的 Reader
+ *
+ * <p>用于处理从日志、消息队列中复制出来的被转义过的 JSON，例如 <code>{\"a\":\"b\\n\"}</code>
+ * 或带外层引号的 <code>"{\"a\":1}"</code>。单遍状态机逐字符解码，
+ * 正确处理反斜杠、Unicode 等全部转义序列，内层字符串中的转义只去掉一层，
+ * 因此解码结果仍是合法的 JSON。除固定大小的读缓冲外不分配内存。
+ *
+ * @author daicy
+ */
+public class JsonUnescapingReader extends FilterReader {
+
+    /**
+     * 输入的转义形式
+     */
+    public enum Form {
+        /** 普通 JSON，无需处理 */
+        PLAIN,
+        /** 被转义但没有外层引号，例如 {\"a\":1} */
+        ESCAPED,
+        /** 一个完整的 JSON 字符串字面量，例如 "{\"a\":1}" */
+        QUOTED
+    }
+
+    private final boolean quoted;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private boolean escape;
+    // Unicode 转义剩余的十六进制位数
+    private int unicodeDigits;
+    private int unicodeValue;
+    private boolean opened;
+    private boolean closed;
+
+    /**
+     * @param in 原始输入
+     * @param form 输入的转义形式，不能是 {@link Form#PLAIN}
+     */
+    public JsonUnescapingReader(Reader in, Form form) {
+        super(in);
+        this.quoted = form == Form.QUOTED;
+    }
+
+    /**
+     * 根据开头的字符判断输入的转义形式
+     *
+     * @param text 输入
+     * @return 转义形式
+     */
+    public static Form detect(CharSequence text) {
+        int i = skipWhitespace(text, 0);
+        if (i >= text.length()) {
+            return Form.PLAIN;
+        }
+        char first = text.charAt(i);
+        if (first == '"') {
+            return Form.QUOTED;
+        }
+        if (first == '{' || first == '[') {
+            int next = skipWhitespace(text, i + 1);
+            if (next + 1 < text.length() && text.charAt(next) == '\\' && text.charAt(next + 1) == '"') {
+                return Form.ESCAPED;
+            }
+        }
+        return Form.PLAIN;
+    }
+
+    private static int skipWhitespace(CharSequence text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int read() throws IOException {
+        char[] one = new char[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0];
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int produced = 0;
+        while (produced == 0) {
+            if (closed) {
+                return -1;
+            }
+            if (position >= limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (escape || unicodeDigits > 0) {
+                        throw new IOException("转义序列不完整");
+                    }
+                    return -1;
+                }
+            }
+            while (position < limit && produced < len) {
+                char c = buffer[position++];
+                if (unicodeDigits > 0) {
+                    int digit = Character.digit(c, 16);
+                    if (digit < 0) {
+                        throw new IOException("无效的 \\u 转义字符 '" + c + "'");
+                    }
+                    unicodeValue = (unicodeValue << 4) | digit;
+                    if (--unicodeDigits == 0) {
+                        cbuf[off + produced++] = (char) unicodeValue;
+                    }
+                } else if (escape) {
+                    escape = false;
+                    switch (c) {
+                        case 'n': cbuf[off + produced++] = '\n'; break;
+                        case 't': cbuf[off + produced++] = '\t'; break;
+                        case 'r': cbuf[off + produced++] = '\r'; break;
+                        case 'b': cbuf[off + produced++] = '\b'; break;
+                        case 'f': cbuf[off + produced++] = '\f'; break;
+                        case 'u':
+                            unicodeDigits = 4;
+                            unicodeValue = 0;
+                            break;
+                        default:
+                            // \" \\ \/ 以及其他字符原样输出
+                            cbuf[off + produced++] = c;
+                            break;
+                    }
+                } else if (c == '\\') {
+                    escape = true;
+                } else if (quoted && !opened) {
+                    // 跳过外层引号之前的空白
+                    if (c == '"') {
+                        opened = true;
+                    } else if (!Character.isWhitespace(c)) {
+                        throw new IOException("缺少外层引号");
+                    }
+                } else if (quoted && c == '"') {
+                    // 外层字符串结束，忽略之后的内容
+                    closed = true;
+                    break;
+                } else {
+                    cbuf[off + produced++] = c;
+                }
+            }
+            if (closed && produced > 0) {
+                return produced;
+            }
+        }
+        return produced;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        char[] skipBuffer = new char[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean ready() {
+        return position < limit;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
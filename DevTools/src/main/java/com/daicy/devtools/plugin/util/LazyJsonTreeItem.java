@@ -0,0 +1,174 @@
+package com.daicy.devtools.plugin.util;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+/**
+ * 按需展开的 JSON 树节点
+ *
+ * <p>节点只保存值在原文中的偏移，不持有 JsonNode。子节点在第一次展开时才创建，
+ * 每次最多创建 {@link #PAGE_SIZE} 个，其余以一个"加载更多"节点代替，
+ * 因此展开包含上百万元素的数组也只会分配一页的 TreeItem。
+ *
+ * @author daicy
+ */
+public class LazyJsonTreeItem extends TreeItem<LazyJsonTreeItem.Entry> {
+
+    public static final int PAGE_SIZE = 1000;
+    // 标量值在节点上最多显示的字符数
+    private static final int PREVIEW_LENGTH = 80;
+
+    private final JsonStructureIndex index;
+    private boolean loaded;
+    // 下一页的续读位置，-1 表示已全部加载
+    private int resumeFrom = -1;
+    private int loadedCount;
+
+    private LazyJsonTreeItem(JsonStructureIndex index, Entry entry) {
+        super(entry);
+        this.index = index;
+    }
+
+    /**
+     * 创建根节点
+     *
+     * @param index 结构索引
+     * @return 根节点，文本为空时返回 null
+     */
+    public static LazyJsonTreeItem createRoot(JsonStructureIndex index) {
+        int start = index.skipWhitespace(0);
+        if (start >= index.getText().length()) {
+            return null;
+        }
+        LazyJsonTreeItem root = new LazyJsonTreeItem(index, new Entry(index, "$", start, index.valueEnd(start)));
+        root.setExpanded(true);
+        return root;
+    }
+
+    /**
+     * 加载"加载更多"节点所属容器的下一页
+     *
+     * @param item 被选中的节点
+     * @return item 是否为"加载更多"节点
+     */
+    public static boolean loadMore(TreeItem<Entry> item) {
+        if (item == null || item.getValue() == null || !item.getValue().isMore()) {
+            return false;
+        }
+        LazyJsonTreeItem parent = (LazyJsonTreeItem) item.getParent();
+        ObservableList<TreeItem<Entry>> children = parent.getChildren();
+        children.remove(children.size() - 1);
+        parent.loadPage(children);
+        return true;
+    }
+
+    @Override
+    public boolean isLeaf() {
+        Entry entry = getValue();
+        return entry.container < 0 || index.getChildCount(entry.container) == 0;
+    }
+
+    @Override
+    public ObservableList<TreeItem<Entry>> getChildren() {
+        ObservableList<TreeItem<Entry>> children = super.getChildren();
+        if (!loaded) {
+            loaded = true;
+            if (!isLeaf()) {
+                loadPage(children);
+            }
+        }
+        return children;
+    }
+
+    private void loadPage(ObservableList<TreeItem<Entry>> children) {
+        Entry entry = getValue();
+        boolean object = index.isObject(entry.container);
+        List<TreeItem<Entry>> page = new ArrayList<>(Math.min(PAGE_SIZE + 1, index.getChildCount(entry.container) - loadedCount + 1));
+        resumeFrom = index.forEachMember(entry.container, loadedCount == 0 ? -1 : resumeFrom,
+                (keyStart, keyEnd, valueStart, valueEnd) -> {
+                    String key = object ? index.decodeKey(keyStart, keyEnd) : String.valueOf(loadedCount + page.size());
+                    page.add(new LazyJsonTreeItem(index, new Entry(index, key, valueStart, valueEnd)));
+                    return page.size() < PAGE_SIZE;
+                });
+        loadedCount += page.size();
+        if (resumeFrom >= 0) {
+            page.add(new TreeItem<>(Entry.more(index.getChildCount(entry.container) - loadedCount)));
+        }
+        // 一次性加入，只触发一次列表变更事件
+        children.addAll(page);
+    }
+
+    /**
+     * 树节点显示的内容：属性名或下标、值的偏移，以及容器的元素个数和大小
+     */
+    public static final class Entry {
+        private final JsonStructureIndex index;
+        private final String key;
+        private final int valueStart;
+        private final int valueEnd;
+        private final int container;
+        private String label;
+
+        private Entry(JsonStructureIndex index, String key, int valueStart, int valueEnd) {
+            this.index = index;
+            this.key = key;
+            this.valueStart = valueStart;
+            this.valueEnd = valueEnd;
+            this.container = index == null ? -1 : index.containerAt(valueStart);
+        }
+
+        private static Entry more(int remaining) {
+            Entry entry = new Entry(null, null, -1, -1);
+            entry.label = String.format("… 还有 %,d 项，双击加载更多", remaining);
+            return entry;
+        }
+
+        public boolean isMore() {
+            return index == null;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return 值在原文中的起始偏移
+         */
+        public int getValueStart() {
+            return valueStart;
+        }
+
+        /**
+         * @return 值之后的偏移
+         */
+        public int getValueEnd() {
+            return valueEnd;
+        }
+
+        /**
+         * 节点文本在第一次显示时才计算，容器的大小只会统计一次
+         */
+        @Override
+        public String toString() {
+            if (label != null) {
+                return label;
+            }
+            CharSequence text = index.getText();
+            if (container >= 0) {
+                boolean object = index.isObject(container);
+                long bytes = ByteSizes.utf8Length(CharBuffer.wrap(text, valueStart, valueEnd));
+                label = String.format("%s %s%,d%s  (%s)", key, object ? "{" : "[", index.getChildCount(container),
+                        object ? "}" : "]", ByteSizes.format(bytes));
+            } else if (valueEnd - valueStart > PREVIEW_LENGTH) {
+                label = key + " : " + text.subSequence(valueStart, valueStart + PREVIEW_LENGTH) + "…";
+            } else {
+                label = key + " : " + text.subSequence(valueStart, valueEnd);
+            }
+            return label;
+        }
+    }
+}
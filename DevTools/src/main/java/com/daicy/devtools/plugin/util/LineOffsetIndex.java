@@ -0,0 +1,138 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.Arrays;
+
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.PlainTextChange;
+
+/**
+ * 行首偏移索引
+ *
+ * <p>记录每一行起始字符在文档中的偏移，用于在行/列与字符偏移之间转换：
+ * 行/列到偏移为 O(1)，偏移到行为 O(log n) 的二分查找。
+ * 通过 {@link #attach(CodeArea)} 绑定后随 CodeArea 的文本修改增量更新，无需复制全文。
+ *
+ * @author daicy
+ */
+public class LineOffsetIndex {
+
+    private int[] lineStarts = new int[16];
+    private int lineCount = 1;
+    private int length;
+
+    /**
+     * 为给定文本建立索引
+     */
+    public static LineOffsetIndex of(CharSequence text) {
+        LineOffsetIndex index = new LineOffsetIndex();
+        index.apply(0, 0, text);
+        return index;
+    }
+
+    /**
+     * 为 CodeArea 建立索引，并订阅其文本修改保持同步
+     */
+    public static LineOffsetIndex attach(CodeArea codeArea) {
+        LineOffsetIndex index = of(codeArea.getText());
+        codeArea.plainTextChanges().subscribe(index::apply);
+        return index;
+    }
+
+    public void apply(PlainTextChange change) {
+        apply(change.getPosition(), change.getRemoved().length(), change.getInserted());
+    }
+
+    /**
+     * 应用一次文本替换
+     *
+     * @param position 替换起始偏移
+     * @param removedLength 被删除的字符数
+     * @param inserted 插入的文本
+     */
+    public void apply(int position, int removedLength, CharSequence inserted) {
+        int delta = inserted.length() - removedLength;
+        // 被删除范围内的行首为 (position, position + removedLength]
+        int firstRemoved = upperBound(position);
+        int afterRemoved = upperBound(position + removedLength);
+        int insertedLines = 0;
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') {
+                insertedLines++;
+            }
+        }
+        int newCount = lineCount - (afterRemoved - firstRemoved) + insertedLines;
+        if (newCount > lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, Math.max(newCount, lineStarts.length * 2));
+        }
+        System.arraycopy(lineStarts, afterRemoved, lineStarts, firstRemoved + insertedLines, lineCount - afterRemoved);
+        int slot = firstRemoved;
+        for (int i = 0; i < inserted.length(); i++) {
+            if (inserted.charAt(i) == '\n') {
+                lineStarts[slot++] = position + i + 1;
+            }
+        }
+        for (int i = slot; i < newCount; i++) {
+            lineStarts[i] += delta;
+        }
+        lineCount = newCount;
+        length += delta;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @param line 行号，从 0 开始
+     * @return 该行起始偏移
+     */
+    public int getLineStart(int line) {
+        return lineStarts[Math.max(0, Math.min(line, lineCount - 1))];
+    }
+
+    /**
+     * @param line 行号，从 0 开始
+     * @return 该行结束偏移（不含换行符）
+     */
+    public int getLineEnd(int line) {
+        return line + 1 < lineCount ? lineStarts[line + 1] - 1 : length;
+    }
+
+    /**
+     * @param offset 字符偏移
+     * @return 偏移所在的行号，从 0 开始
+     */
+    public int lineOfOffset(int offset) {
+        return upperBound(offset) - 1;
+    }
+
+    /**
+     * 将 1 起始的行/列（Jackson JsonLocation 的约定）转换为字符偏移，超出范围时截断到行内
+     *
+     * @param lineNumber 行号，从 1 开始
+     * @param columnNumber 列号，从 1 开始
+     * @return 字符偏移
+     */
+    public int toOffset(int lineNumber, int columnNumber) {
+        int line = Math.max(0, Math.min(lineNumber - 1, lineCount - 1));
+        int start = lineStarts[line];
+        return Math.max(start, Math.min(start + columnNumber - 1, getLineEnd(line)));
+    }
+
+    /**
+     * 返回第一个大于 offset 的行首的下标
+     */
+    private int upperBound(int offset) {
+        int low = 1;
+        int high = lineCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,297 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import com.daicy.core.JsonEngine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * NDJSON（JSON Lines）处理
+ *
+ * <p>输入按行切分为若干批次，每批在 ForkJoinPool 上并行格式化/校验，
+ * 结果按批次顺序写出，因此输出顺序与输入一致。同时在途的批次数有上限，
+ * 处理 GB 级文件时内存占用也是有界的。
+ *
+ * <p>无法解析的行原样输出并计入错误；空行跳过。
+ *
+ * @author daicy
+ */
+public class NdjsonProcessor {
+
+    /**
+     * 每个批次累计的大致字符数
+     */
+    private static final int BATCH_CHARS = 1024 * 1024;
+    /**
+     * 最多保留的错误明细条数
+     */
+    private static final int MAX_ERRORS = 1000;
+    /**
+     * 行大小直方图的桶数，第 i 个桶为 [2^(i-1), 2^i) 字节
+     */
+    private static final int HISTOGRAM_BUCKETS = 32;
+
+    /**
+     * 一行的解析错误
+     */
+    public static final class LineError {
+        private final long lineNumber;
+        private final String message;
+
+        LineError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        /**
+         * @return 行号，从 1 开始
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "第 " + lineNumber + " 行：" + message;
+        }
+    }
+
+    /**
+     * 处理统计，批次之间可以合并
+     */
+    public static final class Summary {
+        private long lineCount;
+        private long blankCount;
+        private long errorCount;
+        private long inputBytes;
+        private final List<LineError> errors = new ArrayList<>();
+        private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+
+        void merge(Summary other) {
+            lineCount += other.lineCount;
+            blankCount += other.blankCount;
+            errorCount += other.errorCount;
+            inputBytes += other.inputBytes;
+            for (LineError error : other.errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(error);
+                }
+            }
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                histogram[i] += other.histogram[i];
+            }
+        }
+
+        void recordSize(long bytes) {
+            int bucket = Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(bytes));
+            histogram[bucket]++;
+        }
+
+        /**
+         * @return 非空行数
+         */
+        public long getLineCount() {
+            return lineCount;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * @return 前 {@value #MAX_ERRORS} 个错误的明细，按行号排列
+         */
+        public List<LineError> getErrors() {
+            return errors;
+        }
+
+        /**
+         * 生成文字报告：行数、错误数、行大小直方图和错误明细
+         */
+        public String describe() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("共 %,d 行（空行 %,d），错误 %,d 行，输入 %s%n", lineCount, blankCount, errorCount,
+                    ByteSizes.format(inputBytes)));
+            report.append("\n行大小分布：\n");
+            long max = 1;
+            for (long count : histogram) {
+                max = Math.max(max, count);
+            }
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                if (histogram[i] == 0) {
+                    continue;
+                }
+                String upper = ByteSizes.format(1L << i);
+                int bar = (int) Math.max(1, histogram[i] * 40 / max);
+                report.append(String.format("  < %-9s %12s  %s%n", upper, String.format("%,d", histogram[i]), repeat('#', bar)));
+            }
+            if (!errors.isEmpty()) {
+                report.append("\n错误明细");
+                if (errorCount > errors.size()) {
+                    report.append("（仅显示前 ").append(errors.size()).append(" 条）");
+                }
+                report.append("：\n");
+                for (LineError error : errors) {
+                    report.append("  ").append(error).append('\n');
+                }
+            }
+            return report.toString();
+        }
+
+        private static String repeat(char c, int count) {
+            char[] chars = new char[count];
+            Arrays.fill(chars, c);
+            return new String(chars);
+        }
+    }
+
+    /**
+     * 一个批次：连续的若干行及其第一行的行号
+     */
+    private static final class Batch {
+        final long firstLine;
+        final List<String> lines;
+
+        Batch(long firstLine, List<String> lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    private static final class BatchResult {
+        final String output;
+        final Summary summary;
+
+        BatchResult(String output, Summary summary) {
+            this.output = output;
+            this.summary = summary;
+        }
+    }
+
+    /**
+     * 逐行处理 NDJSON
+     *
+     * @param reader 输入，按行读取
+     * @param writer 输出，每个值之后跟一个换行；方法不会关闭 writer
+     * @param mode 每一行的输出模式；美化模式下每条记录会占多行
+     * @param progress 每写出一个批次后回调，参数为已读取的字符数
+     * @param cancelled 返回 true 时中止处理并抛出 {@link CancellationException}
+     * @return 处理统计
+     * @throws IOException 读写失败
+     */
+    public static Summary process(BufferedReader reader, Writer writer, JsonFormatMode mode,
+                                  LongConsumer progress, BooleanSupplier cancelled) throws IOException {
+        return JsonEngine.timed("ndjson-" + mode.name().toLowerCase(), () -> {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int window = Math.max(2, pool.getParallelism() * 4);
+            Deque<CompletableFuture<BatchResult>> inFlight = new ArrayDeque<>();
+            Summary summary = new Summary();
+            long lineNumber = 1;
+            long charsRead = 0;
+            List<String> lines = new ArrayList<>();
+            int batchChars = 0;
+            String line;
+            try {
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                    batchChars += line.length() + 1;
+                    charsRead += line.length() + 1;
+                    if (batchChars >= BATCH_CHARS) {
+                        submit(new Batch(lineNumber, lines), mode, pool, inFlight);
+                        lineNumber += lines.size();
+                        lines = new ArrayList<>();
+                        batchChars = 0;
+                        // 在途批次达到上限时先按顺序写出最早的批次
+                        while (inFlight.size() >= window) {
+                            drainHead(inFlight, writer, summary);
+                            progress.accept(charsRead);
+                        }
+                        if (cancelled.getAsBoolean()) {
+                            throw new CancellationException();
+                        }
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    submit(new Batch(lineNumber, lines), mode, pool, inFlight);
+                }
+                while (!inFlight.isEmpty()) {
+                    drainHead(inFlight, writer, summary);
+                }
+                progress.accept(charsRead);
+            } finally {
+                inFlight.forEach(future -> future.cancel(false));
+            }
+            writer.flush();
+            return summary;
+        });
+    }
+
+    private static void submit(Batch batch, JsonFormatMode mode, ForkJoinPool pool, Deque<CompletableFuture<BatchResult>> inFlight) {
+        inFlight.addLast(CompletableFuture.supplyAsync(() -> processBatch(batch, mode), pool));
+    }
+
+    private static void drainHead(Deque<CompletableFuture<BatchResult>> inFlight, Writer writer, Summary summary) throws IOException {
+        BatchResult result;
+        try {
+            result = inFlight.removeFirst().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+        writer.write(result.output);
+        summary.merge(result.summary);
+    }
+
+    private static BatchResult processBatch(Batch batch, JsonFormatMode mode) {
+        Summary summary = new Summary();
+        StringWriter output = new StringWriter(BATCH_CHARS + BATCH_CHARS / 4);
+        for (int i = 0; i < batch.lines.size(); i++) {
+            String line = batch.lines.get(i);
+            if (line.trim().isEmpty()) {
+                summary.blankCount++;
+                continue;
+            }
+            long bytes = ByteSizes.utf8Length(line);
+            summary.lineCount++;
+            summary.inputBytes += bytes;
+            summary.recordSize(bytes);
+            StringWriter formatted = new StringWriter(line.length() + 16);
+            try {
+                JsonStreamFormatter.formatUntimed(new StringReader(line), formatted, mode);
+                output.append(formatted.getBuffer());
+            } catch (JsonProcessingException e) {
+                summary.errorCount++;
+                if (summary.errors.size() < MAX_ERRORS) {
+                    summary.errors.add(new LineError(batch.firstLine + i, e.getOriginalMessage()));
+                }
+                output.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            output.append('\n');
+        }
+        return new BatchResult(output.toString(), summary);
+    }
+}
@@ -0,0 +1,135 @@
+package com.daicy.devtools.plugin.util;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+
+import javafx.application.Platform;
+
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+/**
+ * 按段落调度样式应用
+ *
+ * <p>记录需要重新着色的段落，优先处理当前视口内的段落，其余段落在后续的
+ * JavaFX 脉冲中分批处理，避免一次性对整篇文档调用 {@code setStyleSpans}。
+ * 连续的脏段落会合并为一次 {@code setStyleSpans} 调用。
+ *
+ * @author daicy
+ */
+public class ParagraphStyleScheduler {
+
+    /**
+     * 段落着色回调，向 builder 写入覆盖整个段落（不含换行符）的样式
+     */
+    public interface ParagraphStyler {
+        void style(int paragraph, StyleSpansBuilder<Collection<String>> spansBuilder);
+    }
+
+    // 每个脉冲最多处理的视口外段落数
+    private static final int BATCH_SIZE = 500;
+
+    private final CodeArea codeArea;
+    private final ParagraphStyler styler;
+    private final BitSet dirty = new BitSet();
+    private boolean scheduled;
+
+    public ParagraphStyleScheduler(CodeArea codeArea, ParagraphStyler styler) {
+        this.codeArea = codeArea;
+        this.styler = styler;
+        // 滚动后优先为新进入视口的段落着色
+        codeArea.estimatedScrollYProperty().addListener((observable, oldValue, newValue) -> {
+            if (!dirty.isEmpty()) {
+                Platform.runLater(this::applyVisible);
+            }
+        });
+    }
+
+    /**
+     * 同步文本修改后的段落编号
+     *
+     * <p>{@code startParagraph} 之后被删除的段落对应的标记被丢弃，之后的标记按段落数变化平移，
+     * 新插入的段落一律标记为脏。
+     *
+     * @param startParagraph 修改所在的段落
+     * @param removedCount 删除的换行数
+     * @param insertedCount 插入的换行数
+     */
+    public void paragraphsReplaced(int startParagraph, int removedCount, int insertedCount) {
+        int tailStart = startParagraph + removedCount + 1;
+        BitSet tail = dirty.get(tailStart, Math.max(tailStart, dirty.length()));
+        dirty.clear(startParagraph, Math.max(startParagraph, dirty.length()));
+        dirty.set(startParagraph, startParagraph + insertedCount + 1);
+        int offset = startParagraph + insertedCount + 1;
+        for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+            dirty.set(offset + i);
+        }
+    }
+
+    /**
+     * 标记 [from, to) 范围内的段落需要重新着色
+     */
+    public void markDirty(int from, int to) {
+        if (from < to) {
+            dirty.set(from, to);
+        }
+    }
+
+    /**
+     * 立即为视口内的脏段落着色，并安排其余段落在后续脉冲中处理
+     */
+    public void flush() {
+        applyVisible();
+        scheduleRest();
+    }
+
+    private void applyVisible() {
+        if (codeArea.getVisibleParagraphs().isEmpty()) {
+            return;
+        }
+        int first = codeArea.firstVisibleParToAllParIndex();
+        int last = codeArea.lastVisibleParToAllParIndex();
+        applyRange(first, last + 1, Integer.MAX_VALUE);
+    }
+
+    private void scheduleRest() {
+        if (scheduled || dirty.isEmpty()) {
+            return;
+        }
+        scheduled = true;
+        Platform.runLater(() -> {
+            scheduled = false;
+            applyVisible();
+            applyRange(0, Integer.MAX_VALUE, BATCH_SIZE);
+            scheduleRest();
+        });
+    }
+
+    /**
+     * 为 [from, to) 内的脏段落着色，最多处理 limit 个段落
+     */
+    private void applyRange(int from, int to, int limit) {
+        int paragraphCount = codeArea.getParagraphs().size();
+        // 超出文档范围的标记已经失效
+        dirty.clear(paragraphCount, Math.max(paragraphCount, dirty.length()));
+        to = Math.min(to, paragraphCount);
+        int budget = limit;
+        int start = dirty.nextSetBit(from);
+        while (start >= 0 && start < to && budget > 0) {
+            int end = Math.min(Math.min(dirty.nextClearBit(start), to), start + budget);
+            StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
+            for (int paragraph = start; paragraph < end; paragraph++) {
+                if (paragraph > start) {
+                    // 段落之间的换行符
+                    spansBuilder.add(Collections.emptyList(), 1);
+                }
+                styler.style(paragraph, spansBuilder);
+            }
+            codeArea.setStyleSpans(start, 0, spansBuilder.create());
+            dirty.clear(start, end);
+            budget -= end - start;
+            start = dirty.nextSetBit(end);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.daicy.devtools.plugin.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.LongConsumer;
+
+/**
+ * 带进度回调的 Reader
+ *
+ * <p>每次从底层 Reader 读取后，以累计读取的字符数回调监听器。
+ * 监听器可以抛出 {@link java.util.concurrent.CancellationException} 来中断读取，
+ * 用于后台任务的取消。
+ *
+ * @author daicy
+ */
+public class ProgressReader extends FilterReader {
+
+    private final LongConsumer listener;
+    private long readCount;
+
+    public ProgressReader(Reader in, LongConsumer listener) {
+        super(in);
+        this.listener = listener;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c = super.read();
+        if (c >= 0) {
+            listener.accept(++readCount);
+        }
+        return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int n = super.read(cbuf, off, len);
+        if (n > 0) {
+            readCount += n;
+            listener.accept(readCount);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        readCount += skipped;
+        listener.accept(readCount);
+        return skipped;
+    }
+}
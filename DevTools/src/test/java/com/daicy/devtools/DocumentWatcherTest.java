@@ -0,0 +1,111 @@
+package com.daicy.devtools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javafx.scene.layout.Pane;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 保存结果与外部修改处理的配合
+ *
+ * @author daicy
+ */
+class DocumentWatcherTest {
+
+    private static final String ORIGINAL = "127.0.0.1 localhost\n";
+    private static final String EDITED = "127.0.0.1 localhost\n10.0.0.1 dev.local\n";
+    private static final String EXTERNAL = "127.0.0.1 localhost\n10.8.0.1 vpn.local\n";
+
+    /**
+     * 只保存在内存中的插件，可以指定保存是否成功
+     */
+    private static final class FakePlugin implements TextPlugin {
+        private String content;
+        private final boolean saveSucceeds;
+
+        FakePlugin(String content, boolean saveSucceeds) {
+            this.content = content;
+            this.saveSucceeds = saveSucceeds;
+        }
+
+        @Override
+        public Pane getContentPane() {
+            return null;
+        }
+
+        @Override
+        public Path getDefaultPath() {
+            return null;
+        }
+
+        @Override
+        public void open(String filePath) {
+        }
+
+        @Override
+        public boolean save(String filePath) {
+            return saveSucceeds;
+        }
+
+        @Override
+        public String getContent() {
+            return content;
+        }
+
+        @Override
+        public void setContent(String content) {
+            this.content = content;
+        }
+    }
+
+    /**
+     * 与编辑器保存文件时的顺序相同：写入成功后才更新基准
+     */
+    private static boolean save(FakePlugin plugin, DocumentWatcher watcher, Path file) {
+        if (!plugin.save(file.toString())) {
+            return false;
+        }
+        watcher.markSaved(file);
+        return true;
+    }
+
+    @Test
+    void failedSaveKeepsEditsFromBeingReloaded(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("hosts");
+        Files.writeString(file, ORIGINAL);
+        FakePlugin plugin = new FakePlugin(ORIGINAL, false);
+        DocumentWatcher watcher = new DocumentWatcher(plugin, file);
+        try {
+            plugin.setContent(EDITED);
+            // 例如取消输入 sudo 密码
+            assertFalse(save(plugin, watcher, file));
+            // 之后 VPN 客户端改写文件，编辑器中的修改没有保存，不能被直接替换
+            assertEquals(DocumentWatcher.Reaction.ASK, watcher.reaction(plugin.getContent(), EXTERNAL));
+        } finally {
+            watcher.dispose();
+        }
+    }
+
+    @Test
+    void successfulSaveReloadsLaterExternalEdits(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("hosts");
+        Files.writeString(file, ORIGINAL);
+        FakePlugin plugin = new FakePlugin(ORIGINAL, true);
+        DocumentWatcher watcher = new DocumentWatcher(plugin, file);
+        try {
+            plugin.setContent(EDITED);
+            assertTrue(save(plugin, watcher, file));
+            assertEquals(DocumentWatcher.Reaction.RELOAD, watcher.reaction(plugin.getContent(), EXTERNAL));
+        } finally {
+            watcher.dispose();
+        }
+    }
+}
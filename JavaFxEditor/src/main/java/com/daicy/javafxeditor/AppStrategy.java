@@ -71,7 +71,7 @@ public interface AppStrategy {
     URL getSyntaxCss();
 
     /**
-     * Shows online reference (for example, opens a web page)
+     * Shows a reference tool window (by default, the in-process JSON diff)
      */
     void showOnlineReference();
 
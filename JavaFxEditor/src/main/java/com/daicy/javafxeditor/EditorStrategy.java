@@ -1,8 +1,10 @@
 package com.daicy.javafxeditor;
 
+import com.daicy.core.JsonDiffPane;
 import com.daicy.javafxeditor.about.AboutBox;
-import com.daicy.javafxeditor.desktop.DesktopUtils;
+import javafx.scene.Scene;
 import javafx.stage.FileChooser;
+import javafx.stage.Stage;
 import org.fxmisc.richtext.CodeArea;
 
 import java.io.File;
@@ -64,7 +66,13 @@ public class EditorStrategy implements AppStrategy {
 
     @Override
     public void showOnlineReference() {
-        DesktopUtils.openBrowser( "https://jsdiff.com/",null);
+        // 进程内的 JSON 比较，不再打开在线页面
+        JsonDiffPane diffPane = new JsonDiffPane();
+        Stage stage = new Stage();
+        stage.setTitle("JSON Diff");
+        stage.setScene(new Scene(diffPane, 1000, 700));
+        stage.setOnHidden(event -> diffPane.dispose());
+        stage.show();
     }
 
     @Override
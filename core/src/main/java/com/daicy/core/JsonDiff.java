@@ -0,0 +1,597 @@
+package com.daicy.core;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * JSON 结构化比较
+ *
+ * <p>两份文档先用流式解析器分别构建轻量节点树（可并行），每个节点带有 64 位子树哈希，
+ * 哈希相同的分支直接跳过。对象按键比较，与键的顺序无关；数组先去掉首尾相同的元素，
+ * 中间部分用 LCS 对齐；最后把被删除和被新增的相同子树配对为"移动"。
+ *
+ * <p>哈希相同即视为相等，不再逐节点确认（64 位哈希碰撞的概率可以忽略）。
+ *
+ * @author daicy
+ */
+public class JsonDiff {
+
+    /**
+     * LCS 动态规划允许的最大单元数，超过时中间部分按位置对齐
+     */
+    private static final long LCS_LIMIT = 4_000_000L;
+    private static final int PREVIEW_LENGTH = 80;
+    /**
+     * 小数按普通写法比较时允许的最大指数
+     */
+    private static final int MAX_PLAIN_SCALE = 1000;
+
+    private static final byte OBJECT = 0;
+    private static final byte ARRAY = 1;
+    private static final byte STRING = 2;
+    private static final byte NUMBER = 3;
+    private static final byte LITERAL = 4;
+
+    public enum Kind {
+        ADDED("+"), REMOVED("-"), CHANGED("~"), MOVED("↔");
+
+        private final String symbol;
+
+        Kind(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    /**
+     * 一处差异
+     */
+    public static final class Difference {
+        private final Kind kind;
+        private final String leftPath;
+        private final String rightPath;
+        private final Node left;
+        private final Node right;
+
+        private Difference(Kind kind, String leftPath, String rightPath, Node left, Node right) {
+            this.kind = kind;
+            this.leftPath = leftPath;
+            this.rightPath = rightPath;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return 差异在左侧文档中的路径，新增时为 null
+         */
+        public String getLeftPath() {
+            return leftPath;
+        }
+
+        /**
+         * @return 差异在右侧文档中的路径，删除时为 null
+         */
+        public String getRightPath() {
+            return rightPath;
+        }
+
+        /**
+         * @return 左侧值所在行，从 1 开始，没有时返回 -1
+         */
+        public int getLeftLine() {
+            return left == null ? -1 : left.line;
+        }
+
+        /**
+         * @return 右侧值所在行，从 1 开始，没有时返回 -1
+         */
+        public int getRightLine() {
+            return right == null ? -1 : right.line;
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case ADDED:
+                    return kind.symbol + " " + rightPath + " : " + right.preview();
+                case REMOVED:
+                    return kind.symbol + " " + leftPath + " : " + left.preview();
+                case MOVED:
+                    return kind.symbol + " " + leftPath + " → " + rightPath + " : " + left.preview();
+                default:
+                    return kind.symbol + " " + leftPath + " : " + left.preview() + " → " + right.preview();
+            }
+        }
+    }
+
+    /**
+     * 轻量节点，只保存比较和显示所需的信息
+     */
+    private static final class Node {
+        final byte type;
+        final int line;
+        // 标量的文本；字符串为解码后的值
+        String text;
+        String[] keys;
+        Node[] children;
+        long hash;
+
+        Node(byte type, int line) {
+            this.type = type;
+            this.line = line;
+        }
+
+        String preview() {
+            switch (type) {
+                case OBJECT:
+                    return "{" + children.length + " 个属性}";
+                case ARRAY:
+                    return "[" + children.length + " 个元素]";
+                case STRING:
+                    String quoted = '"' + text + '"';
+                    return quoted.length() > PREVIEW_LENGTH ? quoted.substring(0, PREVIEW_LENGTH) + "…" : quoted;
+                default:
+                    return text;
+            }
+        }
+    }
+
+    /**
+     * 路径片段，只在输出差异时才拼接成字符串
+     */
+    private static final class PathSegment {
+        final PathSegment parent;
+        final String key;
+        final int index;
+
+        PathSegment(PathSegment parent, String key, int index) {
+            this.parent = parent;
+            this.key = key;
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder path = new StringBuilder();
+            append(path);
+            return path.toString();
+        }
+
+        private void append(StringBuilder path) {
+            if (parent == null) {
+                path.append('$');
+                return;
+            }
+            parent.append(path);
+            if (key == null) {
+                path.append('[').append(index).append(']');
+            } else if (isIdentifier(key)) {
+                path.append('.').append(key);
+            } else {
+                path.append("['").append(key.replace("'", "\\'")).append("']");
+            }
+        }
+
+        private static boolean isIdentifier(String key) {
+            if (key.isEmpty() || !Character.isJavaIdentifierStart(key.charAt(0))) {
+                return false;
+            }
+            for (int i = 1; i < key.length(); i++) {
+                if (!Character.isJavaIdentifierPart(key.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final PathSegment ROOT = new PathSegment(null, null, -1);
+
+    private final List<Difference> differences = new ArrayList<>();
+    // 等待配对为移动的删除/新增
+    private final List<Pending> removed = new ArrayList<>();
+    private final List<Pending> added = new ArrayList<>();
+
+    private static final class Pending {
+        final PathSegment path;
+        final Node node;
+
+        Pending(PathSegment path, Node node) {
+            this.path = path;
+            this.node = node;
+        }
+    }
+
+    private JsonDiff() {
+    }
+
+    /**
+     * 比较两份 JSON 文档
+     *
+     * <p>执行线程被中断时抛出 {@link CancellationException}。
+     *
+     * @param leftJson 左侧文档
+     * @param rightJson 右侧文档
+     * @return 差异列表，按所在行排序
+     * @throws IOException 任一文档不是合法的 JSON
+     */
+    public static List<Difference> compare(String leftJson, String rightJson) throws IOException {
+        return JsonEngine.timed("diff", () -> {
+            // 右侧文档在公共线程池中解析，与左侧并行
+            CompletableFuture<Node> rightFuture = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return parse(rightJson);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            Node left;
+            Node right;
+            try {
+                left = parse(leftJson);
+                right = rightFuture.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            } finally {
+                rightFuture.cancel(true);
+            }
+            JsonDiff diff = new JsonDiff();
+            diff.compare(ROOT, ROOT, left, right);
+            diff.pairMoves();
+            return diff.differences;
+        });
+    }
+
+    private static Node parse(String json) throws IOException {
+        try (JsonParser parser = JsonEngine.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new IOException("文档为空");
+            }
+            Node root = read(parser, token);
+            if (parser.nextToken() != null) {
+                throw new IOException("文档末尾存在多余内容，行 " + parser.getTokenLocation().getLineNr());
+            }
+            return root;
+        }
+    }
+
+    private static Node read(JsonParser parser, JsonToken token) throws IOException {
+        int line = parser.getTokenLocation().getLineNr();
+        Node node;
+        switch (token) {
+            case START_OBJECT: {
+                node = new Node(OBJECT, line);
+                List<String> keys = new ArrayList<>();
+                List<Node> children = new ArrayList<>();
+                long hash = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = parser.getCurrentName();
+                    Node child = read(parser, parser.nextToken());
+                    keys.add(key);
+                    children.add(child);
+                    // 键值对哈希相加，与键的顺序无关
+                    hash += mix(hashText(key, OBJECT) ^ child.hash);
+                }
+                node.keys = keys.toArray(new String[0]);
+                node.children = children.toArray(new Node[0]);
+                node.hash = mix(hash + OBJECT);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException();
+                }
+                return node;
+            }
+            case START_ARRAY: {
+                node = new Node(ARRAY, line);
+                List<Node> children = new ArrayList<>();
+                long hash = ARRAY;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    Node child = read(parser, token);
+                    children.add(child);
+                    hash = mix(hash * 31 + child.hash);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException();
+                }
+                node.children = children.toArray(new Node[0]);
+                node.hash = mix(hash + children.size());
+                return node;
+            }
+            case VALUE_STRING:
+                node = new Node(STRING, line);
+                node.text = parser.getText();
+                break;
+            case VALUE_NUMBER_INT:
+                node = new Node(NUMBER, line);
+                node.text = parser.getText();
+                break;
+            case VALUE_NUMBER_FLOAT:
+                // 1.0 与 1.00、100.0 与整数 100 视为相同；
+                // 指数很大时保留科学计数法，避免 1e999999 之类的值展开成超长文本
+                node = new Node(NUMBER, line);
+                BigDecimal value = parser.getDecimalValue().stripTrailingZeros();
+                node.text = Math.abs(value.scale()) <= MAX_PLAIN_SCALE ? value.toPlainString() : value.toString();
+                break;
+            default:
+                node = new Node(LITERAL, line);
+                node.text = parser.getText();
+                break;
+        }
+        node.hash = hashText(node.text, node.type);
+        return node;
+    }
+
+    private static long hashText(String text, byte type) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L ^ type;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3 的 64 位终结函数
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private void compare(PathSegment leftPath, PathSegment rightPath, Node left, Node right) {
+        if (left.hash == right.hash && left.type == right.type) {
+            return;
+        }
+        if (left.type != right.type || left.type > ARRAY) {
+            differences.add(new Difference(Kind.CHANGED, leftPath.toString(), rightPath.toString(), left, right));
+        } else if (left.type == OBJECT) {
+            compareObjects(leftPath, rightPath, left, right);
+        } else {
+            compareArrays(leftPath, rightPath, left, right);
+        }
+    }
+
+    private void compareObjects(PathSegment leftPath, PathSegment rightPath, Node left, Node right) {
+        Map<String, Integer> rightKeys = new HashMap<>(right.keys.length * 2);
+        for (int i = 0; i < right.keys.length; i++) {
+            rightKeys.put(right.keys[i], i);
+        }
+        Set<String> leftKeys = new HashSet<>(left.keys.length * 2);
+        for (int i = 0; i < left.keys.length; i++) {
+            String key = left.keys[i];
+            leftKeys.add(key);
+            Integer j = rightKeys.get(key);
+            if (j == null) {
+                removed.add(new Pending(new PathSegment(leftPath, key, -1), left.children[i]));
+            } else {
+                compare(new PathSegment(leftPath, key, -1), new PathSegment(rightPath, key, -1), left.children[i], right.children[j]);
+            }
+        }
+        for (int j = 0; j < right.keys.length; j++) {
+            if (!leftKeys.contains(right.keys[j])) {
+                added.add(new Pending(new PathSegment(rightPath, right.keys[j], -1), right.children[j]));
+            }
+        }
+    }
+
+    private void compareArrays(PathSegment leftPath, PathSegment rightPath, Node left, Node right) {
+        align(leftPath, rightPath, left.children, 0, left.children.length, right.children, 0, right.children.length);
+    }
+
+    /**
+     * 对齐 a[aFrom, aTo) 与 b[bFrom, bTo)
+     *
+     * <p>先去掉首尾相同的元素；剩余部分足够小时用 LCS 对齐，否则以两侧都只出现一次的
+     * 元素为锚点（patience diff），取锚点的最长递增子序列后对锚点之间的各段递归对齐。
+     */
+    private void align(PathSegment leftPath, PathSegment rightPath, Node[] a, int aFrom, int aTo, Node[] b, int bFrom, int bTo) {
+        while (aFrom < aTo && bFrom < bTo && a[aFrom].hash == b[bFrom].hash) {
+            aFrom++;
+            bFrom++;
+        }
+        while (aFrom < aTo && bFrom < bTo && a[aTo - 1].hash == b[bTo - 1].hash) {
+            aTo--;
+            bTo--;
+        }
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        if (n == 0 || m == 0) {
+            compareGap(leftPath, rightPath, a, aFrom, aTo, b, bFrom, bTo);
+        } else if ((long) n * m <= LCS_LIMIT) {
+            alignLcs(leftPath, rightPath, a, aFrom, aTo, b, bFrom, bTo);
+        } else {
+            alignAnchors(leftPath, rightPath, a, aFrom, aTo, b, bFrom, bTo);
+        }
+    }
+
+    private void alignLcs(PathSegment leftPath, PathSegment rightPath, Node[] a, int aFrom, int aTo, Node[] b, int bFrom, int bTo) {
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        // LCS 长度表，lcs[i][j] 为 a[aFrom+i..] 与 b[bFrom+j..] 的 LCS 长度
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            long hash = a[aFrom + i].hash;
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = hash == b[bFrom + j].hash ? lcs[i + 1][j + 1] + 1 : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        int gapI = 0;
+        int gapJ = 0;
+        while (i < n && j < m) {
+            if (a[aFrom + i].hash == b[bFrom + j].hash) {
+                compareGap(leftPath, rightPath, a, aFrom + gapI, aFrom + i, b, bFrom + gapJ, bFrom + j);
+                i++;
+                j++;
+                gapI = i;
+                gapJ = j;
+            } else if (lcs[i + 1][j] >= lcs[i][j + 1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        compareGap(leftPath, rightPath, a, aFrom + gapI, aTo, b, bFrom + gapJ, bTo);
+    }
+
+    private void alignAnchors(PathSegment leftPath, PathSegment rightPath, Node[] a, int aFrom, int aTo, Node[] b, int bFrom, int bTo) {
+        // 哈希 → 在 b 中的位置，出现多次的记为 -1
+        Map<Long, Integer> bPositions = new HashMap<>((bTo - bFrom) * 2);
+        for (int j = bFrom; j < bTo; j++) {
+            bPositions.merge(b[j].hash, j, (first, second) -> -1);
+        }
+        Map<Long, Integer> aCounts = new HashMap<>((aTo - aFrom) * 2);
+        for (int i = aFrom; i < aTo; i++) {
+            aCounts.merge(a[i].hash, 1, Integer::sum);
+        }
+        // 两侧都唯一的元素作为候选锚点，按 a 中的顺序排列
+        int[] anchorA = new int[aTo - aFrom];
+        int[] anchorB = new int[aTo - aFrom];
+        int count = 0;
+        for (int i = aFrom; i < aTo; i++) {
+            Integer j = bPositions.get(a[i].hash);
+            if (j != null && j >= 0 && aCounts.get(a[i].hash) == 1) {
+                anchorA[count] = i;
+                anchorB[count] = j;
+                count++;
+            }
+        }
+        if (count == 0) {
+            compareGap(leftPath, rightPath, a, aFrom, aTo, b, bFrom, bTo);
+            return;
+        }
+        // 锚点在 b 中位置的最长递增子序列（耐心排序）
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+        for (int k = 0; k < count; k++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (anchorB[tails[mid]] < anchorB[k]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[k] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = k;
+            if (low == length) {
+                length++;
+            }
+        }
+        int[] chain = new int[length];
+        for (int k = tails[length - 1], c = length - 1; k >= 0; k = previous[k], c--) {
+            chain[c] = k;
+        }
+        int i = aFrom;
+        int j = bFrom;
+        for (int k : chain) {
+            align(leftPath, rightPath, a, i, anchorA[k], b, j, anchorB[k]);
+            i = anchorA[k] + 1;
+            j = anchorB[k] + 1;
+        }
+        align(leftPath, rightPath, a, i, aTo, b, j, bTo);
+    }
+
+    /**
+     * 对齐后两侧都未匹配的一段元素：按位置两两比较，多出的元素记为删除或新增
+     *
+     * <p>在对侧同一段中存在相同子树的元素不参与按位置比较，留给移动检测。
+     */
+    private void compareGap(PathSegment leftPath, PathSegment rightPath, Node[] a, int aFrom, int aTo, Node[] b, int bFrom, int bTo) {
+        if (aFrom == aTo && bFrom == bTo) {
+            return;
+        }
+        Set<Long> aHashes = new HashSet<>();
+        for (int i = aFrom; i < aTo; i++) {
+            aHashes.add(a[i].hash);
+        }
+        Set<Long> bHashes = new HashSet<>();
+        for (int j = bFrom; j < bTo; j++) {
+            bHashes.add(b[j].hash);
+        }
+        int i = aFrom;
+        int j = bFrom;
+        while (i < aTo || j < bTo) {
+            if (i < aTo && bHashes.contains(a[i].hash)) {
+                removed.add(new Pending(new PathSegment(leftPath, null, i), a[i]));
+                i++;
+            } else if (j < bTo && aHashes.contains(b[j].hash)) {
+                added.add(new Pending(new PathSegment(rightPath, null, j), b[j]));
+                j++;
+            } else if (i < aTo && j < bTo) {
+                compare(new PathSegment(leftPath, null, i), new PathSegment(rightPath, null, j), a[i], b[j]);
+                i++;
+                j++;
+            } else if (i < aTo) {
+                removed.add(new Pending(new PathSegment(leftPath, null, i), a[i]));
+                i++;
+            } else {
+                added.add(new Pending(new PathSegment(rightPath, null, j), b[j]));
+                j++;
+            }
+        }
+    }
+
+    /**
+     * 把内容相同的删除和新增配对为移动，其余输出为删除/新增
+     */
+    private void pairMoves() {
+        Map<Long, Deque<Pending>> addedByHash = new HashMap<>();
+        for (Pending pending : added) {
+            addedByHash.computeIfAbsent(pending.node.hash, key -> new ArrayDeque<>(1)).add(pending);
+        }
+        Set<Pending> moved = new HashSet<>();
+        for (Pending from : removed) {
+            Deque<Pending> candidates = addedByHash.get(from.node.hash);
+            if (candidates != null && !candidates.isEmpty()) {
+                Pending to = candidates.poll();
+                moved.add(to);
+                differences.add(new Difference(Kind.MOVED, from.path.toString(), to.path.toString(), from.node, to.node));
+            } else {
+                differences.add(new Difference(Kind.REMOVED, from.path.toString(), null, from.node, null));
+            }
+        }
+        for (Pending to : added) {
+            if (!moved.contains(to)) {
+                differences.add(new Difference(Kind.ADDED, null, to.path.toString(), null, to.node));
+            }
+        }
+        // 按所在行排序，与文档中的先后顺序一致
+        differences.sort(Comparator.comparingInt(difference ->
+                difference.left != null ? difference.left.line : difference.right.line));
+    }
+}
@@ -0,0 +1,152 @@
+package com.daicy.core;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.SplitPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+
+import org.fxmisc.flowless.VirtualizedScrollPane;
+import org.fxmisc.richtext.CodeArea;
+import org.fxmisc.richtext.LineNumberFactory;
+
+/**
+ * JSON 比较面板
+ *
+ * <p>左右两个编辑区分别输入 JSON，比较在后台线程中通过 {@link JsonDiff} 完成，
+ * 结果显示在虚拟化的 ListView 中；选中一条差异时两侧编辑区跳转到对应的行。
+ *
+ * @author daicy
+ */
+public class JsonDiffPane extends VBox {
+
+    private final CodeArea leftArea = new CodeArea();
+    private final CodeArea rightArea = new CodeArea();
+    private final ListView<JsonDiff.Difference> resultView = new ListView<>();
+    private final Label statusLabel = new Label();
+    private final ProgressIndicator progressIndicator = new ProgressIndicator();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "json-diff-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Task<List<JsonDiff.Difference>> currentTask;
+
+    public JsonDiffPane() {
+        super(10);
+        setPadding(new Insets(10));
+
+        leftArea.setParagraphGraphicFactory(LineNumberFactory.get(leftArea));
+        rightArea.setParagraphGraphicFactory(LineNumberFactory.get(rightArea));
+        SplitPane editors = new SplitPane(new VirtualizedScrollPane<>(leftArea), new VirtualizedScrollPane<>(rightArea));
+        VBox.setVgrow(editors, Priority.ALWAYS);
+
+        Button compareButton = new Button("比较");
+        compareButton.setOnAction(event -> compare());
+        progressIndicator.setPrefSize(20, 20);
+        progressIndicator.setVisible(false);
+        HBox toolBar = new HBox(10, compareButton, progressIndicator, statusLabel);
+
+        resultView.setPrefHeight(200);
+        resultView.setCellFactory(listView -> new DifferenceCell());
+        resultView.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, difference) -> {
+            if (difference != null) {
+                reveal(leftArea, difference.getLeftLine());
+                reveal(rightArea, difference.getRightLine());
+            }
+        });
+
+        getChildren().addAll(editors, toolBar, resultView);
+    }
+
+    /**
+     * 取消正在进行的比较并停止后台线程
+     */
+    public void dispose() {
+        if (currentTask != null) {
+            currentTask.cancel();
+        }
+        executor.shutdownNow();
+    }
+
+    private void compare() {
+        if (currentTask != null) {
+            currentTask.cancel();
+        }
+        String leftJson = leftArea.getText();
+        String rightJson = rightArea.getText();
+        Task<List<JsonDiff.Difference>> task = new Task<List<JsonDiff.Difference>>() {
+            @Override
+            protected List<JsonDiff.Difference> call() throws IOException {
+                return JsonDiff.compare(leftJson, rightJson);
+            }
+        };
+        currentTask = task;
+        long startNanos = System.nanoTime();
+        progressIndicator.visibleProperty().bind(task.runningProperty());
+        statusLabel.setText("");
+        task.setOnSucceeded(event -> {
+            if (currentTask == task) {
+                List<JsonDiff.Difference> differences = task.getValue();
+                resultView.getItems().setAll(differences);
+                statusLabel.setText(differences.isEmpty() ? "两份 JSON 相同"
+                        : String.format("共 %,d 处差异，耗时 %d ms", differences.size(), (System.nanoTime() - startNanos) / 1_000_000));
+            }
+        });
+        task.setOnFailed(event -> {
+            if (currentTask == task) {
+                resultView.getItems().clear();
+                statusLabel.setText("比较失败：" + task.getException().getMessage());
+            }
+        });
+        executor.execute(task);
+    }
+
+    private static void reveal(CodeArea area, int line) {
+        if (line > 0 && line <= area.getParagraphs().size()) {
+            area.moveTo(line - 1, 0);
+            area.requestFollowCaret();
+        }
+    }
+
+    /**
+     * 按差异类型着色的列表单元
+     */
+    private static class DifferenceCell extends ListCell<JsonDiff.Difference> {
+        @Override
+        protected void updateItem(JsonDiff.Difference difference, boolean empty) {
+            super.updateItem(difference, empty);
+            if (empty || difference == null) {
+                setText(null);
+                setStyle("");
+                return;
+            }
+            setText(difference.toString());
+            switch (difference.getKind()) {
+                case ADDED:
+                    setStyle("-fx-text-fill: green;");
+                    break;
+                case REMOVED:
+                    setStyle("-fx-text-fill: red;");
+                    break;
+                case MOVED:
+                    setStyle("-fx-text-fill: blue;");
+                    break;
+                default:
+                    setStyle("-fx-text-fill: darkorange;");
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.daicy.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * 共享的 JSON 引擎
+ *
+ * <p>持有全局唯一、已配置好的 {@link ObjectMapper} 及由其派生的
+ * {@link ObjectReader}、{@link ObjectWriter} 和 {@link JsonFactory}。
+ * 这些对象都是线程安全的，复用它们可以保留 Jackson 内部的序列化器/反序列化器缓存，
+ * 避免每次调用都重新创建 ObjectMapper。
+ *
+ * <p>同时提供流式 API 和树模型 API，并按操作名称记录耗时统计。
+ *
+ * @author daicy
+ */
+public class JsonEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonEngine.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonFactory jsonFactory = objectMapper.getFactory();
+    private static final ObjectReader treeReader = objectMapper.reader();
+    private static final ObjectWriter compactWriter = objectMapper.writer();
+    private static final ObjectWriter prettyWriter = objectMapper.writerWithDefaultPrettyPrinter();
+    // 按目标类型缓存的 ObjectReader
+    private static final Map<Class<?>, ObjectReader> listReaders = new ConcurrentHashMap<>();
+    private static final Map<String, OperationStats> timings = new ConcurrentHashMap<>();
+
+    /**
+     * 可抛出 IOException 的 JSON 操作
+     *
+     * @param <T> 操作结果类型
+     */
+    @FunctionalInterface
+    public interface JsonOperation<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * 单个操作的耗时统计
+     */
+    public static class OperationStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getAverageMillis() {
+            long n = getCount();
+            return n == 0 ? 0 : getTotalNanos() / (n * 1_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, avg=%.3fms, max=%.3fms", getCount(), getAverageMillis(), getMaxNanos() / 1_000_000.0);
+        }
+    }
+
+    public static JsonFactory getFactory() {
+        return jsonFactory;
+    }
+
+    public static ObjectReader reader() {
+        return treeReader;
+    }
+
+    public static ObjectWriter writer() {
+        return compactWriter;
+    }
+
+    public static ObjectWriter prettyWriter() {
+        return prettyWriter;
+    }
+
+    /**
+     * 创建流式解析器
+     *
+     * @param reader JSON 输入
+     * @return 解析器，由调用方负责关闭
+     * @throws IOException 创建失败
+     */
+    public static JsonParser createParser(Reader reader) throws IOException {
+        return jsonFactory.createParser(reader);
+    }
+
+    public static JsonParser createParser(String content) throws IOException {
+        return jsonFactory.createParser(content);
+    }
+
+    /**
+     * 创建流式生成器
+     *
+     * @param writer 输出目标
+     * @return 生成器，由调用方负责关闭
+     * @throws IOException 创建失败
+     */
+    public static JsonGenerator createGenerator(Writer writer) throws IOException {
+        return jsonFactory.createGenerator(writer);
+    }
+
+    /**
+     * 解析为树模型
+     *
+     * @param content JSON 文本
+     * @return 根节点
+     * @throws IOException JSON 语法错误
+     */
+    public static JsonNode readTree(String content) throws IOException {
+        return timed("readTree", () -> treeReader.readTree(content));
+    }
+
+    /**
+     * 将 JSON 数组读取为指定类型的列表
+     *
+     * @param inputStream JSON 输入
+     * @param elementType 元素类型
+     * @return 列表
+     * @throws IOException JSON 语法错误或类型不匹配
+     */
+    public static <T> List<T> readList(InputStream inputStream, Class<T> elementType) throws IOException {
+        ObjectReader listReader = listReaders.computeIfAbsent(elementType, type ->
+                objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, type)));
+        return timed("readList", () -> listReader.readValue(inputStream));
+    }
+
+    /**
+     * 执行 JSON 操作并记录耗时
+     *
+     * @param operation 操作名称，用于统计分组
+     * @param action 要执行的操作
+     * @return 操作结果
+     * @throws IOException 操作失败
+     */
+    public static <T> T timed(String operation, JsonOperation<T> action) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return action.run();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            OperationStats stats = timings.computeIfAbsent(operation, key -> new OperationStats());
+            stats.record(elapsed);
+            logger.debug("JSON 操作 {} 耗时 {}ms ({})", operation, elapsed / 1_000_000.0, stats);
+        }
+    }
+
+    /**
+     * 获取各操作的耗时统计
+     *
+     * @return 操作名称到统计信息的只读映射
+     */
+    public static Map<String, OperationStats> getTimings() {
+        return Collections.unmodifiableMap(timings);
+    }
+}